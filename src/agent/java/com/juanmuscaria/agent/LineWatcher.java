@@ -0,0 +1,67 @@
+package com.juanmuscaria.agent;
+
+import java.io.ByteArrayOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.util.regex.Pattern;
+
+// Passes output through untouched while looking for the line that marks the daemon as ready. Once it's seen the
+// stream only forwards, logging frameworks keep their reference to it for the lifetime of the jvm.
+class LineWatcher extends FilterOutputStream {
+    // Longer lines are matched on their start
+    private static final int MAX_LINE = 8192;
+    private final Pattern pattern;
+    private final Charset charset;
+    private final Runnable onMatch;
+    private final ByteArrayOutputStream line = new ByteArrayOutputStream();
+    private volatile boolean matched;
+
+    // onMatch runs once, on the thread that wrote the line
+    LineWatcher(OutputStream out, Pattern pattern, Charset charset, Runnable onMatch) {
+        super(out);
+        this.pattern = pattern;
+        this.charset = charset;
+        this.onMatch = onMatch;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        out.write(b);
+        if (!matched)
+            scan(new byte[]{(byte) b}, 0, 1);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        out.write(b, off, len);
+        if (!matched)
+            scan(b, off, len);
+    }
+
+    private synchronized void scan(byte[] b, int off, int len) {
+        int start = off;
+        for (int i = off; i < off + len && !matched; i++) {
+            if (b[i] != '\n')
+                continue;
+            append(b, start, i - start);
+            check();
+            start = i + 1;
+        }
+        if (!matched)
+            append(b, start, off + len - start);
+    }
+
+    private void append(byte[] b, int off, int len) {
+        line.write(b, off, Math.min(len, Math.max(MAX_LINE - line.size(), 0)));
+    }
+
+    private void check() {
+        if (pattern.matcher(new String(line.toByteArray(), charset)).find()) {
+            matched = true;
+            onMatch.run();
+        }
+        line.reset();
+    }
+}
@@ -0,0 +1,187 @@
+package com.juanmuscaria.agent;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.UnsupportedEncodingException;
+import java.lang.instrument.ClassFileTransformer;
+import java.lang.instrument.Instrumentation;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.security.ProtectionDomain;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Timer;
+import java.util.TimerTask;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.jar.JarFile;
+import java.util.regex.Pattern;
+
+// Loaded with -javaagent into daemons created with create --notify. Tells systemd the daemon is ready once the
+// condition given as the agent argument holds, and keeps the unit's watchdog fed while the jvm isn't deadlocked.
+// Java can't write to the unix datagram socket in $NOTIFY_SOCKET, so messages go through systemd-notify, which is why
+// the units use NotifyAccess=all. That needs systemd 246 or newer: older systemd-notify exits without waiting for the
+// message to be processed, and systemd drops messages it can no longer trace back to the unit's cgroup, leaving start
+// hanging until TimeoutStartSec. Built for java 8 as it runs inside the daemon's jvm, not javactl's.
+public class NotifyAgent {
+    private static final long POLL_MILLIS = 200;
+    private static final AtomicBoolean ready = new AtomicBoolean();
+    private static final String pid = ManagementFactory.getRuntimeMXBean().getName().split("@")[0];
+
+    private NotifyAgent() {
+        throw new IllegalStateException("Sealed class");
+    }
+
+    // main, port:<port> or log:<regex>
+    public static void premain(String args, Instrumentation instrumentation) {
+        // Started by hand, not by systemd
+        if (System.getenv("NOTIFY_SOCKET") == null)
+            return;
+        String condition = args == null || args.isEmpty() ? "main" : args;
+        if (condition.equals("main")) {
+            awaitMainClass(instrumentation);
+        } else if (condition.startsWith("port:")) {
+            awaitPort(Integer.parseInt(condition.substring(5)));
+        } else if (condition.startsWith("log:")) {
+            awaitLog(Pattern.compile(condition.substring(4)));
+        } else {
+            throw new IllegalArgumentException("Unknown readiness condition '" + condition + "', expected main, port:<port> or log:<regex>.");
+        }
+        startWatchdog();
+    }
+
+    static void ready(String status) {
+        if (ready.compareAndSet(false, true))
+            sdNotify("READY=1", "STATUS=" + status);
+    }
+
+    // Ready as soon as the application's main class is loaded, the jvm itself is up by then
+    private static void awaitMainClass(Instrumentation instrumentation) {
+        String mainClass = mainClass();
+        if (mainClass == null) {
+            ready("Started");
+            return;
+        }
+        String internalName = mainClass.replace('.', '/');
+        instrumentation.addTransformer(new ClassFileTransformer() {
+            @Override
+            public byte[] transform(ClassLoader loader, String className, Class<?> redefined, ProtectionDomain domain, byte[] bytes) {
+                if (internalName.equals(className)) {
+                    instrumentation.removeTransformer(this);
+                    // Not on the class loading thread, systemd-notify takes a few milliseconds
+                    background("javactl-notify", () -> ready("Started " + mainClass));
+                }
+                return null;
+            }
+        });
+    }
+
+    // The Main-Class of the jar for java -jar, the class itself otherwise
+    private static String mainClass() {
+        String command = System.getProperty("sun.java.command", "").trim();
+        if (command.isEmpty())
+            return null;
+        String first = command.split(" ")[0];
+        if (!first.endsWith(".jar"))
+            return first;
+        try (JarFile jar = new JarFile(first)) {
+            return jar.getManifest() == null ? null : jar.getManifest().getMainAttributes().getValue("Main-Class");
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    // Reads the kernel's socket tables, the daemon never sees a connection it didn't ask for
+    private static void awaitPort(int port) {
+        String hex = String.format("%04X", port);
+        background("javactl-notify", () -> {
+            try {
+                while (!listening(hex))
+                    Thread.sleep(POLL_MILLIS);
+                ready("Listening on port " + port);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+    }
+
+    private static boolean listening(String hexPort) {
+        for (String table : Arrays.asList("/proc/net/tcp", "/proc/net/tcp6")) {
+            try (BufferedReader reader = Files.newBufferedReader(Paths.get(table))) {
+                // sl local_address rem_address st ..., state 0A is LISTEN
+                reader.readLine();
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    String[] fields = line.trim().split("\\s+");
+                    if (fields.length > 3 && fields[3].equals("0A") && fields[1].endsWith(":" + hexPort))
+                        return true;
+                }
+            } catch (IOException ignored) {
+                // tcp6 is missing when ipv6 is disabled
+            }
+        }
+        return false;
+    }
+
+    // Watches what the daemon prints, logging frameworks pick up System.out when they start so this has to be in
+    // place before main runs
+    private static void awaitLog(Pattern pattern) {
+        Charset charset = Charset.forName(System.getProperty("stdout.encoding",
+                System.getProperty("sun.stdout.encoding", Charset.defaultCharset().name())));
+        // Not on the logging thread, systemd-notify takes a few milliseconds
+        Runnable onMatch = () -> background("javactl-notify", () -> ready("Logged " + pattern.pattern()));
+        try {
+            System.setOut(new PrintStream(new LineWatcher(System.out, pattern, charset, onMatch), true, charset.name()));
+            System.setErr(new PrintStream(new LineWatcher(System.err, pattern, charset, onMatch), true, charset.name()));
+        } catch (UnsupportedEncodingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    // Pings at half of WatchdogSec as systemd recommends. A deadlock stops the pings so systemd restarts the daemon.
+    private static void startWatchdog() {
+        String usec = System.getenv("WATCHDOG_USEC");
+        String watchdogPid = System.getenv("WATCHDOG_PID");
+        if (usec == null || (watchdogPid != null && !watchdogPid.equals(pid)))
+            return;
+        long interval = Math.max(Long.parseLong(usec) / 2000, 1);
+        new Timer("javactl-watchdog", true).scheduleAtFixedRate(new TimerTask() {
+            private boolean deadlocked;
+
+            @Override
+            public void run() {
+                if (ManagementFactory.getThreadMXBean().findDeadlockedThreads() != null) {
+                    if (!deadlocked)
+                        System.err.println("javactl agent: deadlocked threads found, no longer feeding the watchdog");
+                    deadlocked = true;
+                    return;
+                }
+                sdNotify("WATCHDOG=1");
+            }
+        }, 0, interval);
+    }
+
+    private static void sdNotify(String... states) {
+        List<String> command = new ArrayList<>();
+        command.add("systemd-notify");
+        command.add("--pid=" + pid);
+        command.addAll(Arrays.asList(states));
+        try {
+            Process process = new ProcessBuilder(command).inheritIO().start();
+            process.waitFor();
+        } catch (IOException e) {
+            System.err.println("javactl agent: unable to run systemd-notify: " + e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    static void background(String name, Runnable task) {
+        Thread thread = new Thread(task, name);
+        thread.setDaemon(true);
+        thread.start();
+    }
+}
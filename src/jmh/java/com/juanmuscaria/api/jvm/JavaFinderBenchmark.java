@@ -0,0 +1,49 @@
+package com.juanmuscaria.api.jvm;
+
+import com.juanmuscaria.impl.BenchmarkFiles;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class JavaFinderBenchmark {
+    @Param({"1", "10", "50"})
+    public int installations;
+    private Path root;
+
+    // Mimics /usr/lib/jvm: jdk 8 and modern layouts, each with a populated lib directory and a symlinked alias
+    @Setup
+    public void setUp() throws IOException {
+        root = Files.createTempDirectory("javactl-jmh-jvm");
+        for (int i = 0; i < installations; i++) {
+            Path home = root.resolve("jdk-" + i);
+            Path bin = Files.createDirectories(i % 2 == 0 ? home.resolve("bin") : home.resolve("jre/bin"));
+            for (String tool : new String[]{"java", "javac", "jar", "jshell", "keytool"}) {
+                Path file = Files.createFile(bin.resolve(tool));
+                Files.setPosixFilePermissions(file, PosixFilePermissions.fromString("rwxr-xr-x"));
+            }
+            Path lib = Files.createDirectories(home.resolve("lib"));
+            for (int j = 0; j < 50; j++)
+                Files.createFile(lib.resolve("lib" + j + ".so"));
+            Files.createDirectories(home.resolve("legal/java.base"));
+            Files.createSymbolicLink(root.resolve("alias-" + i), home);
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        BenchmarkFiles.delete(root);
+    }
+
+    @Benchmark
+    public Set<Path> scan() {
+        return JavaFinder.scan(root);
+    }
+}
@@ -0,0 +1,58 @@
+package com.juanmuscaria.api.jvm;
+
+import com.juanmuscaria.impl.JournalReader;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class VirtualTerminalBenchmark {
+    @Param({"1000"})
+    public int lines;
+    private byte[] journal;
+    private OutputStream devNull;
+    private VirtualTerminal terminal;
+
+    @Setup
+    public void setUp() throws IOException {
+        StringBuilder b = new StringBuilder();
+        for (int i = 0; i < lines; i++)
+            b.append("{\"__CURSOR\":\"s=0;i=").append(i).append("\",\"__REALTIME_TIMESTAMP\":\"1700000000000000\",")
+                    .append("\"PRIORITY\":\"6\",\"SYSLOG_IDENTIFIER\":\"java\",\"_PID\":\"1234\",")
+                    .append("\"MESSAGE\":\"[12:00:00] [Server thread/INFO]: Player").append(i).append(" joined the game\"}\n");
+        journal = b.toString().getBytes(StandardCharsets.UTF_8);
+        // Unbuffered like the daemon fifo, every write is a syscall
+        devNull = new FileOutputStream("/dev/null");
+        terminal = new VirtualTerminal("bench", new File("/dev/null"), false, 0, false);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        devNull.close();
+    }
+
+    // Journal json output parsed and formatted for the terminal
+    @Benchmark
+    public void forwardLines(Blackhole blackhole) throws IOException {
+        terminal.forwardLines(new JournalReader(new ByteArrayInputStream(journal)), blackhole::consume);
+    }
+
+    // Journal output buffered and drawn as frames, one drain per batch of lines
+    @Benchmark
+    public void forwardLinesBuffered(Blackhole blackhole) throws IOException {
+        OutputRing ring = new OutputRing(VirtualTerminal.BUFFERED_LINES);
+        terminal.forwardLines(new JournalReader(new ByteArrayInputStream(journal)), ring::offer);
+        blackhole.consume(ring.drain());
+    }
+
+    // User input sent to the daemon
+    @Benchmark
+    public void writeLine() throws IOException {
+        VirtualTerminal.writeLine(devNull, "say Hello from the console");
+    }
+}
@@ -0,0 +1,42 @@
+package com.juanmuscaria.impl;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+// Shared helpers to build and remove the synthetic trees benchmarks work on
+public class BenchmarkFiles {
+
+    private BenchmarkFiles() {
+        throw new IllegalStateException("Sealed class");
+    }
+
+    // A unit directory with the given number of javactl daemons, plus as many unrelated units and symlinks
+    // as a regular systemd host would have around them
+    public static Path unitDir(int daemons) throws IOException {
+        Path dir = Files.createTempDirectory("javactl-jmh-units");
+        for (int i = 0; i < daemons; i++) {
+            Files.writeString(dir.resolve("javactl-daemon" + i + ".service"), "[Unit]\n" +
+                    "Description=Daemon " + i + "\n" +
+                    "[Service]\n" +
+                    "WorkingDirectory=/srv/daemon" + i + "\n" +
+                    "ExecStart=/usr/lib/jvm/java-17/bin/java -Xmx1G -jar /srv/daemon" + i + "/server.jar nogui\n" +
+                    "User=daemon\n" +
+                    "Restart=on-failure\n");
+            Files.writeString(dir.resolve("javactl-daemon" + i + ".socket"), "[Socket]\nListenFIFO=/run/javactl/daemon" + i);
+            Files.writeString(dir.resolve("other" + i + ".service"), "[Service]\nExecStart=/bin/true\n");
+            Files.createSymbolicLink(dir.resolve("alias" + i + ".service"), dir.resolve("other" + i + ".service"));
+        }
+        return dir;
+    }
+
+    public static void delete(Path root) throws IOException {
+        if (root == null || !Files.exists(root))
+            return;
+        try (Stream<Path> files = Files.walk(root)) {
+            files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package com.juanmuscaria.impl;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class JournalReaderBenchmark {
+    @Param({"10000"})
+    public int lines;
+    private byte[] journal;
+
+    @Setup
+    public void setUp() {
+        StringBuilder b = new StringBuilder();
+        for (int i = 0; i < lines; i++)
+            b.append("{\"__CURSOR\":\"s=0;i=").append(i).append("\",\"__REALTIME_TIMESTAMP\":\"1700000000000000\",")
+                    .append("\"_BOOT_ID\":\"2b1c4a8e0f6d4b0c9a3e7d5f1c2b3a4d\",\"_SYSTEMD_UNIT\":\"javactl-bench.service\",")
+                    .append("\"PRIORITY\":\"").append(i % 10 == 0 ? 4 : 6).append("\",\"SYSLOG_IDENTIFIER\":\"java\",\"_PID\":\"1234\",")
+                    .append("\"MESSAGE\":\"[12:00:00] [Server thread/INFO]: Player").append(i).append(" joined the game\"}\n");
+        journal = b.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    // Every entry's message decoded
+    @Benchmark
+    public void readMessages(Blackhole blackhole) throws IOException {
+        JournalReader reader = new JournalReader(new ByteArrayInputStream(journal));
+        while (reader.next())
+            blackhole.consume(reader.getMessage());
+    }
+
+    // Filtering on priority and copying the matches as they are, what logs --json -p does
+    @Benchmark
+    public void filterAndCopy(Blackhole blackhole) throws IOException {
+        JournalReader reader = new JournalReader(new ByteArrayInputStream(journal));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        while (reader.next()) {
+            if (reader.getPriority() <= 4)
+                reader.writeTo(out);
+        }
+        blackhole.consume(out.size());
+    }
+}
@@ -0,0 +1,57 @@
+package com.juanmuscaria.impl;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class SystemdBenchmark {
+    @Param({"10", "100", "1000", "10000"})
+    public int daemons;
+    private Path unitDir;
+    private Path indexFile;
+    private Systemd warm;
+
+    @Setup
+    public void setUp() throws IOException {
+        unitDir = BenchmarkFiles.unitDir(daemons);
+        indexFile = Files.createTempDirectory("javactl-jmh-index").resolve("units.idx");
+        warm = new Systemd(new ServiceRegistry(unitDir, indexFile));
+        warm.getInstalledServices();
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        BenchmarkFiles.delete(unitDir);
+        BenchmarkFiles.delete(indexFile.getParent());
+    }
+
+    // A fresh CLI run, starting from the persisted index
+    @Benchmark
+    public List<String> getInstalledServicesCold() {
+        return new Systemd(new ServiceRegistry(unitDir, indexFile)).getInstalledServices();
+    }
+
+    // A fresh CLI run without an index, has to list and parse the whole directory
+    @Benchmark
+    public List<String> getInstalledServicesNoIndex() {
+        return new Systemd(new ServiceRegistry(unitDir, null)).getInstalledServices();
+    }
+
+    // Repeated calls in a long running process
+    @Benchmark
+    public List<String> getInstalledServicesWarm() {
+        return warm.getInstalledServices();
+    }
+
+    @Benchmark
+    public boolean isValidName() {
+        return warm.isValidName("daemon " + daemons) & !warm.isValidName("../daemon" + daemons);
+    }
+}
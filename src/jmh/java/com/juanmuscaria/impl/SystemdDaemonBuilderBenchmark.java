@@ -0,0 +1,67 @@
+package com.juanmuscaria.impl;
+
+import com.juanmuscaria.api.jvm.JavaInstallation;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class SystemdDaemonBuilderBenchmark {
+    private Path unitDir;
+    private File jar;
+    private JavaInstallation java;
+    private File[] built = new File[0];
+
+    @Setup
+    public void setUp() throws IOException {
+        unitDir = Files.createTempDirectory("javactl-jmh-units");
+        jar = Files.createTempFile("javactl-jmh", ".jar").toFile();
+        System.setProperty("javactl.probeCache", unitDir.resolve("probe.cache").toString());
+        java = JavaInstallation.probe(new File(System.getProperty("java.home"), "bin/java"));
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        BenchmarkFiles.delete(unitDir);
+        Files.deleteIfExists(jar.toPath());
+        System.clearProperty("javactl.probeCache");
+    }
+
+    // build() refuses to overwrite a daemon, the same one is created every time so the directory never grows
+    @TearDown(Level.Invocation)
+    public void deleteBuilt() throws IOException {
+        for (File file : built)
+            Files.deleteIfExists(file.toPath());
+        built = new File[0];
+    }
+
+    private SystemdDaemonBuilder builder(String name) {
+        SystemdDaemonBuilder builder = new SystemdDaemonBuilder(unitDir.toFile(), "/run/javactl");
+        builder.name(name)
+                .java(java)
+                .jarFile(jar)
+                .workingDir(jar.getParentFile())
+                .user("daemon")
+                .autoRestart(true)
+                .jvmArgs("-Xmx1G -XX:+UseG1GC")
+                .args("--port 25565 nogui");
+        return builder;
+    }
+
+    @Benchmark
+    public String genServiceFile() {
+        return builder("bench").genServiceFile();
+    }
+
+    @Benchmark
+    public File[] build() {
+        built = builder("bench").build();
+        return built;
+    }
+}
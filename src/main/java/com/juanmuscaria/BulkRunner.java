@@ -0,0 +1,146 @@
+package com.juanmuscaria;
+
+import lombok.Getter;
+
+import java.io.PrintWriter;
+import java.nio.channels.ClosedByInterruptException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static picocli.CommandLine.Help.Ansi.AUTO;
+
+// Runs the same operation for many daemons on a bounded pool of workers. The deadline and the reported latency of
+// each daemon count from when a worker picks it up, so waiting in the queue behind slow daemons isn't held against it.
+class BulkRunner {
+    private final int parallelism;
+    private final Duration timeout;
+
+    // A null or zero timeout means no deadline
+    BulkRunner(int parallelism, Duration timeout) {
+        if (parallelism < 1)
+            throw new IllegalArgumentException("Parallelism must be at least 1.");
+        this.parallelism = parallelism;
+        this.timeout = timeout;
+    }
+
+    // Results in the order of names
+    List<Result> run(List<String> names, Task task) {
+        AtomicInteger count = new AtomicInteger();
+        ExecutorService workers = Executors.newFixedThreadPool(Math.min(parallelism, Math.max(names.size(), 1)), runnable -> {
+            Thread thread = new Thread(runnable, "javactl-bulk-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        ScheduledExecutorService alarms = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "javactl-bulk-deadline");
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            List<Future<Result>> futures = new ArrayList<>(names.size());
+            for (String name : names)
+                futures.add(workers.submit(() -> runOne(name, task, alarms)));
+            List<Result> results = new ArrayList<>(names.size());
+            for (Future<Result> future : futures)
+                results.add(join(future));
+            return results;
+        } finally {
+            workers.shutdownNow();
+            alarms.shutdownNow();
+        }
+    }
+
+    private Result runOne(String name, Task task, ScheduledExecutorService alarms) {
+        Thread worker = Thread.currentThread();
+        // cancel() can't stop an alarm that already fired, so it checks under this lock whether the task is over
+        // and never interrupts the worker once it has moved on to the next daemon
+        AtomicBoolean finished = new AtomicBoolean();
+        // Interrupting the worker aborts blocking fifo writes and Javactl.await, which cancels the systemd job
+        ScheduledFuture<?> alarm = timeout == null || timeout.isZero() || timeout.isNegative() ? null
+                : alarms.schedule(() -> {
+                    synchronized (finished) {
+                        if (!finished.get())
+                            worker.interrupt();
+                    }
+                }, timeout.toMillis(), TimeUnit.MILLISECONDS);
+        long start = System.nanoTime();
+        try {
+            String detail = task.run(name);
+            return new Result(name, true, System.nanoTime() - start, detail);
+        } catch (Exception e) {
+            boolean timedOut = Thread.currentThread().isInterrupted() || e instanceof InterruptedException
+                    || e instanceof ClosedByInterruptException;
+            return new Result(name, false, System.nanoTime() - start, timedOut
+                    ? "timed out after " + timeout.toMillis() + "ms" : String.valueOf(e.getMessage()));
+        } finally {
+            synchronized (finished) {
+                finished.set(true);
+            }
+            if (alarm != null)
+                alarm.cancel(false);
+            Thread.interrupted();
+        }
+    }
+
+    private static Result join(Future<Result> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    // One line per daemon and a summary, true when every daemon succeeded
+    static boolean print(PrintWriter out, List<Result> results, long elapsed) {
+        int failed = 0;
+        long[] latencies = new long[results.size()];
+        out.printf("%-24s %-8s %10s  %s%n", "NAME", "RESULT", "LATENCY", "DETAIL");
+        for (int i = 0; i < results.size(); i++) {
+            Result result = results.get(i);
+            latencies[i] = result.getLatency();
+            if (!result.isOk())
+                failed++;
+            String status = AUTO.string(result.isOk() ? "@|green ok      |@" : "@|red failed  |@");
+            out.printf("%-24s %s %8.1fms  %s%n", result.getName(), status, result.getLatency() / 1e6,
+                    result.getDetail() == null ? "" : result.getDetail());
+        }
+        Arrays.sort(latencies);
+        if (latencies.length > 0)
+            out.printf("%d/%d daemons in %.1fms, latency p50 %.1fms, max %.1fms%n", results.size() - failed, results.size(),
+                    elapsed / 1e6, latencies[latencies.length / 2] / 1e6, latencies[latencies.length - 1] / 1e6);
+        out.flush();
+        return failed == 0;
+    }
+
+    interface Task {
+        // Returns a short detail to show next to the daemon, may be null
+        String run(String name) throws Exception;
+    }
+
+    static class Result {
+        @Getter
+        private final String name;
+        @Getter
+        private final boolean ok;
+        // Nanoseconds
+        @Getter
+        private final long latency;
+        @Getter
+        private final String detail;
+
+        Result(String name, boolean ok, long latency, String detail) {
+            this.name = name;
+            this.ok = ok;
+            this.latency = latency;
+            this.detail = detail;
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package com.juanmuscaria;
+
+import com.juanmuscaria.api.jvm.DaemonConsole;
+import com.juanmuscaria.impl.JournalReader;
+import com.juanmuscaria.impl.SystemdJournal;
+import lombok.Getter;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+// Sends a command to a daemon's console and waits for the line answering it. The journal is followed from its current
+// end before anything is written, so even an instant response can't be missed, and only output logged after the
+// command counts towards the answer. Any other action can be watched the same way, like a restart waiting for the
+// line that says the daemon is up.
+class ConsoleExec {
+    private final String name;
+    private final Pattern expect;
+    private final Duration timeout;
+    // Everything the daemon logged from the command up to the answer
+    @Getter
+    private final List<String> output = new ArrayList<>();
+    // From writing the command to reading the answer, in nanoseconds
+    @Getter
+    private long latency = -1;
+
+    // Without a pattern the first line logged after the command is the answer
+    ConsoleExec(String name, Pattern expect, Duration timeout) {
+        this.name = name;
+        this.expect = expect;
+        this.timeout = timeout;
+    }
+
+    // false when nothing matched in time
+    boolean run(File fifo, String command) throws IOException {
+        return watch(() -> {
+            try (DaemonConsole console = new DaemonConsole(fifo)) {
+                console.sendLine(command);
+            }
+        });
+    }
+
+    // Runs the action and waits for the output it causes, the timeout counts from before the action
+    boolean watch(Action action) throws IOException {
+        String cursor = SystemdJournal.latestCursor(name).orElse(null);
+        Process journal = SystemdJournal.follow(name, cursor == null ? -1 : 0, cursor).start();
+        // Closing journalctl's output is what ends the wait
+        CompletableFuture.delayedExecutor(timeout.toMillis(), TimeUnit.MILLISECONDS).execute(journal::destroy);
+        try {
+            return watch(journal.getInputStream(), action);
+        } finally {
+            journal.destroy();
+        }
+    }
+
+    // Reads journalctl -o json output until the answer or the end of the stream
+    boolean watch(InputStream journal, Action action) throws IOException {
+        try (JournalReader reader = new JournalReader(journal)) {
+            long sentAt = System.currentTimeMillis() * 1000;
+            long sent = System.nanoTime();
+            action.run();
+            while (reader.next()) {
+                // Logged between reading the cursor and the action
+                if (reader.getTimestamp() < sentAt)
+                    continue;
+                String message = reader.getMessage();
+                output.add(message);
+                if (expect == null || expect.matcher(message).find()) {
+                    latency = System.nanoTime() - sent;
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    interface Action {
+        void run() throws IOException;
+    }
+}
@@ -0,0 +1,65 @@
+package com.juanmuscaria;
+
+import com.juanmuscaria.api.DaemonInfo;
+import com.juanmuscaria.api.IService;
+import picocli.CommandLine.Option;
+
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.util.*;
+
+// Options shared by commands acting on many daemons at once: name globs, tags set with create --tag, or everything
+class DaemonSelection {
+    @Option(names = {"--match", "-m"}, description = "Daemons whose name matches this glob, e.g. 'lobby-*'. Can be repeated.")
+    List<String> patterns = new ArrayList<>();
+    @Option(names = {"--tag", "-t"}, description = "Daemons created with this tag. Can be repeated.")
+    List<String> tags = new ArrayList<>();
+    @Option(names = {"--all", "-A"}, description = "Every installed daemon.")
+    boolean all;
+
+    boolean isEmpty() {
+        return patterns.isEmpty() && tags.isEmpty() && !all;
+    }
+
+    // Installed daemons picked by any of the options plus the explicitly named ones, sorted by name
+    List<String> resolve(IService service, Collection<String> names) {
+        Set<String> selected = new TreeSet<>();
+        List<String> installed = service.getInstalledServices();
+        for (String name : names) {
+            if (!installed.contains(name))
+                throw new IllegalArgumentException("Service '" + name + "' does not exist.");
+            selected.add(name);
+        }
+        List<PathMatcher> matchers = new ArrayList<>();
+        for (String pattern : patterns)
+            matchers.add(FileSystems.getDefault().getPathMatcher("glob:" + pattern));
+        for (String name : installed) {
+            if (all || matches(matchers, name) || hasTag(service, name))
+                selected.add(name);
+        }
+        if (selected.isEmpty())
+            throw new IllegalArgumentException(isEmpty() && names.isEmpty() ? "No daemons selected, name them or use --match, --tag or --all."
+                    : "No daemons matched the selection.");
+        return new ArrayList<>(selected);
+    }
+
+    private static boolean matches(List<PathMatcher> matchers, String name) {
+        for (PathMatcher matcher : matchers) {
+            if (matcher.matches(Path.of(name)))
+                return true;
+        }
+        return false;
+    }
+
+    private boolean hasTag(IService service, String name) {
+        if (tags.isEmpty())
+            return false;
+        List<String> daemonTags = service.getDaemonInfo(name).map(DaemonInfo::getTags).orElse(Collections.emptyList());
+        for (String tag : tags) {
+            if (daemonTags.contains(tag))
+                return true;
+        }
+        return false;
+    }
+}
@@ -0,0 +1,37 @@
+package com.juanmuscaria;
+
+import picocli.CommandLine.ITypeConverter;
+import picocli.CommandLine.TypeConversionException;
+
+import java.time.Duration;
+import java.time.format.DateTimeParseException;
+
+// Accepts human friendly durations like 500ms, 30s, 5m or 1h, a bare number means seconds.
+// ISO-8601 durations (PT30S) are accepted as well.
+class DurationConverter implements ITypeConverter<Duration> {
+    @Override
+    public Duration convert(String value) {
+        String text = value.trim().toLowerCase();
+        try {
+            if (text.startsWith("pt") || text.startsWith("p"))
+                return Duration.parse(value.trim());
+            if (text.endsWith("ms"))
+                return Duration.ofMillis(Long.parseLong(text.substring(0, text.length() - 2)));
+            long amount = Long.parseLong(text.substring(0, text.length() - 1));
+            switch (text.charAt(text.length() - 1)) {
+                case 's':
+                    return Duration.ofSeconds(amount);
+                case 'm':
+                    return Duration.ofMinutes(amount);
+                case 'h':
+                    return Duration.ofHours(amount);
+                case 'd':
+                    return Duration.ofDays(amount);
+                default:
+                    return Duration.ofSeconds(Long.parseLong(text));
+            }
+        } catch (NumberFormatException | DateTimeParseException | StringIndexOutOfBoundsException e) {
+            throw new TypeConversionException("Invalid duration '" + value + "', use something like 500ms, 30s, 5m or 1h");
+        }
+    }
+}
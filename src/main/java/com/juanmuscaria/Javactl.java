@@ -1,19 +1,56 @@
 package com.juanmuscaria;
 
+import com.juanmuscaria.api.DaemonInfo;
 import com.juanmuscaria.api.IDaemonBuilder;
 import com.juanmuscaria.api.IService;
 import com.juanmuscaria.api.ServiceManager;
+import com.juanmuscaria.api.ServiceStatus;
+import com.juanmuscaria.api.ServiceTasks;
+import com.juanmuscaria.api.jvm.DaemonConsole;
 import com.juanmuscaria.api.jvm.JavaFinder;
 import com.juanmuscaria.api.jvm.JavaInstallation;
+import com.juanmuscaria.api.jvm.JavaLogLevel;
+import com.juanmuscaria.api.jvm.JavaProbeCache;
+import com.juanmuscaria.api.jvm.JvmStats;
+import com.juanmuscaria.api.jvm.PerfData;
 import com.juanmuscaria.api.jvm.VirtualTerminal;
+import com.juanmuscaria.impl.SystemdJournal;
+import com.juanmuscaria.impl.SystemdPaths;
+import com.sun.net.httpserver.HttpServer;
 import io.micronaut.configuration.picocli.PicocliRunner;
+import jakarta.inject.Inject;
+import lombok.SneakyThrows;
 import picocli.AutoComplete;
 import picocli.CommandLine.Command;
+import picocli.CommandLine.Mixin;
 import picocli.CommandLine.Option;
 import picocli.CommandLine.Parameters;
 
+import java.io.BufferedOutputStream;
 import java.io.File;
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintWriter;
+import java.net.InetSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.OptionalInt;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeoutException;
+import java.util.regex.Pattern;
+import java.util.zip.GZIPOutputStream;
 
 import static com.juanmuscaria.Javactl.checkEnvironment;
 import static com.juanmuscaria.Javactl.warnPrivilegedAction;
@@ -22,10 +59,18 @@ import static picocli.CommandLine.Help.Ansi.AUTO;
 @Command(name = "javactl", version = "0.1", description = "Command line utility to make and control java daemons.",
         mixinStandardHelpOptions = true,
         subcommands = { AutoComplete.GenerateCompletion.class, CommandCreate.class, CommandConnect.class,
-                CommandList.class, CommandStart.class, CommandStop.class, CommandRestart.class, CommandDelete.class })
+                CommandList.class, CommandStart.class, CommandStop.class, CommandRestart.class, CommandDelete.class,
+                CommandAgent.class, CommandStats.class, CommandTop.class,
+                CommandExporter.class, CommandLogs.class, CommandSend.class,
+                CommandExec.class, CommandBroadcast.class, CommandRollingRestart.class,
+                CommandBenchStart.class, CommandCds.class })
 public class Javactl implements Runnable {
 
     public static void main(String[] args) throws Exception {
+        // Served by javactld when it's running, skipping the whole context startup
+        OptionalInt forwarded = JavactldClient.forward(args);
+        if (forwarded.isPresent())
+            System.exit(forwarded.getAsInt());
         PicocliRunner.run(Javactl.class, args);
     }
 
@@ -34,13 +79,6 @@ public class Javactl implements Runnable {
             System.out.println("Only systems using systemd are supported!");
             System.exit(1);
         }
-        try {
-            JavaInstallation.init();
-        } catch (Throwable e) {
-            System.out.println("Unable to configure JVM probing!");
-            e.printStackTrace();
-            System.exit(1);
-        }
     }
 
     public static void warnPrivilegedAction() {
@@ -48,15 +86,46 @@ public class Javactl implements Runnable {
             System.out.println(AUTO.string("@|yellow This action may require root privileges, it's recommended to run it as root!|@"));
     }
 
+    // Waits for an async service operation, translating its failures into the exceptions commands already handle.
+    // An interrupt, like a bulk deadline, cancels the operation and with it the systemd job.
+    public static <T> T await(CompletableFuture<T> operation, Duration timeout) {
+        try {
+            return operation.get();
+        } catch (InterruptedException e) {
+            operation.cancel(true);
+            ServiceTasks.awaitAborted(operation, Duration.ofSeconds(5));
+            Thread.currentThread().interrupt();
+            throw new IllegalArgumentException("Interrupted while waiting for systemd, the job was cancelled.");
+        } catch (ExecutionException | CancellationException e) {
+            Throwable cause = e instanceof ExecutionException && e.getCause() != null ? e.getCause() : e;
+            // Commands exit right after, give the worker time to cancel the systemd job first
+            if (cause instanceof TimeoutException || cause instanceof CancellationException)
+                ServiceTasks.awaitAborted(operation, Duration.ofSeconds(5));
+            if (cause instanceof TimeoutException)
+                throw new IllegalArgumentException("Systemd did not finish within " + timeout.toMillis() + "ms, the job was cancelled.");
+            if (cause instanceof RuntimeException)
+                throw (RuntimeException) cause;
+            throw new IllegalStateException(cause);
+        }
+    }
+
     public void run() {
         checkEnvironment();
+        try {
+            JavaInstallation.init();
+        } catch (Throwable e) {
+            System.out.println("Unable to configure JVM probing!");
+            e.printStackTrace();
+            System.exit(1);
+        }
         System.out.println(AUTO.string("@|green javactl is ready to use! Type javactl --help for available commands.|@"));
     }
 
     @Command(name = "probeJava", description = "List all available java installations.")
-    public void commandProbeJavaInstalls() {
+    public void commandProbeJavaInstalls(@Option(names = {"--refresh", "-r"}, description = "Ignore cached probe results and probe every installation again.") boolean refresh) {
         checkEnvironment();
-        JavaFinder.findJavaInstallations().forEach(System.out::println);
+        JavaFinder.findJavaInstallations(refresh).forEach(System.out::println);
+        System.out.println(JavaProbeCache.stats());
     }
 }
 
@@ -82,6 +151,28 @@ class CommandCreate implements Runnable {
     String jvmArgs;
     @Option(names = {"--args", "-a"}, description = "Arguments to be passed to the jvm of the daemon.")
     String args;
+    @Option(names = {"--refresh"}, description = "Ignore the cached probe result of the java executable.")
+    boolean refresh;
+    @Option(names = {"--tag", "-t"}, description = "Tag the daemon so bulk commands can select it with --tag. Can be repeated.")
+    List<String> tags;
+    @Option(names = {"--after"}, description = "Another daemon this one has to start after, e.g. a database proxy. Can be repeated.")
+    List<String> after;
+    @Option(names = {"--logNamespace", "-N"}, description = "Log to a separate journald instance with its own rate limits and storage instead of the system journal.")
+    String logNamespace;
+    @Option(names = {"--logMaxUse"}, description = "Disk budget of the log namespace, e.g. 2G.")
+    String logMaxUse;
+    @Option(names = {"--logRateLimitInterval"}, converter = DurationConverter.class, description = "Rate limit window for the daemon's output, e.g. 30s. 0 disables rate limiting.")
+    Duration logRateLimitInterval;
+    @Option(names = {"--logRateLimitBurst"}, description = "Messages allowed within each rate limit window, defaults to 10000. Needs --logRateLimitInterval.")
+    Integer logRateLimitBurst;
+    @Option(names = {"--logLevelMax"}, description = "Drop output less important than this syslog level, e.g. info or warning.")
+    String logLevelMax;
+    @Option(names = {"--notify"}, arity = "0..1", fallbackValue = "main", description = "Let systemd wait for the daemon to be ready: main (the default), port:<port> once it listens, or log:<regex> once it prints a matching line. Needs systemd 246 or newer.")
+    String notifyReady;
+    @Option(names = {"--cds"}, description = "Start from an AppCDS archive of the daemon's classes, kept in /var/lib/javactl/<name> and rebuilt when the jar or the java changes. Requires java 13 or newer.")
+    boolean cds;
+    @Option(names = {"--watchdog"}, converter = DurationConverter.class, description = "Restart the daemon when it is deadlocked or stops responding for this long, e.g. 30s. Requires --notify.")
+    Duration watchdog;
 
     @Override
     public void run() {
@@ -89,10 +180,13 @@ class CommandCreate implements Runnable {
         Javactl.warnPrivilegedAction();
         try {
             IDaemonBuilder builder = IDaemonBuilder.builder();
-            var javaExec = new JavaInstallation(javaPath);
-            if (!IService.SERVICE.isValidName(name))
-                throw new IllegalArgumentException("Invalid name! It must follow the following rules:" + IService.SERVICE.getValidationRules());
-            System.out.printf("Using java %s-%s\n", javaExec.getVendor(), javaExec.getVersion());
+            // A burst only goes into the unit with its window, alone it would be silently dropped
+            if (logRateLimitBurst != null && logRateLimitInterval == null)
+                throw new IllegalArgumentException("--logRateLimitBurst needs --logRateLimitInterval.");
+            var javaExec = JavaInstallation.probe(javaPath, refresh);
+            if (!IService.service().isValidName(name))
+                throw new IllegalArgumentException("Invalid name! It must follow the following rules:" + IService.service().getValidationRules());
+            System.out.printf("Using java %s-%s (%s)\n", javaExec.getVendor(), javaExec.getVersion(), JavaProbeCache.stats());
             builder.name(name)
                     .description(desc)
                     .java(javaExec)
@@ -102,10 +196,22 @@ class CommandCreate implements Runnable {
                     .jvmArgs(jvmArgs)
                     .user(user)
                     .group(group)
-                    .autoRestart(autoRestart);
+                    .autoRestart(autoRestart)
+                    .tags(tags)
+                    .after(after)
+                    .logNamespace(logNamespace)
+                    .logMaxUse(logMaxUse)
+                    .logLevelMax(logLevelMax)
+                    .notifyReady(notifyReady)
+                    .watchdog(watchdog)
+                    .cds(cds);
+            if (logRateLimitInterval != null)
+                builder.logRateLimit(logRateLimitInterval, logRateLimitBurst == null ? 10000 : logRateLimitBurst);
             File[] files = builder.build();
             System.out.println("Service created as: " + files[0].getName());
             System.out.println("Enable it using javactl enable " + name);
+            if (cds)
+                System.out.println("Its first run dumps the class data archive used from then on, javactl cds " + name + " does a training run now.");
             System.exit(0);
         } catch (IllegalArgumentException e) {
             System.err.println(AUTO.string("@|red " + e.getMessage() + "|@"));
@@ -114,21 +220,25 @@ class CommandCreate implements Runnable {
     }
 }
 
-@Command(name = "connect", description = "Connects to a running java service allowing you to gather information about the jvm and control over the input stream.", mixinStandardHelpOptions = true)
+@Command(name = "connect", description = "Connects to a running java service allowing you to gather information about the jvm and control over the input stream. Ctrl-O pauses and resumes the output.", mixinStandardHelpOptions = true)
 class CommandConnect implements Runnable {
     @Option(names = {"--useCat", "-c"}, description = "Journalctl will be configured to use cat as it's output.")
     boolean useCat;
+    @Option(names = {"--lines", "-n"}, description = "How many lines of earlier output to show, defaults to 100. Page Up or Alt-P pages in more.")
+    int lines = 100;
+    @Option(names = {"--resume", "-R"}, description = "Show everything logged since the last connect session instead of the last lines.")
+    boolean resume;
     @Parameters(paramLabel = "name", description = "The daemon name.")
     String name;
     @Override
     public void run() {
         checkEnvironment();
         try {
-            if (!IService.SERVICE.isServiceRunning(name))
+            if (!IService.service().isServiceRunning(name))
                 throw new IllegalArgumentException("Service is not running!");
-            if (IService.SERVICE.getSocketFileFor(name).isEmpty())
+            if (IService.service().getSocketFileFor(name).isEmpty())
                 throw new IllegalArgumentException("Unable to find service socket!");
-            new VirtualTerminal(name, useCat).start();
+            new VirtualTerminal(name, useCat, lines, resume).start();
             System.exit(0);
         } catch (IllegalArgumentException e) {
             System.err.println(AUTO.string("@|red " + e.getMessage() + "|@"));
@@ -144,14 +254,203 @@ class CommandList implements Runnable {
     public void run() {
         checkEnvironment();
         try {
-            List<String> services = IService.SERVICE.getInstalledServices();
-            if (services.isEmpty()) {
-                System.out.println(AUTO.string("@|red No services installed!|@"));
+            PrintWriter out = new PrintWriter(System.out, true);
+            print(out, IService.service().getInstalledServicesStatus());
+        } catch (IllegalArgumentException e) {
+            System.err.println(AUTO.string("@|red " + e.getMessage() + "|@"));
+            System.exit(2);
+        }
+    }
+
+    static void print(PrintWriter out, Map<String, ServiceStatus> services) {
+        if (services.isEmpty()) {
+            out.println(AUTO.string("@|red No services installed!|@"));
+            return;
+        }
+        out.printf("%-24s %-20s %8s %10s %12s%n", "NAME", "STATE", "PID", "MEMORY", "UPTIME");
+        for (ServiceStatus status : services.values()) {
+            out.printf("%-24s %-20s %8s %10s %12s%n", status.getName(),
+                    status.getActiveState() + " (" + status.getSubState() + ")",
+                    status.getMainPid() > 0 ? String.valueOf(status.getMainPid()) : "-",
+                    status.getMemory() >= 0 ? formatBytes(status.getMemory()) : "-",
+                    status.getUptime().map(CommandList::formatDuration).orElse("-"));
+        }
+        out.flush();
+    }
+
+    static String formatBytes(long bytes) {
+        if (bytes < 1024)
+            return bytes + "B";
+        int unit = (63 - Long.numberOfLeadingZeros(bytes)) / 10;
+        return String.format("%.1f%c", bytes / (double) (1L << (unit * 10)), "BKMGTPE".charAt(unit));
+    }
+
+    static String formatDuration(Duration duration) {
+        long seconds = duration.getSeconds();
+        if (seconds < 60)
+            return seconds + "s";
+        if (seconds < 3600)
+            return (seconds / 60) + "m " + (seconds % 60) + "s";
+        if (seconds < 86400)
+            return (seconds / 3600) + "h " + (seconds % 3600 / 60) + "m";
+        return (seconds / 86400) + "d " + (seconds % 86400 / 3600) + "h";
+    }
+}
+
+// start, stop and restart: one daemon like before, or many at once ordered by the --after given at creation
+abstract class LifecycleCommand implements Runnable {
+    @Parameters(paramLabel = "name", arity = "0..*", description = "The daemon names.")
+    List<String> names = new ArrayList<>();
+    @Mixin
+    DaemonSelection selection = new DaemonSelection();
+    @Option(names = {"--parallel", "-P"}, description = "How many daemons to act on at the same time, defaults to 8.")
+    int parallel = 8;
+    @Option(names = {"--timeout"}, converter = DurationConverter.class, description = "Give up waiting for systemd after this long and cancel the job, e.g. 90s or 5m. Defaults to 2m per daemon when acting on several, 0 waits forever.")
+    Duration timeout;
+
+    abstract CompletableFuture<Void> operation(IService service, String name);
+
+    // Stopping walks the order backwards, dependents go down before what they depend on
+    boolean reverseOrder() {
+        return false;
+    }
+
+    @Override
+    public void run() {
+        warnPrivilegedAction();
+        try {
+            int exitCode = execute(new PrintWriter(System.out, true));
+            if (exitCode != 0)
+                System.exit(exitCode);
+        } catch (IllegalArgumentException e) {
+            System.err.println(AUTO.string("@|red " + e.getMessage() + "|@"));
+            System.exit(2);
+        }
+    }
+
+    // Shared with javactld, which runs it for forwarded invocations
+    int execute(PrintWriter out) {
+        IService service = IService.service();
+        if (names.size() == 1 && selection.isEmpty()) {
+            if (service.getServiceFileFor(names.get(0)).isEmpty())
+                throw new IllegalArgumentException("Service '" + names.get(0) + "' does not exist.");
+            Javactl.await(operation(service, names.get(0)), timeout);
+            return 0;
+        }
+        List<String> selected = selection.resolve(service, names);
+        Map<String, List<String>> after = new HashMap<>();
+        for (String name : selected)
+            after.put(name, service.getDaemonInfo(name).map(DaemonInfo::getAfter).orElse(Collections.emptyList()));
+        List<List<String>> levels = LaunchOrder.levels(after);
+        if (reverseOrder())
+            Collections.reverse(levels);
+        // One daemon stuck in activating must not hold up the whole batch forever
+        Duration deadline = timeout == null ? Duration.ofMinutes(2) : timeout;
+        BulkRunner runner = new BulkRunner(parallel, deadline);
+        Map<String, BulkRunner.Result> results = new HashMap<>();
+        long start = System.nanoTime();
+        for (List<String> level : levels) {
+            List<String> ready = new ArrayList<>();
+            for (String name : level) {
+                // Don't start a daemon whose dependency failed, or stop one whose dependent is still up
+                Optional<String> failed = LaunchOrder.related(after, name, reverseOrder()).stream()
+                        .filter(other -> results.containsKey(other) && !results.get(other).isOk()).findFirst();
+                if (failed.isPresent())
+                    results.put(name, new BulkRunner.Result(name, false, 0, "skipped, " + failed.get() + " failed"));
+                else
+                    ready.add(name);
             }
-            for (String service : services) {
-                boolean isRunning = IService.SERVICE.isServiceRunning(service);
-                System.out.println(service + " - " + (isRunning?"Running":"Stopped"));
+            for (BulkRunner.Result result : runner.run(ready, name -> {
+                Javactl.await(operation(service, name), deadline);
+                return null;
+            }))
+                results.put(result.getName(), result);
+        }
+        List<BulkRunner.Result> ordered = new ArrayList<>();
+        for (List<String> level : levels) {
+            for (String name : level)
+                ordered.add(results.get(name));
+        }
+        return BulkRunner.print(out, ordered, System.nanoTime() - start) ? 0 : 1;
+    }
+}
+
+@Command(name = "start", description = "Start daemons.", mixinStandardHelpOptions = true)
+class CommandStart extends LifecycleCommand {
+    @Override
+    CompletableFuture<Void> operation(IService service, String name) {
+        return service.startServiceAsync(name, timeout);
+    }
+}
+
+@Command(name = "stop", description = "Stop daemons.", mixinStandardHelpOptions = true)
+class CommandStop extends LifecycleCommand {
+    @Override
+    CompletableFuture<Void> operation(IService service, String name) {
+        return service.stopServiceAsync(name, timeout);
+    }
+
+    @Override
+    boolean reverseOrder() {
+        return true;
+    }
+}
+
+@Command(name = "restart", description = "(Re)start daemons.", mixinStandardHelpOptions = true)
+class CommandRestart extends LifecycleCommand {
+    @Override
+    CompletableFuture<Void> operation(IService service, String name) {
+        return service.restartServiceAsync(name, timeout);
+    }
+}
+
+@Command(name = "rolling-restart", description = "Restart daemons a few at a time, waiting for each batch to be serving again before the next.", mixinStandardHelpOptions = true)
+class CommandRollingRestart implements Runnable {
+    @Parameters(paramLabel = "name", arity = "0..*", description = "Daemons to restart, on top of the ones selected by options.")
+    List<String> names = new ArrayList<>();
+    @Mixin
+    DaemonSelection selection = new DaemonSelection();
+    @Option(names = {"--batch", "-b"}, description = "How many daemons to restart at the same time, defaults to 1.")
+    int batch = 1;
+    @Option(names = {"--ready-log"}, description = "Ready once the daemon logs a line matching this regular expression, e.g. 'Done \\('.")
+    String readyLog;
+    @Option(names = {"--ready-port"}, description = "Ready once this port accepts connections, as port or host:port.")
+    String readyPort;
+    @Option(names = {"--ready-command"}, description = "Ready once the daemon answers this console command.")
+    String readyCommand;
+    @Option(names = {"--expect", "-e"}, description = "Regular expression matching the answer to --ready-command.")
+    String expect;
+    @Option(names = {"--timeout"}, converter = DurationConverter.class, description = "Abort when a daemon isn't ready this long after its restart, e.g. 90s or 5m. Defaults to 2m.")
+    Duration timeout = Duration.ofMinutes(2);
+
+    @Override
+    public void run() {
+        warnPrivilegedAction();
+        try {
+            IService service = IService.service();
+            RollingRestart restart = RollingRestart.ofPort(readyLog == null ? null : Pattern.compile(readyLog), readyPort,
+                    readyCommand, expect == null ? null : Pattern.compile(expect), timeout);
+            if (batch < 1)
+                throw new IllegalArgumentException("Batch size must be at least 1.");
+            List<String> selected = selection.isEmpty() && names.isEmpty() ? Collections.emptyList() : selection.resolve(service, names);
+            if (selected.isEmpty())
+                throw new IllegalArgumentException("No daemons selected, give names, --match, --tag or --all.");
+            // The runner's own deadline is a backstop, the checks give up on their own once the timeout is over
+            BulkRunner runner = new BulkRunner(batch, timeout.plusSeconds(5));
+            List<BulkRunner.Result> results = new ArrayList<>();
+            long start = System.nanoTime();
+            for (int i = 0; i < selected.size(); i += batch) {
+                List<BulkRunner.Result> done = runner.run(selected.subList(i, Math.min(i + batch, selected.size())),
+                        name -> restart.restart(service, name));
+                results.addAll(done);
+                if (done.stream().anyMatch(result -> !result.isOk())) {
+                    BulkRunner.print(new PrintWriter(System.out), results, System.nanoTime() - start);
+                    List<String> skipped = selected.subList(Math.min(i + batch, selected.size()), selected.size());
+                    throw new IllegalArgumentException("Aborted, a daemon did not become ready."
+                            + (skipped.isEmpty() ? "" : " Not restarted: " + String.join(", ", skipped)));
+                }
             }
+            BulkRunner.print(new PrintWriter(System.out), results, System.nanoTime() - start);
         } catch (IllegalArgumentException e) {
             System.err.println(AUTO.string("@|red " + e.getMessage() + "|@"));
             System.exit(2);
@@ -159,37 +458,199 @@ class CommandList implements Runnable {
     }
 }
 
-@Command(name = "start", description = "Start a daemon.", mixinStandardHelpOptions = true)
-class CommandStart implements Runnable {
+@Command(name = "bench-start", description = "Measure cold start latency of a daemon, optionally against other jvm arguments or another java.", mixinStandardHelpOptions = true)
+class CommandBenchStart implements Runnable {
     @Parameters(paramLabel = "name", description = "The daemon name.")
     String name;
+    @Option(names = {"--runs", "-n"}, description = "Measured starts per variant, defaults to 10.")
+    int runs = 10;
+    @Option(names = {"--warmup", "-w"}, description = "Unmeasured starts per variant first, so every run finds the jars in the page cache. Defaults to 1.")
+    int warmup = 1;
+    @Option(names = {"--ready", "-r"}, description = "Regular expression of the line that marks the daemon as ready, e.g. 'Done \\('.")
+    String ready;
+    @Option(names = {"--jvmArgs", "-v"}, description = "Compare against these jvm arguments instead of the configured ones.")
+    String jvmArgs;
+    @Option(names = {"--javaExec", "-E"}, description = "Compare against another java, a path to the executable or a version found by probeJava, e.g. 17.")
+    String java;
+    @Option(names = {"--timeout"}, converter = DurationConverter.class, description = "Give up on a start after this long, e.g. 90s or 5m. Defaults to 2m.")
+    Duration timeout = Duration.ofMinutes(2);
+    @Option(names = {"--output", "-o"}, description = "Also write every run to this file, as json when it ends with .json and csv otherwise.")
+    Path output;
+    // The variant the daemon was last started with
+    private String current = "baseline";
 
     @Override
     public void run() {
         warnPrivilegedAction();
         try {
-            if (IService.SERVICE.getServiceFileFor(name).isEmpty())
+            IService service = IService.service();
+            if (service.getServiceFileFor(name).isEmpty())
                 throw new IllegalArgumentException("Service '" + name + "' does not exist.");
-            IService.SERVICE.startService(name);
+            if (runs < 1 || warmup < 0)
+                throw new IllegalArgumentException("Runs must be at least 1 and warmup can't be negative.");
+            JavaInstallation variantJava = java == null ? null : findJava(java);
+            List<String> variants = variantJava != null || jvmArgs != null ? List.of("baseline", "variant") : List.of("baseline");
+            StartBenchmark benchmark = new StartBenchmark(name, ready == null ? null : Pattern.compile(ready), timeout);
+            boolean wasRunning = service.isServiceRunning(name);
+            // Ctrl-C mid run still takes the temporary drop-in away
+            Thread restore = new Thread(() -> restore(service, wasRunning));
+            Runtime.getRuntime().addShutdownHook(restore);
+            List<StartBenchmark.Sample> samples = new ArrayList<>();
+            Throwable failure = null;
+            boolean restored = true;
+            try {
+                for (int run = -warmup; run < runs; run++) {
+                    List<String> order = new ArrayList<>(variants);
+                    // Alternating which variant goes first cancels out drift between runs
+                    if (run % 2 != 0)
+                        Collections.reverse(order);
+                    for (String variant : order) {
+                        if (!variant.equals(current)) {
+                            if (service.isServiceRunning(name))
+                                Javactl.await(service.stopServiceAsync(name, timeout), timeout);
+                            if (variant.equals("variant"))
+                                service.overrideLaunch(name, variantJava, jvmArgs);
+                            else
+                                service.clearLaunchOverride(name);
+                            current = variant;
+                        }
+                        StartBenchmark.Sample sample = benchmark.measure(service, variant, run + 1);
+                        if (run < 0)
+                            continue;
+                        samples.add(sample);
+                        System.err.printf("%s run %d/%d: active %.1fms, first line %.1fms%s%n", variant, run + 1, runs,
+                                sample.getActive() / 1e3, sample.getFirstLine() / 1e3,
+                                sample.getReady() < 0 ? "" : String.format(", ready %.1fms", sample.getReady() / 1e3));
+                    }
+                }
+            } catch (Throwable e) {
+                failure = e;
+                throw e;
+            } finally {
+                Runtime.getRuntime().removeShutdownHook(restore);
+                try {
+                    restore(service, wasRunning);
+                } catch (RuntimeException e) {
+                    // Reported on its own so it can't hide why the benchmark stopped, or the results when it didn't
+                    restored = false;
+                    System.err.println(AUTO.string("@|red Unable to put '" + name + "' back as it was: " + e.getMessage() + "|@"));
+                    if (failure != null)
+                        failure.addSuppressed(e);
+                }
+            }
+            PrintWriter out = new PrintWriter(System.out);
+            StartBenchmark.summarize(out, samples, variants);
+            if (variants.size() > 1)
+                compare(out, samples);
+            if (output != null) {
+                try (PrintWriter file = new PrintWriter(Files.newBufferedWriter(output))) {
+                    if (output.toString().endsWith(".json"))
+                        StartBenchmark.writeJson(file, name, samples, variants);
+                    else
+                        StartBenchmark.writeCsv(file, samples);
+                }
+            }
+            if (!restored)
+                System.exit(1);
+        } catch (IOException e) {
+            System.err.println(AUTO.string("@|red " + e.getMessage() + "|@"));
+            System.exit(1);
         } catch (IllegalArgumentException e) {
             System.err.println(AUTO.string("@|red " + e.getMessage() + "|@"));
             System.exit(2);
         }
     }
+
+    // Median change of the variant over the baseline
+    private void compare(PrintWriter out, List<StartBenchmark.Sample> samples) {
+        for (int metric = 0; metric < StartBenchmark.METRICS.length; metric++) {
+            long[] baseline = StartBenchmark.values(samples, "baseline", metric);
+            long[] variant = StartBenchmark.values(samples, "variant", metric);
+            if (baseline.length == 0 || variant.length == 0)
+                continue;
+            long before = StartBenchmark.percentile(baseline, 50);
+            long after = StartBenchmark.percentile(variant, 50);
+            String change = String.format("%+.1f%%", (after - before) * 100.0 / Math.max(before, 1));
+            out.printf("%-11s p50 %.1fms -> %.1fms (%s)%n", StartBenchmark.METRICS[metric], before / 1e3, after / 1e3,
+                    AUTO.string(after <= before ? "@|green " + change + "|@" : "@|red " + change + "|@"));
+        }
+        out.flush();
+    }
+
+    // Back to the configured launch, and running only if it was before
+    private synchronized void restore(IService service, boolean wasRunning) {
+        service.clearLaunchOverride(name);
+        if (!wasRunning) {
+            service.stopService(name);
+        } else if (!current.equals("baseline")) {
+            service.restartService(name);
+        }
+        current = "baseline";
+    }
+
+    // A java executable, or the first installation found whose version starts with the given one
+    private static JavaInstallation findJava(String java) {
+        File exec = new File(java);
+        if (exec.isFile())
+            return JavaInstallation.probe(exec);
+        return JavaFinder.findJavaInstallations().stream()
+                .filter(install -> install.getVersion().equals(java) || install.getVersion().startsWith(java + ".")
+                        || install.getVersion().startsWith("1." + java + "."))
+                .findFirst()
+                .orElseThrow(() -> new IllegalArgumentException("No java installation matching '" + java + "' found, see javactl probeJava."));
+    }
 }
 
-@Command(name = "stop", description = "Stop a daemon.", mixinStandardHelpOptions = true)
-class CommandStop implements Runnable {
+@Command(name = "cds", description = "Rebuild the class data sharing archive of a daemon created with --cds through a training start.", mixinStandardHelpOptions = true)
+class CommandCds implements Runnable {
     @Parameters(paramLabel = "name", description = "The daemon name.")
     String name;
+    @Option(names = {"--ready", "-r"}, description = "End the training start once the daemon logs a line matching this regular expression, e.g. 'Done \\('. Classes loaded later aren't archived.")
+    String ready;
+    @Option(names = {"--duration", "-d"}, converter = DurationConverter.class, description = "Without --ready, end the training start after this long. Defaults to 30s.")
+    Duration duration = Duration.ofSeconds(30);
+    @Option(names = {"--timeout"}, converter = DurationConverter.class, description = "Give up on the training start after this long. Defaults to 5m.")
+    Duration timeout = Duration.ofMinutes(5);
 
     @Override
+    @SneakyThrows(InterruptedException.class)
     public void run() {
         warnPrivilegedAction();
         try {
-            if (IService.SERVICE.getServiceFileFor(name).isEmpty())
-                throw new IllegalArgumentException("Service '" + name + "' does not exist.");
-            IService.SERVICE.stopService(name);
+            IService service = IService.service();
+            DaemonInfo info = service.getDaemonInfo(name).orElseThrow(() -> new IllegalArgumentException("Service '" + name + "' does not exist."));
+            if (!info.isCds())
+                throw new IllegalArgumentException("Daemon '" + name + "' wasn't created with --cds.");
+            boolean wasRunning = service.isServiceRunning(name);
+            if (wasRunning)
+                Javactl.await(service.stopServiceAsync(name, timeout), timeout);
+            Path dir = SystemdPaths.stateDir().resolve(name);
+            Path archive = dir.resolve("app.jsa");
+            // Without a stamp the next start is a training run
+            Files.deleteIfExists(dir.resolve("stamp"));
+            Files.deleteIfExists(archive);
+            long start = System.nanoTime();
+            if (ready != null) {
+                ConsoleExec exec = new ConsoleExec(name, Pattern.compile(ready), timeout);
+                if (!exec.watch(() -> Javactl.await(service.startServiceAsync(name, timeout), timeout)))
+                    throw new IllegalArgumentException("No line matching " + ready + " within " + timeout.toSeconds() + "s, no archive was written.");
+            } else {
+                Javactl.await(service.startServiceAsync(name, timeout), timeout);
+                Thread.sleep(duration.toMillis());
+            }
+            // The jvm dumps the archive on its way out
+            Javactl.await(service.stopServiceAsync(name, timeout), timeout);
+            if (!Files.exists(dir.resolve("stamp")) || !Files.exists(archive))
+                throw new IllegalArgumentException("The daemon didn't write an archive, see javactl logs " + name);
+            System.out.printf("Archived the classes of a %.1fs training start in %s (%.1f MB)%n", (System.nanoTime() - start) / 1e9,
+                    archive, Files.size(archive) / (1024.0 * 1024.0));
+            if (wasRunning) {
+                Javactl.await(service.startServiceAsync(name, timeout), timeout);
+                System.out.println("Started " + name + " again from the new archive.");
+            }
+        } catch (IOException e) {
+            System.err.println(AUTO.string("@|red Unable to reset the archive, are you running as root? err:" + e.getMessage() + "|@"));
+            System.exit(2);
         } catch (IllegalArgumentException e) {
             System.err.println(AUTO.string("@|red " + e.getMessage() + "|@"));
             System.exit(2);
@@ -197,8 +658,8 @@ class CommandStop implements Runnable {
     }
 }
 
-@Command(name = "restart", description = "(Re)start a daemon.", mixinStandardHelpOptions = true)
-class CommandRestart implements Runnable{
+@Command(name = "delete", aliases = "uninstall", description = "Stop and delete a daemon configuration.", mixinStandardHelpOptions = true)
+class CommandDelete implements Runnable {
     @Parameters(paramLabel = "name", description = "The daemon name.")
     String name;
 
@@ -206,9 +667,9 @@ class CommandRestart implements Runnable{
     public void run() {
         warnPrivilegedAction();
         try {
-            if (IService.SERVICE.getServiceFileFor(name).isEmpty())
+            if (IService.service().getServiceFileFor(name).isEmpty())
                 throw new IllegalArgumentException("Service '" + name + "' does not exist.");
-            IService.SERVICE.restartService(name);
+            IService.service().deleteService(name);
         } catch (IllegalArgumentException e) {
             System.err.println(AUTO.string("@|red " + e.getMessage() + "|@"));
             System.exit(2);
@@ -216,21 +677,302 @@ class CommandRestart implements Runnable{
     }
 }
 
-@Command(name = "delete", aliases = "uninstall", description = "Stop and delete a daemon configuration.", mixinStandardHelpOptions = true)
-class CommandDelete implements Runnable {
+@Command(name = "agent", description = "Runs javactld, a resident agent that keeps javactl warm and serves other javactl invocations over a local socket.", mixinStandardHelpOptions = true)
+class CommandAgent implements Runnable {
+    @Option(names = {"--socket", "-s"}, description = "The socket to listen on, defaults to $JAVACTLD_SOCKET or /run/javactl/javactld.sock.")
+    Path socket;
+    @Inject
+    Javactld agent;
+
+    @Override
+    public void run() {
+        checkEnvironment();
+        try {
+            agent.start(socket == null ? JavactldClient.getSocketPath() : socket);
+            agent.serve();
+        } catch (IOException e) {
+            System.err.println(AUTO.string("@|red Unable to start javactld: " + e.getMessage() + "|@"));
+            System.exit(2);
+        }
+    }
+}
+
+@Command(name = "stats", description = "Show heap, gc, safepoint, class loading and thread statistics of a running daemon.", mixinStandardHelpOptions = true)
+class CommandStats implements Runnable {
     @Parameters(paramLabel = "name", description = "The daemon name.")
     String name;
 
     @Override
     public void run() {
-        warnPrivilegedAction();
+        checkEnvironment();
         try {
-            if (IService.SERVICE.getServiceFileFor(name).isEmpty())
+            if (IService.service().getServiceFileFor(name).isEmpty())
                 throw new IllegalArgumentException("Service '" + name + "' does not exist.");
-            IService.SERVICE.deleteService(name);
+            ServiceStatus status = IService.service().getServicesStatus(Collections.singletonList(name)).get(name);
+            if (status.getMainPid() <= 0)
+                throw new IllegalArgumentException("Service is not running!");
+            Path file = PerfData.locate(status.getMainPid())
+                    .orElseThrow(() -> new IllegalArgumentException("No hsperfdata found for pid " + status.getMainPid() + ", is the daemon running with -XX:-UsePerfData?"));
+            try (PerfData data = new PerfData(file)) {
+                print(new PrintWriter(System.out, true), status.getMainPid(), new JvmStats(data));
+            } catch (IOException e) {
+                throw new IllegalArgumentException("Unable to read " + file + ", try running as root.");
+            }
         } catch (IllegalArgumentException e) {
             System.err.println(AUTO.string("@|red " + e.getMessage() + "|@"));
             System.exit(2);
         }
     }
-}
\ No newline at end of file
+
+    static void print(PrintWriter out, long pid, JvmStats stats) {
+        out.printf("%-12s %d%n", "Pid", pid);
+        out.printf("%-12s %s%n", "Uptime", CommandList.formatDuration(stats.getUptimeDuration()));
+        out.printf("%-12s %s used, %s committed, %s max%n", "Heap", CommandList.formatBytes(stats.getHeapUsed()),
+                CommandList.formatBytes(stats.getHeapCommitted()), CommandList.formatBytes(stats.getHeapMax()));
+        out.printf("%-12s %s%n", "Metaspace", stats.getMetaspaceUsed() >= 0 ? CommandList.formatBytes(stats.getMetaspaceUsed()) : "-");
+        out.printf("%-12s %d young (%.3fs), %d full (%.3fs), last cause: %s%n", "GC", stats.getYoungGcCount(),
+                stats.getYoungGcTime() / 1e9, stats.getOldGcCount(), stats.getOldGcTime() / 1e9,
+                stats.getLastGcCause().isEmpty() ? "-" : stats.getLastGcCause());
+        out.printf("%-12s %d (%.3fs)%n", "Safepoints", stats.getSafepoints(), stats.getSafepointTime() / 1e9);
+        out.printf("%-12s %d loaded, %d unloaded%n", "Classes", stats.getLoadedClasses(), stats.getUnloadedClasses());
+        out.printf("%-12s %d live, %d daemon, %d peak%n", "Threads", stats.getLiveThreads(), stats.getDaemonThreads(), stats.getPeakThreads());
+        out.flush();
+    }
+}
+
+@Command(name = "top", description = "Live jvm statistics of all daemons, read from their hsperfdata without attaching to them.", mixinStandardHelpOptions = true)
+class CommandTop implements Runnable {
+    @Option(names = {"--interval", "-i"}, converter = DurationConverter.class, description = "Refresh interval, e.g. 250ms or 2s, at least 1ms. Defaults to 500ms.")
+    Duration interval = Duration.ofMillis(500);
+
+    @Override
+    public void run() {
+        checkEnvironment();
+        try {
+            new JvmTop(interval).start();
+            System.exit(0);
+        } catch (IllegalArgumentException e) {
+            System.err.println(AUTO.string("@|red " + e.getMessage() + "|@"));
+            System.exit(2);
+        }
+    }
+}
+
+@Command(name = "exporter", description = "Serves cpu, memory, io and pressure metrics of all daemons in the OpenMetrics format.", mixinStandardHelpOptions = true)
+class CommandExporter implements Runnable {
+    @Option(names = {"--port", "-p"}, description = "The port to listen on, defaults to 9464.")
+    int port = 9464;
+    @Option(names = {"--bind", "-b"}, description = "The address to listen on, defaults to 127.0.0.1.")
+    String bind = "127.0.0.1";
+    @Inject
+    MetricsExporter exporter;
+
+    @Override
+    public void run() {
+        checkEnvironment();
+        try {
+            HttpServer server = exporter.serve(new InetSocketAddress(bind, port));
+            System.out.println("Serving metrics on http://" + bind + ":" + server.getAddress().getPort() + "/metrics");
+            Thread.currentThread().join();
+        } catch (IOException e) {
+            System.err.println(AUTO.string("@|red Unable to listen on " + bind + ":" + port + ": " + e.getMessage() + "|@"));
+            System.exit(2);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
+
+@Command(name = "logs", description = "Print or extract a daemon's output from the journal.", mixinStandardHelpOptions = true)
+class CommandLogs implements Runnable {
+    @Parameters(paramLabel = "name", description = "The daemon name.")
+    String name;
+    @Option(names = {"--since", "-S"}, description = "Only output logged on or after this time, e.g. \"2021-06-01 12:00\", \"1h ago\" or today.")
+    String since;
+    @Option(names = {"--until", "-U"}, description = "Only output logged on or before this time.")
+    String until;
+    @Option(names = {"--priority", "-p"}, description = "Only output up to this syslog priority or within a range, e.g. warning or 0..4.")
+    String priority;
+    @Option(names = {"--lines", "-n"}, description = "Only the last lines entries.")
+    int lines;
+    @Option(names = {"--follow", "-f"}, description = "Keep printing new output as it's logged.")
+    boolean follow;
+    @Option(names = {"--grep", "-g"}, description = "Only messages matching this regular expression.")
+    String grep;
+    @Option(names = {"--level", "-l"}, description = "Only messages logged by the daemon at this java log level or above, e.g. WARN or SEVERE.")
+    String level;
+    @Option(names = {"--json", "-j"}, description = "Write the full journal entries as newline delimited json.")
+    boolean json;
+    @Option(names = {"--output", "-o"}, description = "Write to this file instead of stdout, compressed when it ends with .gz.")
+    Path output;
+    @Option(names = {"--gzip", "-z"}, description = "Compress the output with gzip.")
+    boolean gzip;
+
+    @Override
+    public void run() {
+        checkEnvironment();
+        try {
+            if (IService.service().getServiceFileFor(name).isEmpty())
+                throw new IllegalArgumentException("Service '" + name + "' does not exist.");
+            LogStream stream = new LogStream(name, grep == null ? null : Pattern.compile(grep),
+                    level == null ? null : JavaLogLevel.of(level), json);
+            int exitCode;
+            try (OutputStream out = open()) {
+                exitCode = stream.copy(SystemdJournal.query(name, since, until, priority, lines, follow), out);
+            } catch (IOException e) {
+                // Whatever stdout was piped into went away
+                if (output == null)
+                    System.exit(0);
+                throw new IllegalArgumentException("Unable to write " + output + ": " + e.getMessage());
+            }
+            if (exitCode != 0)
+                throw new IllegalArgumentException("journalctl returned an error! Are you running with proper permissions?");
+            if (output != null)
+                System.err.printf("Wrote %d of %d entries to %s%n", stream.getWritten(), stream.getRead(), output);
+        } catch (IllegalArgumentException e) {
+            System.err.println(AUTO.string("@|red " + e.getMessage() + "|@"));
+            System.exit(2);
+        }
+    }
+
+    private OutputStream open() throws IOException {
+        OutputStream out = new BufferedOutputStream(output == null ? new FileOutputStream(FileDescriptor.out)
+                : Files.newOutputStream(output), 64 * 1024);
+        if (gzip || (output != null && output.getFileName().toString().endsWith(".gz")))
+            out = new GZIPOutputStream(out, 64 * 1024, true);
+        return out;
+    }
+}
+
+@Command(name = "send", description = "Send input to a running daemon without a terminal, from a file, stdin or the command line.", mixinStandardHelpOptions = true)
+class CommandSend implements Runnable {
+    @Parameters(index = "0", paramLabel = "name", description = "The daemon name.")
+    String name;
+    @Parameters(index = "1..*", paramLabel = "line", description = "Lines to send, stdin is read when there are none.")
+    List<String> lines;
+    @Option(names = {"--file", "-f"}, description = "Send the contents of this file, - reads stdin. Files are copied by the kernel in arbitrary pieces, input typed in a connect session meanwhile may land mid line.")
+    String file;
+    @Option(names = {"--quiet", "-q"}, description = "Don't report the throughput.")
+    boolean quiet;
+
+    @Override
+    public void run() {
+        checkEnvironment();
+        try {
+            if (!IService.service().isServiceRunning(name))
+                throw new IllegalArgumentException("Service is not running!");
+            File fifo = IService.service().getSocketFileFor(name)
+                    .orElseThrow(() -> new IllegalArgumentException("Unable to find service socket!"));
+            long start = System.nanoTime();
+            try (DaemonConsole console = new DaemonConsole(fifo)) {
+                if (lines != null && !lines.isEmpty()) {
+                    for (String line : lines)
+                        console.sendLine(line);
+                } else if (file != null && !file.equals("-")) {
+                    Path path = Path.of(file);
+                    if (!Files.isRegularFile(path))
+                        throw new IllegalArgumentException("The specified file does not exist!");
+                    console.send(path);
+                } else {
+                    console.send(Channels.newChannel(System.in));
+                }
+                double seconds = Math.max(System.nanoTime() - start, 1) / 1e9;
+                if (!quiet)
+                    System.err.printf("Sent %d lines (%s) in %.3fs, %.0f lines/s, %s/s%n", console.getLines(),
+                            CommandList.formatBytes(console.getBytes()), seconds, console.getLines() / seconds,
+                            CommandList.formatBytes((long) (console.getBytes() / seconds)));
+            } catch (IOException e) {
+                throw new IllegalArgumentException("Unable to write to " + fifo + ": " + e.getMessage());
+            }
+        } catch (IllegalArgumentException e) {
+            System.err.println(AUTO.string("@|red " + e.getMessage() + "|@"));
+            System.exit(2);
+        }
+    }
+}
+
+@Command(name = "exec", description = "Send a command to a running daemon and print its response.", mixinStandardHelpOptions = true)
+class CommandExec implements Runnable {
+    @Parameters(index = "0", paramLabel = "name", description = "The daemon name.")
+    String name;
+    @Parameters(index = "1", paramLabel = "command", description = "The console command.")
+    String command;
+    @Option(names = {"--expect", "-e"}, description = "Wait for output matching this regular expression, defaults to the first line logged.")
+    String expect;
+    @Option(names = {"--timeout", "-t"}, converter = DurationConverter.class, description = "Give up waiting after this long, e.g. 500ms or 30s. Defaults to 10s.")
+    Duration timeout = Duration.ofSeconds(10);
+
+    @Override
+    public void run() {
+        checkEnvironment();
+        try {
+            if (!IService.service().isServiceRunning(name))
+                throw new IllegalArgumentException("Service is not running!");
+            File fifo = IService.service().getSocketFileFor(name)
+                    .orElseThrow(() -> new IllegalArgumentException("Unable to find service socket!"));
+            ConsoleExec exec = new ConsoleExec(name, expect == null ? null : Pattern.compile(expect), timeout);
+            boolean answered;
+            try {
+                answered = exec.run(fifo, command);
+            } catch (IOException e) {
+                throw new IllegalArgumentException("Unable to write to " + fifo + ": " + e.getMessage());
+            }
+            exec.getOutput().forEach(System.out::println);
+            if (!answered)
+                throw new IllegalArgumentException("No response" + (expect != null ? " matching " + expect : "")
+                        + " within " + timeout.toMillis() + "ms.");
+            System.err.printf("Response after %.2fms%n", exec.getLatency() / 1e6);
+        } catch (IllegalArgumentException e) {
+            System.err.println(AUTO.string("@|red " + e.getMessage() + "|@"));
+            System.exit(2);
+        }
+    }
+}
+
+@Command(name = "broadcast", description = "Send the same console command to many running daemons at once.", mixinStandardHelpOptions = true)
+class CommandBroadcast implements Runnable {
+    @Parameters(index = "0", paramLabel = "command", description = "The console command.")
+    String command;
+    @Parameters(index = "1..*", paramLabel = "name", description = "Daemons to send it to, on top of the ones selected by options.")
+    List<String> names = new ArrayList<>();
+    @Mixin
+    DaemonSelection selection = new DaemonSelection();
+    @Option(names = {"--parallel", "-P"}, description = "How many daemons to send to at the same time, defaults to 16.")
+    int parallel = 16;
+    @Option(names = {"--timeout"}, converter = DurationConverter.class, description = "Give up on a daemon after this long, e.g. 500ms or 30s. Defaults to 10s.")
+    Duration timeout = Duration.ofSeconds(10);
+    @Option(names = {"--expect", "-e"}, description = "Only count a daemon as done once it logs output matching this regular expression.")
+    String expect;
+
+    @Override
+    public void run() {
+        checkEnvironment();
+        try {
+            IService service = IService.service();
+            List<String> selected = selection.resolve(service, names);
+            Map<String, ServiceStatus> status = service.getServicesStatus(selected);
+            Pattern pattern = expect == null ? null : Pattern.compile(expect);
+            long start = System.nanoTime();
+            List<BulkRunner.Result> results = new BulkRunner(parallel, timeout).run(selected, name -> {
+                if (status.get(name).getMainPid() <= 0)
+                    throw new IllegalArgumentException("not running");
+                File fifo = service.getSocketFileFor(name).orElseThrow(() -> new IllegalArgumentException("no socket"));
+                if (pattern == null) {
+                    try (DaemonConsole console = new DaemonConsole(fifo)) {
+                        console.sendLine(command);
+                    }
+                    return null;
+                }
+                ConsoleExec exec = new ConsoleExec(name, pattern, timeout);
+                if (!exec.run(fifo, command))
+                    throw new IllegalArgumentException("no output matching " + expect);
+                return exec.getOutput().get(exec.getOutput().size() - 1);
+            });
+            if (!BulkRunner.print(new PrintWriter(System.out), results, System.nanoTime() - start))
+                System.exit(1);
+        } catch (IllegalArgumentException e) {
+            System.err.println(AUTO.string("@|red " + e.getMessage() + "|@"));
+            System.exit(2);
+        }
+    }
+}
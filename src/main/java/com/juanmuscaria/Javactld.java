@@ -0,0 +1,184 @@
+package com.juanmuscaria;
+
+import com.juanmuscaria.api.IService;
+import com.juanmuscaria.api.jvm.JavaFinder;
+import com.juanmuscaria.api.jvm.JavaProbeCache;
+import com.sun.security.auth.module.UnixSystem;
+import jakarta.inject.Singleton;
+import jnr.unixsocket.*;
+import picocli.CommandLine;
+
+import javax.annotation.PreDestroy;
+import java.io.*;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Resident agent serving javactl invocations over a unix socket, see JavactldProtocol.
+// It keeps the service backend and the probe cache warm, so forwarded commands skip jvm, context and probe startup.
+@Singleton
+public class Javactld implements Closeable {
+    private final long uid = new UnixSystem().getUid();
+    private final ExecutorService workers;
+    private UnixServerSocketChannel server;
+    private Path socket;
+
+    public Javactld() {
+        AtomicInteger count = new AtomicInteger();
+        workers = Executors.newFixedThreadPool(8, runnable -> {
+            Thread thread = new Thread(runnable, "javactld-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public void start(Path socket) throws IOException {
+        Files.createDirectories(socket.toAbsolutePath().getParent());
+        Files.deleteIfExists(socket); // Left behind by a previous agent
+        server = UnixServerSocketChannel.open();
+        server.socket().bind(new UnixSocketAddress(socket.toFile()));
+        // Anyone may list, lifecycle operations are checked against the peer credentials
+        Files.setPosixFilePermissions(socket, PosixFilePermissions.fromString("rw-rw-rw-"));
+        this.socket = socket;
+        // Warm up everything a command would otherwise initialize on its own
+        IService.service().keepWarm();
+        IService.service().getInstalledServices();
+        JavaFinder.findJavaInstallations();
+        System.out.println("javactld listening on " + socket);
+    }
+
+    public void serve() {
+        while (server.isOpen()) {
+            try {
+                UnixSocketChannel client = server.accept();
+                if (client != null)
+                    workers.submit(() -> handle(client));
+            } catch (IOException e) {
+                if (server.isOpen())
+                    e.printStackTrace();
+            }
+        }
+    }
+
+    private void handle(UnixSocketChannel client) {
+        try (client) {
+            BufferedReader in = new BufferedReader(new InputStreamReader(Channels.newInputStream(client), StandardCharsets.UTF_8));
+            Writer response = new BufferedWriter(new OutputStreamWriter(Channels.newOutputStream(client), StandardCharsets.UTF_8));
+            String request = in.readLine();
+            if (request == null)
+                return;
+            Credentials credentials = client.getOption(UnixSocketOptions.SO_PEERCRED);
+            StringWriter out = new StringWriter();
+            StringWriter err = new StringWriter();
+            Integer code;
+            try (PrintWriter outWriter = new PrintWriter(out); PrintWriter errWriter = new PrintWriter(err)) {
+                code = dispatch(request.split("\0", -1), credentials.getUid(), outWriter, errWriter, () -> accept(response));
+            } catch (RuntimeException e) {
+                // The client has been told the command runs here, it must get an exit code whatever happened
+                e.printStackTrace();
+                err.write("javactld: " + e + System.lineSeparator());
+                code = 1;
+            }
+            if (code == null) {
+                response.write(JavactldProtocol.UNSUPPORTED + "\n");
+            } else {
+                writeLines(response, JavactldProtocol.STDOUT, out.toString());
+                writeLines(response, JavactldProtocol.STDERR, err.toString());
+                response.write(JavactldProtocol.EXIT + code + "\n");
+            }
+            response.flush();
+        } catch (IOException | RuntimeException e) {
+            e.printStackTrace();
+        }
+    }
+
+    private static void accept(Writer response) {
+        try {
+            response.write(JavactldProtocol.ACCEPTED + "\n");
+            response.flush();
+        } catch (IOException e) {
+            // Client gone, the command must not run
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static void writeLines(Writer response, String prefix, String text) throws IOException {
+        if (text.isEmpty())
+            return;
+        // Every line printed by a command ends with a line break, don't send an extra empty one
+        for (String line : text.split("\\R")) {
+            response.write(prefix);
+            response.write(line);
+            response.write('\n');
+        }
+    }
+
+    // Returns the exit code, or null when the client should run the command itself. accepted runs before anything that
+    // has effects, a null can't be returned after it.
+    Integer dispatch(String[] args, long peerUid, PrintWriter out, PrintWriter err, Runnable accepted) {
+        String[] rest = Arrays.copyOfRange(args, 1, args.length);
+        try {
+            switch (args[0]) {
+                case "list":
+                    if (rest.length != 0)
+                        return null;
+                    accepted.run();
+                    CommandList.print(out, IService.service().getInstalledServicesStatus());
+                    return 0;
+                case "probeJava":
+                    if (rest.length > 1 || (rest.length == 1 && !rest[0].equals("--refresh") && !rest[0].equals("-r")))
+                        return null;
+                    // Installations are found under the user's home and cached there, another user gets their own
+                    if (peerUid != uid)
+                        return null;
+                    accepted.run();
+                    JavaFinder.findJavaInstallations(rest.length == 1).forEach(out::println);
+                    out.println(JavaProbeCache.stats());
+                    return 0;
+                case "start":
+                    return lifecycle(new CommandStart(), rest, peerUid, out, err, accepted);
+                case "stop":
+                    return lifecycle(new CommandStop(), rest, peerUid, out, err, accepted);
+                case "restart":
+                    return lifecycle(new CommandRestart(), rest, peerUid, out, err, accepted);
+                default:
+                    return null;
+            }
+        } catch (IllegalArgumentException e) {
+            err.println(e.getMessage());
+            return 2;
+        }
+    }
+
+    private Integer lifecycle(LifecycleCommand command, String[] args, long peerUid, PrintWriter out, PrintWriter err,
+                              Runnable accepted) {
+        try {
+            new CommandLine(command).parseArgs(args);
+        } catch (CommandLine.ParameterException e) {
+            return null; // Let picocli report it properly in the client
+        }
+        // The agent is usually root, don't let it act on behalf of users that couldn't do it themselves
+        if (peerUid != 0 && peerUid != uid) {
+            err.println("Permission denied, this action requires root privileges.");
+            return 2;
+        }
+        accepted.run();
+        return command.execute(out);
+    }
+
+    @PreDestroy
+    @Override
+    public void close() throws IOException {
+        if (server != null)
+            server.close();
+        if (socket != null)
+            Files.deleteIfExists(socket);
+        workers.shutdownNow();
+    }
+}
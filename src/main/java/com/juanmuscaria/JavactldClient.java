@@ -0,0 +1,70 @@
+package com.juanmuscaria;
+
+import jnr.unixsocket.UnixSocketAddress;
+import jnr.unixsocket.UnixSocketChannel;
+
+import java.io.*;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.OptionalInt;
+import java.util.Set;
+
+// Forwards javactl invocations to a running javactld.
+// Any problem talking to the agent results in an empty answer, and the command runs in process as usual.
+class JavactldClient {
+    // Commands javactld knows how to run, everything else (interactive or creating files for the caller) runs in process
+    static final Set<String> FORWARDED = Set.of("list", "start", "stop", "restart", "probeJava");
+    private static final Set<String> LOCAL_FLAGS = Set.of("-h", "--help", "-V", "--version");
+
+    private JavactldClient() {
+        throw new IllegalStateException("Sealed class");
+    }
+
+    static Path getSocketPath() {
+        String socket = System.getenv("JAVACTLD_SOCKET");
+        return socket == null || socket.isBlank() ? Paths.get("/run/javactl/javactld.sock") : Paths.get(socket);
+    }
+
+    static OptionalInt forward(String[] args) {
+        if (args.length == 0 || !FORWARDED.contains(args[0]) || System.getenv("JAVACTL_NO_AGENT") != null)
+            return OptionalInt.empty();
+        for (String arg : args) {
+            if (LOCAL_FLAGS.contains(arg) || arg.indexOf('\n') >= 0 || arg.indexOf('\0') >= 0)
+                return OptionalInt.empty();
+        }
+        Path socket = getSocketPath();
+        if (!Files.exists(socket))
+            return OptionalInt.empty();
+        boolean accepted = false;
+        try (UnixSocketChannel channel = UnixSocketChannel.open(new UnixSocketAddress(socket.toFile()))) {
+            Writer request = new OutputStreamWriter(Channels.newOutputStream(channel), StandardCharsets.UTF_8);
+            request.write(String.join("\0", args));
+            request.write('\n');
+            request.flush();
+            BufferedReader response = new BufferedReader(new InputStreamReader(Channels.newInputStream(channel), StandardCharsets.UTF_8));
+            String line;
+            while ((line = response.readLine()) != null) {
+                if (line.equals(JavactldProtocol.UNSUPPORTED) && !accepted)
+                    return OptionalInt.empty();
+                if (line.equals(JavactldProtocol.ACCEPTED))
+                    accepted = true;
+                if (line.startsWith(JavactldProtocol.EXIT))
+                    return OptionalInt.of(Integer.parseInt(line.substring(JavactldProtocol.EXIT.length())));
+                if (line.startsWith(JavactldProtocol.STDOUT))
+                    System.out.println(line.substring(JavactldProtocol.STDOUT.length()));
+                else if (line.startsWith(JavactldProtocol.STDERR))
+                    System.err.println(line.substring(JavactldProtocol.STDERR.length()));
+            }
+        } catch (IOException | NumberFormatException ignored) {
+            // Agent gone or not talking our protocol, fall through
+        }
+        // The agent died after taking the command, running again in process could repeat a start/stop
+        if (!accepted)
+            return OptionalInt.empty();
+        System.err.println("javactld stopped answering, the command may have partly run.");
+        return OptionalInt.of(1);
+    }
+}
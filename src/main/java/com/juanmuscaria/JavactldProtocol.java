@@ -0,0 +1,17 @@
+package com.juanmuscaria;
+
+// javactld speaks a tiny line based protocol over its unix socket.
+// The client sends the command arguments separated by NUL in a single line, the agent answers with
+// stdout/stderr lines and a final exit code line, or a single UNSUPPORTED line when the client should run it itself.
+// ACCEPTED comes first once the agent has started running the command, after it the client never runs it again.
+final class JavactldProtocol {
+    static final String STDOUT = "1 ";
+    static final String STDERR = "2 ";
+    static final String EXIT = "= ";
+    static final String UNSUPPORTED = "?";
+    static final String ACCEPTED = "!";
+
+    private JavactldProtocol() {
+        throw new IllegalStateException("Sealed class");
+    }
+}
@@ -0,0 +1,180 @@
+package com.juanmuscaria;
+
+import com.juanmuscaria.api.IService;
+import com.juanmuscaria.api.ServiceStatus;
+import com.juanmuscaria.api.jvm.JvmStats;
+import com.juanmuscaria.api.jvm.PerfData;
+import lombok.SneakyThrows;
+import org.jline.terminal.Attributes;
+import org.jline.terminal.Size;
+import org.jline.terminal.Terminal;
+import org.jline.terminal.TerminalBuilder;
+import org.jline.utils.*;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.*;
+
+import static com.juanmuscaria.CommandList.formatBytes;
+import static com.juanmuscaria.CommandList.formatDuration;
+
+// Live dashboard of every daemon's jvm counters. Counters come from the mapped hsperfdata files and are refreshed
+// every interval without spawning anything, the service manager is only asked for main pids every few seconds.
+class JvmTop implements Closeable {
+    private static final Duration STATUS_INTERVAL = Duration.ofSeconds(5);
+    private final Duration interval;
+    private final Map<String, Daemon> daemons = new TreeMap<>();
+    private long nextStatus;
+
+    JvmTop(Duration interval) {
+        // Reading a key with a timeout of 0 or less blocks until one is pressed, nothing would refresh
+        if (interval.toMillis() < 1)
+            throw new IllegalArgumentException("The refresh interval must be at least 1ms.");
+        this.interval = interval;
+    }
+
+    @SneakyThrows
+    public void start() {
+        try (Terminal terminal = TerminalBuilder.builder().build()) {
+            if (terminal.getWidth() == 0 || terminal.getHeight() == 0)
+                terminal.setSize(new Size(120, 40));
+            Attributes attributes = terminal.enterRawMode();
+            terminal.puts(InfoCmp.Capability.enter_ca_mode);
+            terminal.puts(InfoCmp.Capability.cursor_invisible);
+            Display display = new Display(terminal, true);
+            try {
+                while (true) {
+                    refresh();
+                    display.resize(terminal.getHeight(), terminal.getWidth());
+                    List<AttributedString> lines = render(terminal.getHeight());
+                    display.update(lines, 0);
+                    int key = terminal.reader().read(interval.toMillis());
+                    if (key == 'q' || key == 'Q' || key == 3 || key == NonBlockingReader.EOF)
+                        break;
+                }
+            } finally {
+                terminal.puts(InfoCmp.Capability.cursor_visible);
+                terminal.puts(InfoCmp.Capability.exit_ca_mode);
+                terminal.setAttributes(attributes);
+                terminal.flush();
+            }
+        } finally {
+            close();
+        }
+    }
+
+    void refresh() {
+        if (System.nanoTime() - nextStatus >= 0) {
+            nextStatus = System.nanoTime() + STATUS_INTERVAL.toNanos();
+            updatePids(IService.service().getInstalledServicesStatus());
+        }
+        for (Daemon daemon : daemons.values())
+            daemon.sample();
+    }
+
+    void updatePids(Map<String, ServiceStatus> status) {
+        daemons.keySet().removeIf(name -> {
+            if (status.containsKey(name))
+                return false;
+            daemons.get(name).detach();
+            return true;
+        });
+        status.forEach((name, service) -> daemons.computeIfAbsent(name, Daemon::new).attach(service.getMainPid()));
+    }
+
+    List<AttributedString> render(int height) {
+        List<AttributedString> lines = new ArrayList<>();
+        lines.add(new AttributedString(String.format("javactl top - %d daemons, refreshing every %dms, q to quit",
+                daemons.size(), interval.toMillis()), AttributedStyle.BOLD));
+        lines.add(new AttributedString(String.format("%-20s %8s %17s %8s %7s %9s %7s %9s %6s %8s %8s %10s",
+                "NAME", "PID", "HEAP", "META", "YGC", "YGCT", "FGC", "FGCT", "GC%", "THREADS", "CLASSES", "UPTIME"),
+                AttributedStyle.INVERSE));
+        for (Daemon daemon : daemons.values()) {
+            if (lines.size() >= height - 1)
+                break;
+            lines.add(daemon.render());
+        }
+        return lines;
+    }
+
+    @Override
+    public void close() {
+        daemons.values().forEach(Daemon::detach);
+    }
+
+    private static class Daemon {
+        final String name;
+        long pid;
+        PerfData data;
+        String problem;
+        JvmStats current;
+        JvmStats previous;
+
+        Daemon(String name) {
+            this.name = name;
+        }
+
+        void attach(long mainPid) {
+            // A missing or unreadable file is tried again on every status refresh, the poll may land between the
+            // fork and the jvm creating it
+            if (mainPid == pid && data != null && !data.isStale())
+                return;
+            detach();
+            pid = mainPid;
+            if (pid <= 0) {
+                problem = "not running";
+                return;
+            }
+            Optional<Path> file = PerfData.locate(pid);
+            if (file.isEmpty()) {
+                problem = "no hsperfdata (-XX:-UsePerfData?)";
+                return;
+            }
+            try {
+                data = new PerfData(file.get());
+                problem = null;
+            } catch (IOException e) {
+                problem = "unreadable hsperfdata, try running as root";
+            }
+        }
+
+        void sample() {
+            if (data == null || !data.isAccessible())
+                return;
+            previous = current;
+            current = new JvmStats(data);
+        }
+
+        void detach() {
+            if (data != null) {
+                try {
+                    data.close();
+                } catch (IOException ignored) {
+                    // Nothing left to release
+                }
+            }
+            data = null;
+            current = previous = null;
+            pid = 0;
+        }
+
+        AttributedString render() {
+            if (current == null)
+                return new AttributedString(String.format("%-20s %8s %s", name, pid > 0 ? pid : "-",
+                        problem == null ? "starting" : problem), AttributedStyle.DEFAULT.faint());
+            JvmStats stats = current;
+            double gcLoad = previous == null ? 0 : stats.gcLoadSince(previous);
+            String line = String.format("%-20s %8d %17s %8s %7d %8.2fs %7d %8.2fs %5.1f%% %8d %8d %10s",
+                    name, pid, formatBytes(stats.getHeapUsed()) + " / " + formatBytes(stats.getHeapMax()),
+                    stats.getMetaspaceUsed() >= 0 ? formatBytes(stats.getMetaspaceUsed()) : "-",
+                    stats.getYoungGcCount(), stats.getYoungGcTime() / 1e9, stats.getOldGcCount(), stats.getOldGcTime() / 1e9,
+                    gcLoad * 100, stats.getLiveThreads(), stats.getLoadedClasses(), formatDuration(stats.getUptimeDuration()));
+            // Highlight daemons busy collecting
+            if (gcLoad > 0.1)
+                return new AttributedString(line, AttributedStyle.DEFAULT.foreground(AttributedStyle.RED));
+            return new AttributedString(line);
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package com.juanmuscaria;
+
+import java.util.*;
+
+// Groups daemons into levels that can be started in parallel, every daemon comes after the ones it was created
+// --after. Daemons outside the given set are assumed to be taken care of already and ignored.
+class LaunchOrder {
+
+    private LaunchOrder() {
+        throw new IllegalStateException("Sealed class");
+    }
+
+    // after maps each daemon to the daemons it has to start after
+    static List<List<String>> levels(Map<String, List<String>> after) {
+        Map<String, Integer> pending = new HashMap<>();
+        Map<String, List<String>> dependents = new HashMap<>();
+        for (Map.Entry<String, List<String>> entry : after.entrySet()) {
+            int count = 0;
+            for (String dependency : new LinkedHashSet<>(entry.getValue())) {
+                if (!after.containsKey(dependency) || dependency.equals(entry.getKey()))
+                    continue;
+                dependents.computeIfAbsent(dependency, key -> new ArrayList<>()).add(entry.getKey());
+                count++;
+            }
+            pending.put(entry.getKey(), count);
+        }
+        List<List<String>> levels = new ArrayList<>();
+        List<String> level = new ArrayList<>();
+        for (Map.Entry<String, Integer> entry : pending.entrySet()) {
+            if (entry.getValue() == 0)
+                level.add(entry.getKey());
+        }
+        int placed = 0;
+        while (!level.isEmpty()) {
+            Collections.sort(level);
+            levels.add(level);
+            placed += level.size();
+            List<String> next = new ArrayList<>();
+            for (String name : level) {
+                for (String dependent : dependents.getOrDefault(name, Collections.emptyList())) {
+                    if (pending.merge(dependent, -1, Integer::sum) == 0)
+                        next.add(dependent);
+                }
+            }
+            level = next;
+        }
+        if (placed < after.size()) {
+            List<String> cycle = new ArrayList<>();
+            pending.forEach((name, count) -> {
+                if (count > 0)
+                    cycle.add(name);
+            });
+            Collections.sort(cycle);
+            throw new IllegalArgumentException("Circular --after ordering between " + String.join(", ", cycle) + ".");
+        }
+        return levels;
+    }
+
+    // What a daemon waits on: its dependencies when starting, its dependents when stopping
+    static List<String> related(Map<String, List<String>> after, String name, boolean dependents) {
+        if (!dependents)
+            return after.getOrDefault(name, Collections.emptyList());
+        List<String> related = new ArrayList<>();
+        after.forEach((other, dependencies) -> {
+            if (dependencies.contains(name))
+                related.add(other);
+        });
+        return related;
+    }
+}
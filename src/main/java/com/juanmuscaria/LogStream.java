@@ -0,0 +1,94 @@
+package com.juanmuscaria;
+
+import com.juanmuscaria.api.jvm.JavaLogLevel;
+import com.juanmuscaria.impl.JournalReader;
+import lombok.Getter;
+import lombok.SneakyThrows;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.Optional;
+import java.util.regex.Pattern;
+
+// Copies a daemon's journal to a stream, applying the filters journald can't do itself: a regular expression on the
+// message and java log levels. Messages are only decoded for entries that need them, and json output copies
+// journalctl's lines as they are, so nothing is held in memory beyond the current entry.
+class LogStream {
+    private static final DateTimeFormatter TIMESTAMP = DateTimeFormatter.ofPattern("MMM dd HH:mm:ss").withZone(ZoneId.systemDefault());
+    private final String name;
+    private final Pattern pattern;
+    private final JavaLogLevel level;
+    private final boolean json;
+    // Lines without a level, like stack traces, belong to the last line that had one
+    private JavaLogLevel lastLevel = JavaLogLevel.INFO;
+    @Getter
+    private long read;
+    @Getter
+    private long written;
+
+    // pattern and level may be null to not filter on them
+    LogStream(String name, Pattern pattern, JavaLogLevel level, boolean json) {
+        this.name = name;
+        this.pattern = pattern;
+        this.level = level;
+        this.json = json;
+    }
+
+    // Runs journalctl and copies what it prints until it exits, returning its exit code
+    @SneakyThrows({InterruptedException.class})
+    int copy(ProcessBuilder journalctl, OutputStream out) throws IOException {
+        Process process = journalctl.start();
+        try (JournalReader reader = new JournalReader(process.getInputStream())) {
+            copy(reader, out);
+        } finally {
+            process.destroy();
+        }
+        return process.waitFor();
+    }
+
+    void copy(JournalReader reader, OutputStream out) throws IOException {
+        while (reader.next()) {
+            read++;
+            if (!accept(reader))
+                continue;
+            written++;
+            if (json) {
+                reader.writeTo(out);
+            } else {
+                out.write(format(reader).getBytes(StandardCharsets.UTF_8));
+                out.write('\n');
+            }
+            // Keeps following output flowing instead of sitting in the buffer
+            if (reader.available() == 0)
+                out.flush();
+        }
+        out.flush();
+    }
+
+    boolean accept(JournalReader entry) {
+        if (pattern == null && level == null)
+            return true;
+        String message = entry.getMessage();
+        if (level != null) {
+            Optional<JavaLogLevel> detected = JavaLogLevel.detect(message);
+            if (detected.isPresent())
+                lastLevel = detected.get();
+            if (lastLevel.compareTo(level) < 0)
+                return false;
+        }
+        return pattern == null || pattern.matcher(message).find();
+    }
+
+    // Same layout as journalctl's short output
+    String format(JournalReader entry) {
+        long timestamp = entry.getTimestamp();
+        String identifier = entry.getField(JournalReader.SYSLOG_IDENTIFIER);
+        String pid = entry.getField(JournalReader.PID);
+        return TIMESTAMP.format(Instant.ofEpochSecond(timestamp / 1_000_000, timestamp % 1_000_000 * 1000)) + " "
+                + (identifier != null ? identifier : name) + (pid != null ? "[" + pid + "]" : "") + ": " + entry.getMessage();
+    }
+}
@@ -0,0 +1,248 @@
+package com.juanmuscaria;
+
+import com.juanmuscaria.api.IService;
+import com.juanmuscaria.api.ServiceStatus;
+import com.juanmuscaria.impl.CgroupReader;
+import com.juanmuscaria.impl.SystemdPaths;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import jakarta.inject.Singleton;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.TreeMap;
+
+// Renders the cgroup resource usage and state of every daemon in the OpenMetrics text format.
+// Readers, their files and the output buffer are kept between scrapes, a scrape costs one status call to the
+// service manager plus a few reads per daemon.
+@Singleton
+public class MetricsExporter {
+    public static final String CONTENT_TYPE = "application/openmetrics-text; version=1.0.0; charset=utf-8";
+    private static final String[] MEMORY_STAT_TYPES = {"anon", "file", "kernel_stack", "sock", "shmem"};
+    private final ByteBuffer buffer = CgroupReader.newBuffer();
+    private final Map<String, CgroupReader> readers = new TreeMap<>();
+    private final StringBuilder out = new StringBuilder(64 * 1024);
+    private final Path cgroupDir;
+    private Map<String, ServiceStatus> status;
+
+    public MetricsExporter() {
+        this(SystemdPaths.cgroupDir());
+    }
+
+    MetricsExporter(Path cgroupDir) {
+        this.cgroupDir = cgroupDir;
+    }
+
+    // The jdk's http server, one thread is plenty for a scraper every few seconds and keeps netty out of the cli
+    public HttpServer serve(InetSocketAddress address) throws IOException {
+        HttpServer server = HttpServer.create(address, 0);
+        server.createContext("/metrics", this::handle);
+        server.start();
+        return server;
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            if (!exchange.getRequestURI().getPath().equals("/metrics")) {
+                exchange.sendResponseHeaders(404, -1);
+            } else if (!exchange.getRequestMethod().equals("GET") && !exchange.getRequestMethod().equals("HEAD")) {
+                exchange.getResponseHeaders().set("Allow", "GET, HEAD");
+                exchange.sendResponseHeaders(405, -1);
+            } else {
+                byte[] body = scrape().getBytes(StandardCharsets.UTF_8);
+                exchange.getResponseHeaders().set("Content-Type", CONTENT_TYPE);
+                if (exchange.getRequestMethod().equals("HEAD")) {
+                    exchange.sendResponseHeaders(200, -1);
+                } else {
+                    exchange.sendResponseHeaders(200, body.length);
+                    exchange.getResponseBody().write(body);
+                }
+            }
+        } catch (RuntimeException e) {
+            // A failed status call, the scraper gets an error instead of a dropped connection
+            byte[] body = (e + "\n").getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
+            exchange.sendResponseHeaders(500, body.length);
+            exchange.getResponseBody().write(body);
+        } finally {
+            exchange.close();
+        }
+    }
+
+    public synchronized String scrape() {
+        return scrape(IService.service().getInstalledServicesStatus());
+    }
+
+    synchronized String scrape(Map<String, ServiceStatus> status) {
+        this.status = status;
+        readers.keySet().removeIf(name -> {
+            if (status.containsKey(name))
+                return false;
+            readers.get(name).close();
+            return true;
+        });
+        for (String name : status.keySet())
+            readers.computeIfAbsent(name, key -> new CgroupReader(cgroupDir.resolve("javactl-" + key + ".service"), buffer)).refresh();
+        out.setLength(0);
+        writeState();
+        writeCpu();
+        writeMemory();
+        writeIo();
+        writePressure();
+        out.append("# EOF\n");
+        return out.toString();
+    }
+
+    private void writeState() {
+        family("javactl_unit", "info", null, "State of the daemon's unit as reported by the service manager.");
+        for (ServiceStatus service : status.values()) {
+            out.append("javactl_unit_info{daemon=\"");
+            escape(service.getName());
+            out.append("\",active_state=\"");
+            escape(service.getActiveState());
+            out.append("\",sub_state=\"");
+            escape(service.getSubState());
+            out.append("\"} 1\n");
+        }
+        family("javactl_unit_up", "gauge", null, "1 when the daemon's unit is active.");
+        for (ServiceStatus service : status.values())
+            sample("javactl_unit_up", service.getName(), null, null, service.isRunning() ? 1 : 0);
+    }
+
+    private void writeCpu() {
+        family("javactl_cpu_seconds", "counter", "seconds", "CPU time consumed by the daemon's cgroup.");
+        readers.forEach((name, reader) -> {
+            microseconds("javactl_cpu_seconds_total", name, "mode", "user", reader.getCpu()[1]);
+            microseconds("javactl_cpu_seconds_total", name, "mode", "system", reader.getCpu()[2]);
+        });
+        family("javactl_cpu_throttled_periods", "counter", null, "Enforcement periods in which the cgroup was throttled.");
+        readers.forEach((name, reader) -> sample("javactl_cpu_throttled_periods_total", name, null, null, reader.getCpu()[4]));
+        family("javactl_cpu_throttled_seconds", "counter", "seconds", "Time the cgroup spent throttled.");
+        readers.forEach((name, reader) -> microseconds("javactl_cpu_throttled_seconds_total", name, null, null, reader.getCpu()[5]));
+    }
+
+    private void writeMemory() {
+        family("javactl_memory_bytes", "gauge", "bytes", "Memory currently charged to the daemon's cgroup.");
+        readers.forEach((name, reader) -> sample("javactl_memory_bytes", name, null, null, reader.getMemoryCurrent()));
+        family("javactl_memory_stat_bytes", "gauge", "bytes", "Breakdown of the cgroup memory from memory.stat.");
+        readers.forEach((name, reader) -> {
+            for (int i = 0; i < MEMORY_STAT_TYPES.length; i++)
+                sample("javactl_memory_stat_bytes", name, "type", MEMORY_STAT_TYPES[i], reader.getMemoryStat()[i]);
+        });
+        family("javactl_memory_page_faults", "counter", null, "Page faults of the cgroup, all of them and major ones only.");
+        readers.forEach((name, reader) -> {
+            sample("javactl_memory_page_faults_total", name, "type", "all", reader.getMemoryStat()[5]);
+            sample("javactl_memory_page_faults_total", name, "type", "major", reader.getMemoryStat()[6]);
+        });
+    }
+
+    private void writeIo() {
+        family("javactl_io_bytes", "counter", "bytes", "Bytes read and written by the cgroup per block device.");
+        readers.forEach((name, reader) -> {
+            for (int i = 0; i < reader.getDeviceCount(); i++) {
+                CgroupReader.IoDevice device = reader.getDevices()[i];
+                ioSample("javactl_io_bytes_total", name, device.getLabel(), "read", device.getValues()[0]);
+                ioSample("javactl_io_bytes_total", name, device.getLabel(), "write", device.getValues()[1]);
+            }
+        });
+        family("javactl_io_operations", "counter", null, "Read and write operations of the cgroup per block device.");
+        readers.forEach((name, reader) -> {
+            for (int i = 0; i < reader.getDeviceCount(); i++) {
+                CgroupReader.IoDevice device = reader.getDevices()[i];
+                ioSample("javactl_io_operations_total", name, device.getLabel(), "read", device.getValues()[2]);
+                ioSample("javactl_io_operations_total", name, device.getLabel(), "write", device.getValues()[3]);
+            }
+        });
+    }
+
+    private void writePressure() {
+        family("javactl_pressure_stall_seconds", "counter", "seconds", "Time tasks of the cgroup were stalled on a resource (PSI).");
+        readers.forEach((name, reader) -> {
+            for (int resource = 0; resource < CgroupReader.PRESSURE_RESOURCES.length; resource++) {
+                pressureSample(name, CgroupReader.PRESSURE_RESOURCES[resource], "some", reader.getPressure()[resource * 2]);
+                pressureSample(name, CgroupReader.PRESSURE_RESOURCES[resource], "full", reader.getPressure()[resource * 2 + 1]);
+            }
+        });
+    }
+
+    private void family(String name, String type, String unit, String help) {
+        out.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+        if (unit != null)
+            out.append("# UNIT ").append(name).append(' ').append(unit).append('\n');
+        out.append("# HELP ").append(name).append(' ').append(help).append('\n');
+    }
+
+    // Missing values (-1) are left out instead of reported as zero
+    private void sample(String metric, String daemon, String label, String value, long sample) {
+        if (sample < 0)
+            return;
+        labels(metric, daemon, label, value);
+        out.append(sample).append('\n');
+    }
+
+    private void microseconds(String metric, String daemon, String label, String value, long usec) {
+        if (usec < 0)
+            return;
+        labels(metric, daemon, label, value);
+        seconds(usec);
+    }
+
+    private void ioSample(String metric, String daemon, String device, String direction, long sample) {
+        if (sample < 0)
+            return;
+        out.append(metric).append("{daemon=\"");
+        escape(daemon);
+        out.append("\",device=\"").append(device).append("\",direction=\"").append(direction).append("\"} ");
+        out.append(sample).append('\n');
+    }
+
+    private void pressureSample(String daemon, String resource, String kind, long usec) {
+        if (usec < 0)
+            return;
+        out.append("javactl_pressure_stall_seconds_total{daemon=\"");
+        escape(daemon);
+        out.append("\",resource=\"").append(resource).append("\",kind=\"").append(kind).append("\"} ");
+        seconds(usec);
+    }
+
+    // Microseconds as decimal seconds, without going through a double
+    private void seconds(long usec) {
+        out.append(usec / 1_000_000).append('.');
+        long fraction = usec % 1_000_000;
+        for (long digit = 100_000; digit > 1 && fraction < digit; digit /= 10)
+            out.append('0');
+        out.append(fraction).append('\n');
+    }
+
+    private void labels(String metric, String daemon, String label, String value) {
+        out.append(metric).append("{daemon=\"");
+        escape(daemon);
+        out.append('"');
+        if (label != null)
+            out.append(',').append(label).append("=\"").append(value).append('"');
+        out.append("} ");
+    }
+
+    private void escape(String value) {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '\\' || c == '"')
+                out.append('\\').append(c);
+            else if (c == '\n')
+                out.append("\\n");
+            else
+                out.append(c);
+        }
+    }
+
+    @PreDestroy
+    public synchronized void close() {
+        readers.values().forEach(CgroupReader::close);
+        readers.clear();
+    }
+}
@@ -0,0 +1,96 @@
+package com.juanmuscaria;
+
+import com.juanmuscaria.api.IService;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.time.Duration;
+import java.util.regex.Pattern;
+
+// Restarts one daemon and holds until it is serving again. systemd considers a restart done as soon as the new jvm
+// is spawned, so readiness is judged by the daemon itself: a line in its journal, a port accepting connections or the
+// answer to a console command. Checks that are given all have to pass, within a single deadline counted from the
+// restart.
+class RollingRestart {
+    private static final long POLL_MILLIS = 200;
+    private final Pattern log;
+    private final String host;
+    private final int port;
+    private final String command;
+    private final Pattern expect;
+    private final Duration deadline;
+
+    // log and command may be null and port 0 to skip the check
+    RollingRestart(Pattern log, String host, int port, String command, Pattern expect, Duration deadline) {
+        if (log == null && port == 0 && command == null)
+            throw new IllegalArgumentException("Give at least one readiness check: --ready-log, --ready-port or --ready-command.");
+        if (port < 0 || port > 65535)
+            throw new IllegalArgumentException("Invalid port " + port + ".");
+        // Without a pattern any startup line would pass for the answer
+        if (command != null && expect == null)
+            throw new IllegalArgumentException("--ready-command needs --expect to recognize the answer.");
+        this.log = log;
+        this.host = host;
+        this.port = port;
+        this.command = command;
+        this.expect = expect;
+        this.deadline = deadline;
+    }
+
+    // host:port or just a port on the loopback address
+    static RollingRestart ofPort(Pattern log, String address, String command, Pattern expect, Duration deadline) {
+        if (address == null)
+            return new RollingRestart(log, null, 0, command, expect, deadline);
+        int separator = address.lastIndexOf(':');
+        try {
+            return new RollingRestart(log, separator < 0 ? "127.0.0.1" : address.substring(0, separator),
+                    Integer.parseInt(address.substring(separator + 1)), command, expect, deadline);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid port '" + address + "', expected a port or host:port.");
+        }
+    }
+
+    // Returns how the time went, the whole call is the window in which the daemon was unavailable
+    String restart(IService service, String name) throws IOException, InterruptedException {
+        long start = System.nanoTime();
+        long[] restarted = new long[1];
+        ConsoleExec.Action restart = () -> {
+            Javactl.await(service.restartServiceAsync(name, deadline), deadline);
+            restarted[0] = System.nanoTime();
+        };
+        if (log != null) {
+            // The journal is followed before the restart, a fast startup line can't slip by
+            if (!new ConsoleExec(name, log, deadline).watch(restart))
+                throw new IllegalArgumentException("no output matching " + log.pattern());
+        } else {
+            restart.run();
+        }
+        if (port != 0)
+            awaitPort(start + deadline.toNanos());
+        if (command != null) {
+            File fifo = service.getSocketFileFor(name).orElseThrow(() -> new IllegalArgumentException("no socket"));
+            // Sent once, the fifo holds it until the new jvm starts reading its console
+            Duration remaining = Duration.ofNanos(start + deadline.toNanos() - System.nanoTime());
+            if (remaining.isNegative() || !new ConsoleExec(name, expect, remaining).run(fifo, command))
+                throw new IllegalArgumentException("no answer to " + command);
+        }
+        return String.format("restarted in %.1fms, ready %.1fms later", (restarted[0] - start) / 1e6,
+                (System.nanoTime() - restarted[0]) / 1e6);
+    }
+
+    private void awaitPort(long deadline) throws InterruptedException {
+        while (true) {
+            long remaining = (deadline - System.nanoTime()) / 1_000_000;
+            try (Socket socket = new Socket()) {
+                socket.connect(new InetSocketAddress(host, port), (int) Math.max(1, Math.min(remaining, 1000)));
+                return;
+            } catch (IOException e) {
+                if (remaining <= POLL_MILLIS)
+                    throw new IllegalArgumentException("port " + port + " not accepting connections");
+                Thread.sleep(POLL_MILLIS);
+            }
+        }
+    }
+}
@@ -0,0 +1,162 @@
+package com.juanmuscaria;
+
+import com.juanmuscaria.api.IService;
+import com.juanmuscaria.impl.JournalReader;
+import com.juanmuscaria.impl.SystemdJournal;
+import lombok.Getter;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+// Times cold starts of a daemon: a fresh jvm every run, stopped and started through systemd. Output times come from
+// the journal's own timestamps, so they don't depend on how fast javactl reads them.
+class StartBenchmark {
+    static final String[] METRICS = {"active", "first_line", "ready"};
+    private final String name;
+    private final Pattern ready;
+    private final Duration timeout;
+
+    // Without a ready pattern a run ends at the first line
+    StartBenchmark(String name, Pattern ready, Duration timeout) {
+        this.name = name;
+        this.ready = ready;
+        this.timeout = timeout;
+    }
+
+    Sample measure(IService service, String variant, int run) throws IOException {
+        if (service.isServiceRunning(name))
+            Javactl.await(service.stopServiceAsync(name, timeout), timeout);
+        String cursor = SystemdJournal.latestCursor(name).orElse(null);
+        Process journal = SystemdJournal.follow(name, cursor == null ? -1 : 0, cursor).start();
+        CompletableFuture.delayedExecutor(timeout.toMillis(), TimeUnit.MILLISECONDS).execute(journal::destroy);
+        try (JournalReader reader = new JournalReader(journal.getInputStream())) {
+            long startedAt = ChronoUnit.MICROS.between(Instant.EPOCH, Instant.now());
+            long start = System.nanoTime();
+            Javactl.await(service.startServiceAsync(name, timeout), timeout);
+            long active = (System.nanoTime() - start) / 1000;
+            long firstLine = -1;
+            while (reader.next()) {
+                // systemd's own "Starting..." and "Started..." lines
+                if (reader.getTimestamp() < startedAt || "systemd".equals(reader.getField(JournalReader.SYSLOG_IDENTIFIER)))
+                    continue;
+                long at = reader.getTimestamp() - startedAt;
+                if (firstLine < 0)
+                    firstLine = at;
+                if (ready == null)
+                    return new Sample(variant, run, active, firstLine, -1);
+                if (ready.matcher(reader.getMessage()).find())
+                    return new Sample(variant, run, active, firstLine, at);
+            }
+            throw new IllegalArgumentException((firstLine < 0 ? "No output" : "No line matching " + ready.pattern())
+                    + " within " + timeout.toSeconds() + "s of the start.");
+        } finally {
+            journal.destroy();
+        }
+    }
+
+    // min, p50, p95 and max of every metric, per variant
+    static void summarize(PrintWriter out, List<Sample> samples, List<String> variants) {
+        out.printf("%-10s %-11s %10s %10s %10s %10s%n", "VARIANT", "METRIC", "MIN", "P50", "P95", "MAX");
+        for (String variant : variants) {
+            for (int metric = 0; metric < METRICS.length; metric++) {
+                long[] values = values(samples, variant, metric);
+                if (values.length == 0)
+                    continue;
+                out.printf("%-10s %-11s %8.1fms %8.1fms %8.1fms %8.1fms%n", variant, METRICS[metric], values[0] / 1e3,
+                        percentile(values, 50) / 1e3, percentile(values, 95) / 1e3, values[values.length - 1] / 1e3);
+            }
+        }
+        out.flush();
+    }
+
+    // Sorted values of a metric, runs that didn't record it are left out
+    static long[] values(List<Sample> samples, String variant, int metric) {
+        return samples.stream().filter(sample -> sample.getVariant().equals(variant))
+                .mapToLong(sample -> sample.get(metric)).filter(value -> value >= 0).sorted().toArray();
+    }
+
+    // Nearest rank
+    static long percentile(long[] sorted, int percentile) {
+        int rank = (int) Math.ceil(percentile / 100.0 * sorted.length);
+        return sorted[Math.max(rank - 1, 0)];
+    }
+
+    static void writeCsv(PrintWriter out, List<Sample> samples) {
+        out.println("variant,run,active_ms,first_line_ms,ready_ms");
+        for (Sample sample : samples)
+            out.printf("%s,%d,%s,%s,%s%n", sample.getVariant(), sample.getRun(), millis(sample.getActive()),
+                    millis(sample.getFirstLine()), millis(sample.getReady()));
+        out.flush();
+    }
+
+    static void writeJson(PrintWriter out, String name, List<Sample> samples, List<String> variants) {
+        out.printf("{\"daemon\":\"%s\",\"runs\":[", name);
+        for (int i = 0; i < samples.size(); i++) {
+            Sample sample = samples.get(i);
+            out.printf("%s{\"variant\":\"%s\",\"run\":%d,\"active_ms\":%s,\"first_line_ms\":%s,\"ready_ms\":%s}",
+                    i == 0 ? "" : ",", sample.getVariant(), sample.getRun(), jsonMillis(sample.getActive()),
+                    jsonMillis(sample.getFirstLine()), jsonMillis(sample.getReady()));
+        }
+        out.print("],\"summary\":{");
+        for (int v = 0; v < variants.size(); v++) {
+            out.printf("%s\"%s\":{", v == 0 ? "" : ",", variants.get(v));
+            boolean first = true;
+            for (int metric = 0; metric < METRICS.length; metric++) {
+                long[] values = values(samples, variants.get(v), metric);
+                if (values.length == 0)
+                    continue;
+                out.printf("%s\"%s\":{\"min_ms\":%s,\"p50_ms\":%s,\"p95_ms\":%s,\"max_ms\":%s}", first ? "" : ",",
+                        METRICS[metric], jsonMillis(values[0]), jsonMillis(percentile(values, 50)), jsonMillis(percentile(values, 95)),
+                        jsonMillis(values[values.length - 1]));
+                first = false;
+            }
+            out.print("}");
+        }
+        out.println("}}");
+        out.flush();
+    }
+
+    // Empty when not recorded, always with a dot so files read the same in every locale
+    private static String millis(long micros) {
+        return micros < 0 ? "" : String.format(Locale.ROOT, "%.3f", micros / 1e3);
+    }
+
+    private static String jsonMillis(long micros) {
+        return micros < 0 ? "null" : millis(micros);
+    }
+
+    static class Sample {
+        @Getter
+        private final String variant;
+        @Getter
+        private final int run;
+        // Microseconds from the start request, -1 when not recorded
+        @Getter
+        private final long active;
+        @Getter
+        private final long firstLine;
+        @Getter
+        private final long ready;
+
+        Sample(String variant, int run, long active, long firstLine, long ready) {
+            this.variant = variant;
+            this.run = run;
+            this.active = active;
+            this.firstLine = firstLine;
+            this.ready = ready;
+        }
+
+        // By index into METRICS
+        long get(int metric) {
+            return metric == 0 ? active : metric == 1 ? firstLine : ready;
+        }
+    }
+}
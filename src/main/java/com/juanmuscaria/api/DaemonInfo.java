@@ -0,0 +1,79 @@
+package com.juanmuscaria.api;
+
+import lombok.Getter;
+
+import java.util.List;
+
+// What javactl knows about an installed daemon, read back from its service configuration
+public class DaemonInfo {
+    @Getter
+    private final String name;
+    @Getter
+    private final String description;
+    @Getter
+    private final String javaExec;
+    @Getter
+    private final String jvmArgs;
+    @Getter
+    private final String jar;
+    @Getter
+    private final String args;
+    @Getter
+    private final String user;
+    @Getter
+    private final String group;
+    @Getter
+    private final String workingDir;
+    @Getter
+    private final boolean autoRestart;
+    // null when logging to the system journal
+    @Getter
+    private final String logNamespace;
+    @Getter
+    private final List<String> tags;
+    // Other daemons this one is started after
+    @Getter
+    private final List<String> after;
+    // Launched with a class data sharing archive that javactl keeps up to date
+    @Getter
+    private final boolean cds;
+
+    public DaemonInfo(String name, String description, String javaExec, String jvmArgs, String jar, String args,
+                      String user, String group, String workingDir, boolean autoRestart, String logNamespace,
+                      List<String> tags, List<String> after, boolean cds) {
+        this.name = name;
+        this.description = description;
+        this.javaExec = javaExec;
+        this.jvmArgs = jvmArgs;
+        this.jar = jar;
+        this.args = args;
+        this.user = user;
+        this.group = group;
+        this.workingDir = workingDir;
+        this.autoRestart = autoRestart;
+        this.logNamespace = logNamespace;
+        this.tags = tags;
+        this.after = after;
+        this.cds = cds;
+    }
+
+    @Override
+    public String toString() {
+        return "DaemonInfo{" +
+                "name='" + name + '\'' +
+                ", description='" + description + '\'' +
+                ", javaExec='" + javaExec + '\'' +
+                ", jvmArgs='" + jvmArgs + '\'' +
+                ", jar='" + jar + '\'' +
+                ", args='" + args + '\'' +
+                ", user='" + user + '\'' +
+                ", group='" + group + '\'' +
+                ", workingDir='" + workingDir + '\'' +
+                ", autoRestart=" + autoRestart +
+                ", logNamespace='" + logNamespace + '\'' +
+                ", tags=" + tags +
+                ", after=" + after +
+                ", cds=" + cds +
+                '}';
+    }
+}
@@ -4,6 +4,8 @@ import com.juanmuscaria.api.jvm.JavaInstallation;
 import com.juanmuscaria.impl.SystemdDaemonBuilder;
 
 import java.io.File;
+import java.time.Duration;
+import java.util.List;
 
 public interface IDaemonBuilder {
     static IDaemonBuilder builder() {
@@ -36,5 +38,32 @@ public interface IDaemonBuilder {
 
     IDaemonBuilder jarFile(File jar);
 
+    // Labels to select daemons by in bulk commands, e.g. "lobby"
+    IDaemonBuilder tags(List<String> tags);
+
+    // Other daemons that have to be up before this one, honoured by bulk start/stop and by systemd at boot
+    IDaemonBuilder after(List<String> daemons);
+
+    // Logs to its own journald instance instead of the shared system journal
+    IDaemonBuilder logNamespace(String namespace);
+
+    // Disk budget of the daemon's journald namespace, e.g. 2G, requires a namespace
+    IDaemonBuilder logMaxUse(String size);
+
+    // At most burst messages every interval, the rest are dropped by journald
+    IDaemonBuilder logRateLimit(Duration interval, int burst);
+
+    // Messages less important than this syslog level are dropped, e.g. info or warning
+    IDaemonBuilder logLevelMax(String level);
+
+    // Type=notify unit, ready once the condition holds: main, port:<port> or log:<regex>
+    IDaemonBuilder notifyReady(String condition);
+
+    // systemd restarts the daemon when the notify agent stops pinging for this long, requires notifyReady
+    IDaemonBuilder watchdog(Duration interval);
+
+    // Launches with an AppCDS archive of the daemon's classes, rebuilt whenever the jar or the java changes
+    IDaemonBuilder cds(boolean cds);
+
     File[] build();
 }
@@ -1,26 +1,22 @@
 package com.juanmuscaria.api;
 
-import com.juanmuscaria.impl.Systemd;
+import com.juanmuscaria.api.jvm.JavaInstallation;
 
-import javax.validation.constraints.NotNull;
 import java.io.File;
+import java.time.Duration;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
 import java.util.regex.Pattern;
 
 public interface IService {
-    @NotNull
-    IService SERVICE = getService();
     Pattern validNamePattern = Pattern.compile("^[a-zA-Z0-9\\s]+$");
 
-    private static IService getService() {
-        switch (ServiceManager.getSystemServiceManager()) {
-            case SYSTEMD:
-                return new Systemd();
-            case UNKNOWN:
-            default:
-                throw new IllegalStateException("System not supported");
-        }
+    // The backend for this system, created on first use so commands that never touch it don't pay for it
+    static IService service() {
+        return ServiceHolder.SERVICE;
     }
 
     Optional<File> getServiceFileFor(String name);
@@ -29,8 +25,18 @@ public interface IService {
 
     Optional<File> getSocketFileFor(String name);
 
+    // Settings of an installed daemon as read from its service configuration
+    Optional<DaemonInfo> getDaemonInfo(String name);
+
     boolean isServiceRunning(String name);
 
+    // Fetches the state of all given daemons at once, daemons unknown to the service manager are reported as inactive
+    Map<String, ServiceStatus> getServicesStatus(Collection<String> names);
+
+    default Map<String, ServiceStatus> getInstalledServicesStatus() {
+        return getServicesStatus(getInstalledServices());
+    }
+
     default boolean isValidName(String name) {
         return validNamePattern.matcher(name).matches();
     }
@@ -52,4 +58,45 @@ public interface IService {
     void enableService(String name);
 
     void disableService(String name);
+
+    // Launches the daemon with another java or jvm arguments from its next start on, without changing its
+    // configuration. Either may be null to keep the configured one.
+    void overrideLaunch(String name, JavaInstallation java, String jvmArgs);
+
+    // Back to the configured launch, a no-op when nothing was overridden
+    void clearLaunchOverride(String name);
+
+    // Called by long running processes, lets the implementation track changes instead of checking on every call
+    default void keepWarm() {
+    }
+
+    // Asynchronous variants of the operations above, see ServiceTasks for how deadlines and cancellation behave
+
+    default CompletableFuture<Void> startServiceAsync(String name, Duration timeout) {
+        return ServiceTasks.submit(() -> startService(name), timeout);
+    }
+
+    default CompletableFuture<Void> stopServiceAsync(String name, Duration timeout) {
+        return ServiceTasks.submit(() -> stopService(name), timeout);
+    }
+
+    default CompletableFuture<Void> restartServiceAsync(String name, Duration timeout) {
+        return ServiceTasks.submit(() -> restartService(name), timeout);
+    }
+
+    default CompletableFuture<Void> enableServiceAsync(String name, Duration timeout) {
+        return ServiceTasks.submit(() -> enableService(name), timeout);
+    }
+
+    default CompletableFuture<Void> disableServiceAsync(String name, Duration timeout) {
+        return ServiceTasks.submit(() -> disableService(name), timeout);
+    }
+
+    default CompletableFuture<Boolean> isServiceRunningAsync(String name, Duration timeout) {
+        return ServiceTasks.submit(() -> isServiceRunning(name), timeout);
+    }
+
+    default CompletableFuture<Map<String, ServiceStatus>> getServicesStatusAsync(Collection<String> names, Duration timeout) {
+        return ServiceTasks.submit(() -> getServicesStatus(names), timeout);
+    }
 }
@@ -0,0 +1,32 @@
+package com.juanmuscaria.api;
+
+import com.juanmuscaria.impl.Systemd;
+import com.juanmuscaria.impl.SystemdDBus;
+import org.freedesktop.dbus.exceptions.DBusException;
+
+// Lazy holder for IService.service(), interface fields would be initialized along with any implementation
+class ServiceHolder {
+    static final IService SERVICE = getService();
+
+    private ServiceHolder() {
+        throw new IllegalStateException("Sealed class");
+    }
+
+    private static IService getService() {
+        switch (ServiceManager.getSystemServiceManager()) {
+            case SYSTEMD:
+                // Opt-in while it gets more testing, talks to systemd over the system bus instead of forking systemctl
+                if ("dbus".equalsIgnoreCase(System.getenv("JAVACTL_BACKEND"))) {
+                    try {
+                        return new SystemdDBus();
+                    } catch (DBusException e) {
+                        System.err.println("Unable to connect to systemd over D-Bus, falling back to systemctl: " + e.getMessage());
+                    }
+                }
+                return new Systemd();
+            case UNKNOWN:
+            default:
+                throw new IllegalStateException("System not supported");
+        }
+    }
+}
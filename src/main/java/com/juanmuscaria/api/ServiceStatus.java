@@ -0,0 +1,52 @@
+package com.juanmuscaria.api;
+
+import lombok.Getter;
+
+import java.time.Duration;
+import java.util.Optional;
+
+// A snapshot of a daemon state, as reported by the service manager
+public class ServiceStatus {
+    @Getter
+    private final String name;
+    @Getter
+    private final String activeState;
+    @Getter
+    private final String subState;
+    // 0 when the daemon has no main process
+    @Getter
+    private final long mainPid;
+    // -1 when unknown or not tracked (MemoryAccounting disabled)
+    @Getter
+    private final long memory;
+    private final Duration uptime;
+
+    public ServiceStatus(String name, String activeState, String subState, long mainPid, long memory, Duration uptime) {
+        this.name = name;
+        this.activeState = activeState;
+        this.subState = subState;
+        this.mainPid = mainPid;
+        this.memory = memory;
+        this.uptime = uptime;
+    }
+
+    public Optional<Duration> getUptime() {
+        return Optional.ofNullable(uptime);
+    }
+
+    public boolean isRunning() {
+        return "active".equals(activeState) || "reloading".equals(activeState);
+    }
+
+    @Override
+    public String toString() {
+        return "ServiceStatus{" +
+                "name='" + name + '\'' +
+                ", activeState='" + activeState + '\'' +
+                ", subState='" + subState + '\'' +
+                ", mainPid=" + mainPid +
+                ", memory=" + memory +
+                ", uptime=" + uptime +
+                '}';
+    }
+}
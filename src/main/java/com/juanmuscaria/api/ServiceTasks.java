@@ -0,0 +1,100 @@
+package com.juanmuscaria.api;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Runs service operations in the background for the asynchronous IService variants.
+// Workers are bounded so a burst of calls can't fork hundreds of systemctl processes at once.
+public class ServiceTasks {
+    public static final int MAX_WORKERS = Integer.getInteger("javactl.maxWorkers", 16);
+    private static final ThreadPoolExecutor EXECUTOR;
+    // Operations whose worker was interrupted by a deadline or a cancellation and is still cleaning up,
+    // mapped to when the worker is done
+    private static final Map<CompletableFuture<?>, CompletableFuture<Void>> ABORTING = new ConcurrentHashMap<>();
+
+    static {
+        AtomicInteger count = new AtomicInteger();
+        EXECUTOR = new ThreadPoolExecutor(MAX_WORKERS, MAX_WORKERS, 30, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), runnable -> {
+            Thread thread = new Thread(runnable, "javactl-service-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        EXECUTOR.allowCoreThreadTimeOut(true);
+    }
+
+    private ServiceTasks() {
+        throw new IllegalStateException("Sealed class");
+    }
+
+    // The deadline counts from submission, time spent waiting for a free worker included.
+    // Cancelling the future or hitting the deadline interrupts the worker, IService implementations
+    // react to it by killing whatever process or job they started. A null or zero timeout means no deadline.
+    public static <T> CompletableFuture<T> submit(Callable<T> task, Duration timeout) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        // Done once the worker is through with the task, or right away when no worker got to it
+        CompletableFuture<Void> finished = new CompletableFuture<>();
+        AtomicBoolean claimed = new AtomicBoolean();
+        Future<?> running = EXECUTOR.submit(() -> {
+            if (!claimed.compareAndSet(false, true))
+                return;
+            try {
+                result.complete(task.call());
+            } catch (Throwable e) {
+                result.completeExceptionally(e);
+            } finally {
+                finished.complete(null);
+            }
+        });
+        AtomicBoolean aborted = new AtomicBoolean();
+        Runnable abort = () -> {
+            if (!aborted.compareAndSet(false, true))
+                return;
+            if (claimed.compareAndSet(false, true)) {
+                finished.complete(null);
+            } else {
+                ABORTING.put(result, finished);
+                finished.whenComplete((value, error) -> ABORTING.remove(result));
+            }
+            running.cancel(true);
+        };
+        result.whenComplete((value, error) -> {
+            if (result.isCancelled())
+                abort.run();
+        });
+        // Not orTimeout, the worker has to be tracked as aborting before anyone waiting sees the timeout
+        if (timeout != null && !timeout.isZero() && !timeout.isNegative())
+            CompletableFuture.delayedExecutor(timeout.toMillis(), TimeUnit.MILLISECONDS).execute(() -> {
+                if (result.isDone())
+                    return;
+                abort.run();
+                result.completeExceptionally(new TimeoutException());
+            });
+        return result;
+    }
+
+    // Waits up to max for the worker of a timed out or cancelled operation to finish cleaning up, so a command can
+    // exit right after without cutting the kill of systemctl or the cancellation of the systemd job short.
+    // Other operations aborting at the same time are not waited on, nothing to wait for when no worker got to it.
+    public static void awaitAborted(CompletableFuture<?> operation, Duration max) {
+        CompletableFuture<Void> finished = ABORTING.get(operation);
+        if (finished == null)
+            return;
+        try {
+            finished.get(max.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException | TimeoutException ignored) {
+            // Gave up waiting
+        }
+    }
+
+    public static CompletableFuture<Void> submit(Runnable task, Duration timeout) {
+        return submit(() -> {
+            task.run();
+            return null;
+        }, timeout);
+    }
+}
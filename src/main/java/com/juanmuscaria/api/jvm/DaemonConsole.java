@@ -0,0 +1,164 @@
+package com.juanmuscaria.api.jvm;
+
+import lombok.Getter;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+// Bulk writer for a daemon's stdin fifo. Input is read in large batches but reaches the fifo in writes of whole lines
+// of at most PIPE_BUF bytes, the largest write the kernel keeps in one piece, so a connect session typing at the same
+// time never lands in the middle of a command. Only lines longer than PIPE_BUF can still be split. The fifo is written
+// in blocking mode, when the daemon is slower than the input the kernel parks the write until the pipe drains instead
+// of returning EAGAIN.
+public class DaemonConsole implements Closeable {
+    static final int BATCH = 64 * 1024;
+    // POSIX guarantees at least 512, Linux uses 4096
+    static final int PIPE_BUF = 4096;
+    private final WritableByteChannel fifo;
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(BATCH);
+    @Getter
+    private long bytes;
+    @Getter
+    private long lines;
+
+    public DaemonConsole(File fifo) throws IOException {
+        this(FileChannel.open(fifo.toPath(), StandardOpenOption.WRITE));
+    }
+
+    DaemonConsole(WritableByteChannel fifo) {
+        this.fifo = fifo;
+    }
+
+    public void sendLine(String line) throws IOException {
+        byte[] encoded = (line + "\n").getBytes(StandardCharsets.UTF_8);
+        writeLines(ByteBuffer.wrap(encoded));
+        bytes += encoded.length;
+        lines++;
+    }
+
+    // Copies a stream until it ends, a missing newline at the end is added
+    public void send(ReadableByteChannel in) throws IOException {
+        buffer.clear();
+        while (true) {
+            int read = in.read(buffer);
+            if (read < 0)
+                break;
+            // Whatever a read returns goes out right away, so piped input isn't held back waiting for a full batch
+            flushLines();
+        }
+        if (buffer.position() > 0) {
+            if (buffer.get(buffer.position() - 1) != '\n') {
+                if (!buffer.hasRemaining())
+                    flushAll();
+                buffer.put((byte) '\n');
+            }
+            flushAll();
+        }
+    }
+
+    // Regular files go straight from the page cache to the pipe with sendfile, without passing through the heap.
+    // The kernel splits the transfer wherever it likes, input typed into a connect session meanwhile can end up in
+    // the middle of a line.
+    public void send(Path file) throws IOException {
+        try (FileChannel in = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = in.size();
+            long position = 0;
+            while (position < size)
+                position += in.transferTo(position, size - position, fifo);
+            bytes += size;
+            boolean endsWithNewline = true;
+            // Counted from the page cache the transfer just went through
+            for (long window = 0; window < size; window += Integer.MAX_VALUE) {
+                int length = (int) Math.min(size - window, Integer.MAX_VALUE);
+                MappedByteBuffer mapped = in.map(FileChannel.MapMode.READ_ONLY, window, length);
+                lines += count(mapped, 0, length);
+                endsWithNewline = mapped.get(length - 1) == '\n';
+            }
+            if (!endsWithNewline) {
+                write(ByteBuffer.wrap(new byte[]{'\n'}));
+                bytes++;
+                lines++;
+            }
+        }
+    }
+
+    // Writes every complete line buffered so far, keeping the partial one for the next batch
+    private void flushLines() throws IOException {
+        int end = buffer.position();
+        int lastNewline = end - 1;
+        while (lastNewline >= 0 && buffer.get(lastNewline) != '\n')
+            lastNewline--;
+        if (lastNewline < 0) {
+            // A single line longer than a batch has to be split
+            if (!buffer.hasRemaining())
+                flushAll();
+            return;
+        }
+        buffer.flip();
+        buffer.limit(lastNewline + 1);
+        lines += count(buffer, 0, lastNewline + 1);
+        bytes += lastNewline + 1;
+        writeLines(buffer);
+        buffer.limit(end);
+        buffer.compact();
+    }
+
+    private void flushAll() throws IOException {
+        buffer.flip();
+        lines += count(buffer, 0, buffer.limit());
+        bytes += buffer.limit();
+        writeLines(buffer);
+        buffer.clear();
+    }
+
+    // One write per run of whole lines fitting in PIPE_BUF, a longer line goes out on its own
+    private void writeLines(ByteBuffer data) throws IOException {
+        int end = data.limit();
+        while (data.hasRemaining()) {
+            int start = data.position();
+            int cut = Math.min(start + PIPE_BUF, end);
+            if (cut < end) {
+                int newline = cut - 1;
+                while (newline >= start && data.get(newline) != '\n')
+                    newline--;
+                if (newline < start) {
+                    newline = cut;
+                    while (newline < end - 1 && data.get(newline) != '\n')
+                        newline++;
+                }
+                cut = newline + 1;
+            }
+            data.limit(cut);
+            write(data);
+            data.limit(end);
+        }
+    }
+
+    private void write(ByteBuffer data) throws IOException {
+        while (data.hasRemaining())
+            fifo.write(data);
+    }
+
+    private static long count(ByteBuffer data, int from, int to) {
+        long count = 0;
+        for (int i = from; i < to; i++) {
+            if (data.get(i) == '\n')
+                count++;
+        }
+        return count;
+    }
+
+    @Override
+    public void close() throws IOException {
+        fifo.close();
+    }
+}
@@ -0,0 +1,10 @@
+package com.juanmuscaria.api.jvm;
+
+import java.io.File;
+import java.util.Optional;
+
+// A strategy to gather information about a java installation.
+// Probers are tried in order, an empty result means the next one should be used.
+public interface IJavaProber {
+    Optional<JavaInstallation> probe(File exec);
+}
@@ -1,48 +1,115 @@
 package com.juanmuscaria.api.jvm;
 
-import java.io.File;
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.List;
+import java.io.IOException;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.stream.Collectors;
 
 // Heavily based on MultiMc and Gradle java detection
 // https://github.com/gradle/gradle/tree/36d579971ab09506668facf4e4491b47c43f74cf/subprojects/jvm-services/src/main/java/org/gradle/internal/jvm/inspection
 // https://github.com/MultiMC/MultiMC5/blob/94fd9a3535ae9a55c228720858292ed2bb69ff98/launcher/java/JavaUtils.cpp#L356
 public class JavaFinder {
+    // Deep enough for <root>/<vendor>/<jdk>/jre/bin/java (jdk 8 layout) and sdkman's <root>/<candidate>/bin/java
+    static final int MAX_DEPTH = 5;
+    // Directories inside a java installation that never contain the launcher, no need to walk them
+    static final Set<String> PRUNED_DIRS = Set.of("legal", "lib", "jmods", "include", "man", "conf",
+            "demo", "sample", "src", "db", "docs", "plugin");
+
     private JavaFinder() {
         throw new IllegalStateException("Sealed class");
     }
 
     public static List<JavaInstallation> findJavaInstallations() {
-        ArrayList<JavaInstallation> found = new ArrayList<>();
+        return findJavaInstallations(false);
+    }
+
+    public static List<JavaInstallation> findJavaInstallations(boolean refresh) {
+        return findJavaInstallations(refresh, JavaInstallation.DEFAULT_PROBERS);
+    }
+
+    public static List<JavaInstallation> findJavaInstallations(boolean refresh, List<IJavaProber> probers) {
         String home = System.getProperty("user.home");
         String[] possiblePaths = new String[]{
                 "/usr/java", "/usr/lib/jvm",
                 "/usr/lib32/jvm", "/opt/jdk",
                 "/opt/jdks", home + "/.sdkman/candidates/java"
         };
-        for (String possiblePath : possiblePaths) {
-            found.addAll(scan(new File(possiblePath)));
-        }
-        return found;
+        // Roots are independent, walk them in parallel and only keep one entry per real executable path
+        Set<Path> executables = Arrays.stream(possiblePaths).parallel()
+                .map(Paths::get)
+                .flatMap(path -> scan(path).stream())
+                .collect(Collectors.toCollection(TreeSet::new));
+        return probe(executables, refresh, probers);
     }
 
-    // Recursion all the way
-    private static List<JavaInstallation> scan(File path) {
-        if (!path.isDirectory())
+    // Probes may spawn a jvm and wait on it, so the pool is sized for blocking work rather than cpu count
+    private static List<JavaInstallation> probe(Collection<Path> executables, boolean refresh, List<IJavaProber> probers) {
+        if (executables.isEmpty())
             return Collections.emptyList();
-        File[] files = path.listFiles();
-        if (files == null || files.length == 0)
-            return Collections.emptyList();
-        ArrayList<JavaInstallation> found = new ArrayList<>();
-        for (File file : files) {
-            if (!file.isDirectory() &&
-                    "java".equals(file.getName()) &&
-                    file.canRead() &&
-                    file.canExecute())
-                found.add(new JavaInstallation(file));
-            else if (file.isDirectory())
-                found.addAll(scan(file));
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(executables.size(), 16), runnable -> {
+            Thread thread = new Thread(runnable, "javactl-probe");
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            List<CompletableFuture<JavaInstallation>> probes = executables.stream()
+                    .map(exec -> CompletableFuture.supplyAsync(() -> JavaInstallation.probe(exec.toFile(), refresh, probers), executor))
+                    .collect(Collectors.toList());
+            List<JavaInstallation> found = new ArrayList<>(probes.size());
+            for (CompletableFuture<JavaInstallation> probe : probes) {
+                try {
+                    found.add(probe.join());
+                } catch (CompletionException e) {
+                    if (e.getCause() instanceof RuntimeException)
+                        throw (RuntimeException) e.getCause();
+                    throw e;
+                }
+            }
+            return found;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    // Walks a root looking for java launchers, returns their real paths
+    static Set<Path> scan(Path root) {
+        if (!Files.isDirectory(root))
+            return Collections.emptySet();
+        Set<Path> found = new HashSet<>();
+        Set<Path> visited = new HashSet<>();
+        try {
+            Files.walkFileTree(root, EnumSet.of(FileVisitOption.FOLLOW_LINKS), MAX_DEPTH, new SimpleFileVisitor<>() {
+                @Override
+                public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
+                    Path name = dir.getFileName();
+                    if (name != null && !dir.equals(root) && PRUNED_DIRS.contains(name.toString()))
+                        return FileVisitResult.SKIP_SUBTREE;
+                    // Symlinked aliases (default-java, java-1.17.0-openjdk-amd64...) point to an already seen tree
+                    if (!visited.add(dir.toRealPath()))
+                        return FileVisitResult.SKIP_SUBTREE;
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                    if (attrs.isRegularFile() &&
+                            "java".equals(file.getFileName().toString()) &&
+                            Files.isReadable(file) &&
+                            Files.isExecutable(file))
+                        found.add(file.toRealPath());
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFileFailed(Path file, IOException exc) {
+                    // Broken links and unreadable dirs are common in those roots, just skip them
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+        } catch (IOException ignored) {
+            // Unreadable root, nothing to be found there
         }
         return found;
     }
@@ -1,40 +1,14 @@
 package com.juanmuscaria.api.jvm;
 
 import lombok.Getter;
-import lombok.SneakyThrows;
 
-import java.io.*;
-import java.nio.file.Files;
+import java.io.File;
+import java.util.List;
+import java.util.Optional;
 
 public class JavaInstallation {
-    private static final File probe;
-
-    // Creates the probe to detect more information about the java installation
-    static {
-        InputStream probeClass = JavaInstallation.class.getResourceAsStream("/probe/JavaProbe.bin");
-        if (probeClass == null)
-            throw new IllegalStateException("Unable to extract java probe");
-
-        File tmp;
-        try {
-            tmp = new File(Files.createTempDirectory("javaclt").toFile(), "JavaProbe.class");
-            tmp.deleteOnExit();
-            OutputStream out = new FileOutputStream(tmp);
-            byte[] buffer = new byte[1024];
-            int len = probeClass.read(buffer);
-            while (len != -1) {
-                out.write(buffer, 0, len);
-                len = probeClass.read(buffer);
-            }
-            probeClass.close();
-            out.close();
-        } catch (IOException e) {
-            e.printStackTrace();
-            throw new IllegalStateException("Unable to extract java probe");
-        }
-        probe = tmp;
-
-    }
+    // Cheapest first, the process probe works for anything that can run but needs a jvm launch
+    public static final List<IJavaProber> DEFAULT_PROBERS = List.of(new ReleaseFileProber(), new ProcessProber());
 
     @Getter
     private final File exec;
@@ -55,33 +29,46 @@ public class JavaInstallation {
     @Getter
     private final String runtimeVersion;
 
-    // TODO: Is it the best way...?
-    @SneakyThrows(InterruptedException.class)
-    public JavaInstallation(File exec) {
+    // Created by the probers, or restored from JavaProbeCache
+    JavaInstallation(File exec, String home, String version, String vendor, String arch,
+                     String vm, String vmVersion, String runtime, String runtimeVersion) {
         this.exec = exec;
-        try {
-            var builder = new ProcessBuilder();
-            builder.directory(probe.getParentFile());
-            builder.command(exec.getAbsolutePath(), "-cp", ".", "JavaProbe");
-            var process = builder.start();
-            process.waitFor();
-            BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream()));
-            home = reader.readLine();
-            version = reader.readLine();
-            vendor = reader.readLine();
-            arch = reader.readLine();
-            vm = reader.readLine();
-            vmVersion = reader.readLine();
-            runtime = reader.readLine();
-            runtimeVersion = reader.readLine();
-            reader.close();
-        } catch (IOException e) {
-            throw new IllegalArgumentException("Unable to probe java installation, are you using the right path?", e);
+        this.home = home;
+        this.version = version;
+        this.vendor = vendor;
+        this.arch = arch;
+        this.vm = vm;
+        this.vmVersion = vmVersion;
+        this.runtime = runtime;
+        this.runtimeVersion = runtimeVersion;
+    }
+
+    // Probes the installation, reusing the persistent cache when the executable didn't change
+    public static JavaInstallation probe(File exec) {
+        return probe(exec, false);
+    }
+
+    public static JavaInstallation probe(File exec, boolean refresh) {
+        return probe(exec, refresh, DEFAULT_PROBERS);
+    }
+
+    public static JavaInstallation probe(File exec, boolean refresh, List<IJavaProber> probers) {
+        return JavaProbeCache.get(exec.toPath(), refresh, probers);
+    }
+
+    // Skips the cache and goes through the probers directly
+    static JavaInstallation probeUncached(File exec, List<IJavaProber> probers) {
+        for (IJavaProber prober : probers) {
+            Optional<JavaInstallation> installation = prober.probe(exec);
+            if (installation.isPresent())
+                return installation.get();
         }
+        throw new IllegalArgumentException("Unable to probe java installation, are you using the right path?");
     }
 
     // To test if we can probe in this system.
     public static void init() {
+        ProcessProber.init();
     }
 
     @Override
@@ -0,0 +1,76 @@
+package com.juanmuscaria.api.jvm;
+
+import java.util.Optional;
+
+// Levels of the common java logging frameworks (log4j, logback, java.util.logging) mapped onto a single scale
+public enum JavaLogLevel {
+    TRACE("TRACE", "FINEST", "FINER"),
+    DEBUG("DEBUG", "FINE", "CONFIG"),
+    INFO("INFO"),
+    WARN("WARN", "WARNING"),
+    ERROR("ERROR", "SEVERE"),
+    FATAL("FATAL");
+
+    // Levels are only looked for in the prefix of a line, where logger layouts put them
+    private static final int SEARCH_LIMIT = 160;
+    private static final JavaLogLevel[] LEVELS = values();
+    private final String[] names;
+
+    JavaLogLevel(String... names) {
+        this.names = names;
+    }
+
+    // Any of the framework names, case insensitive
+    public static JavaLogLevel of(String name) {
+        for (JavaLogLevel level : LEVELS) {
+            for (String alias : level.names) {
+                if (alias.equalsIgnoreCase(name))
+                    return level;
+            }
+        }
+        throw new IllegalArgumentException("Unknown log level '" + name + "', expected one of TRACE, DEBUG, INFO, WARN, ERROR or FATAL.");
+    }
+
+    // The first upper case level name standing as a word, like in "[Server thread/WARN]" or "12:00:00 ERROR Foo"
+    public static Optional<JavaLogLevel> detect(CharSequence line) {
+        int limit = Math.min(line.length(), SEARCH_LIMIT);
+        int position = 0;
+        while (position < limit) {
+            while (position < limit && !isUpper(line.charAt(position)))
+                position++;
+            int start = position;
+            while (position < limit && isUpper(line.charAt(position)))
+                position++;
+            // Part of a longer word, like INFORMATION or eINFO
+            if ((start > 0 && Character.isLetterOrDigit(line.charAt(start - 1)))
+                    || (position < line.length() && Character.isLetterOrDigit(line.charAt(position))))
+                continue;
+            JavaLogLevel level = match(line, start, position);
+            if (level != null)
+                return Optional.of(level);
+        }
+        return Optional.empty();
+    }
+
+    private static JavaLogLevel match(CharSequence line, int start, int end) {
+        for (JavaLogLevel level : LEVELS) {
+            for (String alias : level.names) {
+                if (alias.length() == end - start && regionEquals(alias, line, start))
+                    return level;
+            }
+        }
+        return null;
+    }
+
+    private static boolean regionEquals(String alias, CharSequence line, int start) {
+        for (int i = 0; i < alias.length(); i++) {
+            if (alias.charAt(i) != line.charAt(start + i))
+                return false;
+        }
+        return true;
+    }
+
+    private static boolean isUpper(char c) {
+        return c >= 'A' && c <= 'Z';
+    }
+}
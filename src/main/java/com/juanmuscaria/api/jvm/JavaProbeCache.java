@@ -0,0 +1,183 @@
+package com.juanmuscaria.api.jvm;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Keeps probe results across runs so known installations don't need a jvm launch every time.
+// Entries are keyed by the real path of the executable and validated against its size, mtime and inode,
+// an in place upgrade of the jdk replaces the launcher and invalidates the entry on its own.
+public class JavaProbeCache {
+    // v1 wrote missing values as empty strings
+    private static final String HEADER = "# javactl probe cache v2";
+    private static final String NULL = "\\N";
+    private static final AtomicInteger hits = new AtomicInteger();
+    private static final AtomicInteger misses = new AtomicInteger();
+    private static Map<Path, Entry> entries;
+
+    private JavaProbeCache() {
+        throw new IllegalStateException("Sealed class");
+    }
+
+    public static JavaInstallation get(Path exec, boolean refresh, List<IJavaProber> probers) {
+        Path realPath;
+        String stamp;
+        try {
+            realPath = exec.toRealPath();
+            stamp = stampOf(realPath);
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Unable to probe java installation, are you using the right path?", e);
+        }
+        Map<Path, Entry> cache = entries();
+        Entry entry = cache.get(realPath);
+        if (!refresh && entry != null && entry.stamp.equals(stamp)) {
+            hits.incrementAndGet();
+            return entry.toInstallation(exec.toFile());
+        }
+        misses.incrementAndGet();
+        JavaInstallation installation = JavaInstallation.probeUncached(exec.toFile(), probers);
+        // A probe that half failed is retried next time instead of sticking around until the launcher changes
+        if (isComplete(installation)) {
+            cache.put(realPath, new Entry(stamp, installation));
+            save();
+        } else if (cache.remove(realPath) != null) {
+            save();
+        }
+        return installation;
+    }
+
+    public static int getHits() {
+        return hits.get();
+    }
+
+    public static int getMisses() {
+        return misses.get();
+    }
+
+    public static String stats() {
+        return String.format("Probe cache: %d hits, %d misses", getHits(), getMisses());
+    }
+
+    // Home and version are what javactl relies on, the process prober leaves everything null when the jvm failed
+    private static boolean isComplete(JavaInstallation installation) {
+        return installation.getHome() != null && !installation.getHome().isBlank()
+                && installation.getVersion() != null && !installation.getVersion().isBlank();
+    }
+
+    private static String stampOf(Path realPath) throws IOException {
+        BasicFileAttributes attributes = Files.readAttributes(realPath, BasicFileAttributes.class);
+        // fileKey holds both device and inode on unix systems
+        return attributes.size() + ":" + attributes.lastModifiedTime().toMillis() + ":" + attributes.fileKey();
+    }
+
+    private static Path getCacheFile() {
+        // Benchmarks keep their probes out of the user's cache
+        String file = System.getProperty("javactl.probeCache");
+        if (file != null && !file.isBlank())
+            return Paths.get(file);
+        String home = System.getProperty("user.home");
+        if (home == null || home.isBlank())
+            return null;
+        return Paths.get(home, ".javactl", "probe.cache");
+    }
+
+    private static synchronized Map<Path, Entry> entries() {
+        if (entries != null)
+            return entries;
+        entries = new ConcurrentHashMap<>();
+        Path file = getCacheFile();
+        if (file == null || !Files.isRegularFile(file))
+            return entries;
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            if (!HEADER.equals(reader.readLine()))
+                return entries; // Unknown format, it will be rewritten on the next probe
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String[] fields = line.split("\t", -1);
+                if (fields.length != 10)
+                    continue;
+                entries.put(Paths.get(fields[0]), new Entry(fields));
+            }
+        } catch (IOException | InvalidPathException ignored) {
+            // A broken cache is just a cold cache
+        }
+        return entries;
+    }
+
+    // Forgets what was loaded, the next lookup reads the cache file again
+    static synchronized void reload() {
+        entries = null;
+    }
+
+    private static synchronized void save() {
+        Path file = getCacheFile();
+        if (file == null)
+            return;
+        Path tmp = null;
+        try {
+            Files.createDirectories(file.getParent());
+            tmp = Files.createTempFile(file.getParent(), "probe", ".tmp");
+            try (BufferedWriter writer = Files.newBufferedWriter(tmp, StandardCharsets.UTF_8)) {
+                writer.write(HEADER);
+                writer.write('\n');
+                for (Map.Entry<Path, Entry> entry : entries.entrySet()) {
+                    writer.write(entry.getKey().toString());
+                    writer.write('\t');
+                    writer.write(entry.getValue().toLine());
+                    writer.write('\n');
+                }
+            }
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            // Read only home or similar, keep working without a persistent cache
+            try {
+                if (tmp != null)
+                    Files.deleteIfExists(tmp);
+            } catch (IOException ignored) {
+                // Nothing more to do
+            }
+        }
+    }
+
+    private static class Entry {
+        final String stamp;
+        final String[] values;
+
+        Entry(String stamp, JavaInstallation installation) {
+            this.stamp = stamp;
+            this.values = new String[]{
+                    installation.getHome(), installation.getVersion(), installation.getVendor(),
+                    installation.getArch(), installation.getVm(), installation.getVmVersion(),
+                    installation.getRuntime(), installation.getRuntimeVersion()
+            };
+        }
+
+        Entry(String[] fields) {
+            this.stamp = fields[1];
+            this.values = new String[8];
+            for (int i = 0; i < 8; i++)
+                values[i] = fields[i + 2].equals(NULL) ? null : fields[i + 2].replace("\\\\", "\\");
+        }
+
+        JavaInstallation toInstallation(File exec) {
+            return new JavaInstallation(exec, values[0], values[1], values[2], values[3],
+                    values[4], values[5], values[6], values[7]);
+        }
+
+        String toLine() {
+            StringBuilder b = new StringBuilder(stamp);
+            // Tabs and line breaks would break the file, a backslash is doubled so no value reads back as null
+            for (String value : values)
+                b.append('\t').append(value == null ? NULL : value.replace("\\", "\\\\").replaceAll("[\t\r\n]", " "));
+            return b.toString();
+        }
+    }
+}
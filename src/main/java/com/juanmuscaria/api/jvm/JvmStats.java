@@ -0,0 +1,106 @@
+package com.juanmuscaria.api.jvm;
+
+import lombok.Getter;
+
+import java.time.Duration;
+
+// A snapshot of a jvm's counters decoded from its PerfData, sizes in bytes and times in nanoseconds
+public class JvmStats {
+    private static final String[] SPACE_USED = new String[9];
+    private static final String[] GEN_CAPACITY = new String[3];
+    private static final String[] GEN_MAX_CAPACITY = new String[3];
+
+    static {
+        // Serial, Parallel and G1 expose eden and both survivors as generation 0, old as generation 1
+        for (int gen = 0; gen < 3; gen++) {
+            GEN_CAPACITY[gen] = "sun.gc.generation." + gen + ".capacity";
+            GEN_MAX_CAPACITY[gen] = "sun.gc.generation." + gen + ".maxCapacity";
+            for (int space = 0; space < 3; space++)
+                SPACE_USED[gen * 3 + space] = "sun.gc.generation." + gen + ".space." + space + ".used";
+        }
+    }
+
+    @Getter
+    private final long heapUsed;
+    @Getter
+    private final long heapCommitted;
+    @Getter
+    private final long heapMax;
+    @Getter
+    private final long metaspaceUsed;
+    @Getter
+    private final long youngGcCount;
+    @Getter
+    private final long youngGcTime;
+    @Getter
+    private final long oldGcCount;
+    @Getter
+    private final long oldGcTime;
+    @Getter
+    private final String lastGcCause;
+    @Getter
+    private final long safepoints;
+    @Getter
+    private final long safepointTime;
+    @Getter
+    private final long loadedClasses;
+    @Getter
+    private final long unloadedClasses;
+    @Getter
+    private final long liveThreads;
+    @Getter
+    private final long daemonThreads;
+    @Getter
+    private final long peakThreads;
+    @Getter
+    private final long uptime;
+
+    public JvmStats(PerfData data) {
+        // Times are published in ticks of the high resolution timer
+        double nanosPerTick = 1_000_000_000d / data.getLong("sun.os.hrt.frequency", 1_000_000_000L);
+        long used = 0, committed = 0, max = 0;
+        for (String space : SPACE_USED)
+            used += Math.max(data.getLong(space, 0), 0);
+        for (int gen = 0; gen < 3; gen++) {
+            committed += Math.max(data.getLong(GEN_CAPACITY[gen], 0), 0);
+            max += Math.max(data.getLong(GEN_MAX_CAPACITY[gen], 0), 0);
+        }
+        heapUsed = used;
+        heapCommitted = committed;
+        heapMax = max;
+        metaspaceUsed = data.getLong("sun.gc.metaspace.used", -1);
+        youngGcCount = data.getLong("sun.gc.collector.0.invocations", 0);
+        youngGcTime = (long) (data.getLong("sun.gc.collector.0.time", 0) * nanosPerTick);
+        oldGcCount = data.getLong("sun.gc.collector.1.invocations", 0);
+        oldGcTime = (long) (data.getLong("sun.gc.collector.1.time", 0) * nanosPerTick);
+        lastGcCause = data.getString("sun.gc.lastCause").orElse("");
+        safepoints = data.getLong("sun.rt.safepoints", 0);
+        safepointTime = (long) (data.getLong("sun.rt.safepointTime", 0) * nanosPerTick);
+        loadedClasses = data.getLong("java.cls.loadedClasses", 0) + data.getLong("java.cls.sharedLoadedClasses", 0);
+        unloadedClasses = data.getLong("java.cls.unloadedClasses", 0) + data.getLong("java.cls.sharedUnloadedClasses", 0);
+        liveThreads = data.getLong("java.threads.live", 0);
+        daemonThreads = data.getLong("java.threads.daemon", 0);
+        peakThreads = data.getLong("java.threads.livePeak", 0);
+        uptime = (long) (data.getLong("sun.os.hrt.ticks", 0) * nanosPerTick);
+    }
+
+    public long getGcCount() {
+        return youngGcCount + oldGcCount;
+    }
+
+    public long getGcTime() {
+        return youngGcTime + oldGcTime;
+    }
+
+    // Share of wall time spent in gc since an earlier snapshot of the same jvm, 0 to 1
+    public double gcLoadSince(JvmStats previous) {
+        long elapsed = uptime - previous.uptime;
+        if (elapsed <= 0)
+            return 0;
+        return Math.min(1, Math.max(0, (getGcTime() - previous.getGcTime()) / (double) elapsed));
+    }
+
+    public Duration getUptimeDuration() {
+        return Duration.ofNanos(uptime);
+    }
+}
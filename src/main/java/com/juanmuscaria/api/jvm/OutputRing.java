@@ -0,0 +1,58 @@
+package com.juanmuscaria.api.jvm;
+
+// Bounded buffer between the journal reader and the terminal. Offering never blocks the reader, when the terminal
+// falls behind the oldest lines are overwritten and counted so the next frame can say how many were skipped.
+class OutputRing {
+    private final String[] lines;
+    // Index of the oldest buffered line
+    private int head;
+    private int size;
+    private long skipped;
+
+    OutputRing(int capacity) {
+        if (capacity <= 0)
+            throw new IllegalArgumentException("Capacity must be positive");
+        this.lines = new String[capacity];
+    }
+
+    synchronized void offer(String line) {
+        if (size == lines.length) {
+            lines[head] = null;
+            head = (head + 1) % lines.length;
+            size--;
+            skipped++;
+        }
+        lines[(head + size) % lines.length] = line;
+        size++;
+        if (size == 1)
+            notifyAll();
+    }
+
+    // Waits until there is something to draw
+    synchronized void await() throws InterruptedException {
+        while (size == 0)
+            wait();
+    }
+
+    // Everything buffered as a single block of text, null when empty
+    synchronized String drain() {
+        if (size == 0)
+            return null;
+        StringBuilder frame = new StringBuilder();
+        if (skipped > 0)
+            frame.append("-- ").append(skipped).append(" lines skipped --\n");
+        for (int i = 0; i < size; i++) {
+            int index = (head + i) % lines.length;
+            frame.append(lines[index]).append('\n');
+            lines[index] = null;
+        }
+        head = 0;
+        size = 0;
+        skipped = 0;
+        return frame.toString();
+    }
+
+    synchronized int size() {
+        return size;
+    }
+}
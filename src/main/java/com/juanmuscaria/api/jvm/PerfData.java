@@ -0,0 +1,153 @@
+package com.juanmuscaria.api.jvm;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+
+// The performance counters a HotSpot jvm publishes in <tmp>/hsperfdata_<user>/<pid>, the same data jstat reads.
+// The file is memory mapped read-only, so reading a counter is a plain memory load: no attach, no process, no syscall.
+// Layout from hotspot's perfMemory.hpp, a 32 byte prologue followed by self describing entries.
+public class PerfData implements Closeable {
+    private static final int MAGIC = 0xcafec0c0;
+    private static final int PROLOGUE_BYTE_ORDER = 4;
+    private static final int PROLOGUE_ACCESSIBLE = 7;
+    private static final int PROLOGUE_ENTRY_OFFSET = 24;
+    private static final int PROLOGUE_NUM_ENTRIES = 28;
+    private static final byte TYPE_LONG = 'J';
+    private static final byte TYPE_BYTE = 'B';
+    private final Path file;
+    private final FileChannel channel;
+    private final MappedByteBuffer buffer;
+    // Counter name -> data offset, strings also keep their max length
+    private final Map<String, Integer> longs = new HashMap<>();
+    private final Map<String, int[]> strings = new HashMap<>();
+    private int indexedEntries;
+    private int nextEntry;
+
+    public PerfData(Path file) throws IOException {
+        this.file = file;
+        channel = FileChannel.open(file, StandardOpenOption.READ);
+        try {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            // The magic is always stored big endian, the rest uses the jvm's native order
+            if (buffer.capacity() < 32 || buffer.getInt(0) != MAGIC)
+                throw new IOException("Not a hsperfdata file: " + file);
+            buffer.order(buffer.get(PROLOGUE_BYTE_ORDER) == 0 ? ByteOrder.BIG_ENDIAN : ByteOrder.LITTLE_ENDIAN);
+            nextEntry = buffer.getInt(PROLOGUE_ENTRY_OFFSET);
+            index();
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    // Finds the counters of a running jvm. Daemons with PrivateTmp=true publish them under their private /tmp.
+    public static Optional<Path> locate(long pid) {
+        for (File tmp : tmpDirs()) {
+            File[] users = tmp.listFiles((dir, name) -> name.startsWith("hsperfdata_"));
+            if (users == null)
+                continue;
+            for (File user : users) {
+                File file = new File(user, String.valueOf(pid));
+                if (file.isFile())
+                    return Optional.of(file.toPath());
+            }
+        }
+        return Optional.empty();
+    }
+
+    private static File[] tmpDirs() {
+        File[] privateTmp = new File("/tmp").listFiles((dir, name) -> name.startsWith("systemd-private-"));
+        if (privateTmp == null)
+            return new File[]{new File("/tmp")};
+        File[] dirs = new File[privateTmp.length + 1];
+        dirs[0] = new File("/tmp");
+        for (int i = 0; i < privateTmp.length; i++)
+            dirs[i + 1] = new File(privateTmp[i], "tmp");
+        return dirs;
+    }
+
+    public Path getFile() {
+        return file;
+    }
+
+    // False until the jvm finished initializing its counters
+    public boolean isAccessible() {
+        return buffer.get(PROLOGUE_ACCESSIBLE) != 0;
+    }
+
+    // The jvm keeps the file and its mapping around until it exits, then deletes it
+    public boolean isStale() {
+        return !Files.exists(file);
+    }
+
+    public long getLong(String name, long fallback) {
+        Integer offset = longs.get(name);
+        if (offset == null) {
+            // Counters can be created after startup (a new collector, a late subsystem)
+            if (!index() || (offset = longs.get(name)) == null)
+                return fallback;
+        }
+        return buffer.getLong(offset);
+    }
+
+    public Optional<String> getString(String name) {
+        int[] entry = strings.get(name);
+        if (entry == null && (!index() || (entry = strings.get(name)) == null))
+            return Optional.empty();
+        byte[] value = new byte[entry[1]];
+        int length = 0;
+        while (length < value.length && (value[length] = buffer.get(entry[0] + length)) != 0)
+            length++;
+        return Optional.of(new String(value, 0, length, StandardCharsets.UTF_8));
+    }
+
+    // Walks the entries added since the last call, returns whether any was found
+    private boolean index() {
+        int entries = buffer.getInt(PROLOGUE_NUM_ENTRIES);
+        if (entries == indexedEntries)
+            return false;
+        while (indexedEntries < entries) {
+            int entryLength = buffer.getInt(nextEntry);
+            int nameOffset = buffer.getInt(nextEntry + 4);
+            int vectorLength = buffer.getInt(nextEntry + 8);
+            byte type = buffer.get(nextEntry + 12);
+            int dataOffset = buffer.getInt(nextEntry + 16);
+            if (entryLength <= 0 || nextEntry + entryLength > buffer.capacity())
+                break; // Being written, pick it up next time
+            String name = readName(nextEntry + nameOffset, nextEntry + entryLength);
+            if (vectorLength == 0 && type == TYPE_LONG)
+                longs.put(name, nextEntry + dataOffset);
+            else if (vectorLength > 0 && type == TYPE_BYTE)
+                strings.put(name, new int[]{nextEntry + dataOffset, vectorLength});
+            nextEntry += entryLength;
+            indexedEntries++;
+        }
+        return true;
+    }
+
+    private String readName(int start, int limit) {
+        int end = start;
+        while (end < limit && buffer.get(end) != 0)
+            end++;
+        byte[] name = new byte[end - start];
+        for (int i = 0; i < name.length; i++)
+            name[i] = buffer.get(start + i);
+        return new String(name, StandardCharsets.US_ASCII);
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
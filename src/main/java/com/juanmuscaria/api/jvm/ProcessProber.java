@@ -0,0 +1,61 @@
+package com.juanmuscaria.api.jvm;
+
+import lombok.SneakyThrows;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.util.Optional;
+
+// Launches the installation with a small probe class that prints the system properties we care about.
+// Always works for a valid executable, but costs a full jvm startup.
+public class ProcessProber implements IJavaProber {
+    private static File probe;
+
+    // Extracts the probe on first use, most commands never need to launch another jvm
+    static synchronized File getProbe() {
+        if (probe != null)
+            return probe;
+        InputStream probeClass = ProcessProber.class.getResourceAsStream("/probe/JavaProbe.bin");
+        if (probeClass == null)
+            throw new IllegalStateException("Unable to extract java probe");
+
+        File tmp;
+        try {
+            tmp = new File(Files.createTempDirectory("javaclt").toFile(), "JavaProbe.class");
+            tmp.deleteOnExit();
+            tmp.getParentFile().deleteOnExit();
+            try (probeClass; OutputStream out = new FileOutputStream(tmp)) {
+                probeClass.transferTo(out);
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+            throw new IllegalStateException("Unable to extract java probe");
+        }
+        probe = tmp;
+        return probe;
+    }
+
+    // To test if we can probe in this system.
+    public static void init() {
+        getProbe();
+    }
+
+    // TODO: Is it the best way...?
+    @Override
+    @SneakyThrows(InterruptedException.class)
+    public Optional<JavaInstallation> probe(File exec) {
+        try {
+            var builder = new ProcessBuilder();
+            builder.directory(getProbe().getParentFile());
+            builder.command(exec.getAbsolutePath(), "-cp", ".", "JavaProbe");
+            var process = builder.start();
+            process.waitFor();
+            try (BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream()))) {
+                return Optional.of(new JavaInstallation(exec, reader.readLine(), reader.readLine(), reader.readLine(),
+                        reader.readLine(), reader.readLine(), reader.readLine(), reader.readLine(), reader.readLine()));
+            }
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Unable to probe java installation, are you using the right path?", e);
+        }
+    }
+}
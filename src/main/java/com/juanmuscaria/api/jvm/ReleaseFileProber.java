@@ -0,0 +1,108 @@
+package com.juanmuscaria.api.jvm;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+
+// Reads the installation metadata without starting it, using the jdk's release file and the launcher's ELF header.
+// Only hotspot based 64 bit jdks 9+ carry everything we need there, anything else is left for the next prober.
+public class ReleaseFileProber implements IJavaProber {
+    private static final byte[] ELF_MAGIC = {0x7f, 'E', 'L', 'F'};
+
+    @Override
+    public Optional<JavaInstallation> probe(File exec) {
+        try {
+            Path realExec = exec.toPath().toRealPath();
+            Path home = realExec.getParent() == null ? null : realExec.getParent().getParent();
+            if (home == null)
+                return Optional.empty();
+            Path release = home.resolve("release");
+            if (!Files.isRegularFile(release))
+                return Optional.empty();
+            Map<String, String> properties = readRelease(release);
+            String version = properties.get("JAVA_VERSION");
+            String vendor = properties.get("IMPLEMENTOR");
+            String runtimeVersion = properties.get("JAVA_RUNTIME_VERSION"); // Missing on jdk 8
+            String variant = properties.get("JVM_VARIANT");
+            if (version == null || vendor == null || runtimeVersion == null)
+                return Optional.empty();
+            // OpenJ9, GraalVM and friends report a different vm name and version, let the real probe handle them
+            if ((variant != null && !"Hotspot".equalsIgnoreCase(variant)) || properties.containsKey("GRAALVM_VERSION"))
+                return Optional.empty();
+            String arch = readElfArch(realExec);
+            if (arch == null)
+                return Optional.empty();
+            boolean commercial = "commercial".equals(properties.get("BUILD_TYPE"));
+            String vmVersion = properties.getOrDefault("JVM_VERSION", runtimeVersion);
+            return Optional.of(new JavaInstallation(exec, home.toString(), version, vendor, arch,
+                    commercial ? "Java HotSpot(TM) 64-Bit Server VM" : "OpenJDK 64-Bit Server VM", vmVersion,
+                    commercial ? "Java(TM) SE Runtime Environment" : "OpenJDK Runtime Environment", runtimeVersion));
+        } catch (IOException e) {
+            return Optional.empty();
+        }
+    }
+
+    // KEY="value" lines, as written by the jdk build
+    static Map<String, String> readRelease(Path release) throws IOException {
+        Map<String, String> properties = new HashMap<>();
+        try (BufferedReader reader = Files.newBufferedReader(release, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                int separator = line.indexOf('=');
+                if (separator <= 0)
+                    continue;
+                String value = line.substring(separator + 1).trim();
+                if (value.length() >= 2 && value.startsWith("\"") && value.endsWith("\""))
+                    value = value.substring(1, value.length() - 1);
+                properties.put(line.substring(0, separator).trim(), value);
+            }
+        }
+        return properties;
+    }
+
+    // Maps the ELF e_machine of a 64 bit executable to the os.arch value the jvm would report
+    static String readElfArch(Path exec) throws IOException {
+        byte[] header = new byte[20];
+        try (InputStream in = Files.newInputStream(exec)) {
+            if (in.readNBytes(header, 0, header.length) != header.length)
+                return null;
+        }
+        for (int i = 0; i < ELF_MAGIC.length; i++) {
+            if (header[i] != ELF_MAGIC[i])
+                return null;
+        }
+        if (header[4] != 2) // ELFCLASS64, 32 bit jdks may report client vms
+            return null;
+        boolean littleEndian = header[5] == 1;
+        int machine = ByteBuffer.wrap(header, 18, 2)
+                .order(littleEndian ? ByteOrder.LITTLE_ENDIAN : ByteOrder.BIG_ENDIAN)
+                .getShort() & 0xFFFF;
+        switch (machine) {
+            case 62:
+                return "amd64";
+            case 183:
+                return "aarch64";
+            case 21:
+                return littleEndian ? "ppc64le" : "ppc64";
+            case 22:
+                return "s390x";
+            case 243:
+                return "riscv64";
+            case 258:
+                return "loongarch64";
+            case 43:
+                return "sparcv9";
+            default:
+                return null;
+        }
+    }
+}
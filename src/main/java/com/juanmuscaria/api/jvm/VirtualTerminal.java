@@ -1,35 +1,64 @@
 package com.juanmuscaria.api.jvm;
 
 import com.juanmuscaria.api.IService;
+import com.juanmuscaria.impl.JournalEntry;
+import com.juanmuscaria.impl.JournalReader;
+import com.juanmuscaria.impl.SystemdJournal;
 import lombok.SneakyThrows;
-import org.jline.reader.EndOfFileException;
-import org.jline.reader.LineReader;
-import org.jline.reader.LineReaderBuilder;
-import org.jline.reader.UserInterruptException;
+import org.jline.keymap.KeyMap;
+import org.jline.reader.*;
 import org.jline.terminal.Size;
 import org.jline.terminal.Terminal;
 import org.jline.terminal.TerminalBuilder;
+import org.jline.utils.InfoCmp;
 
-import java.io.BufferedReader;
-import java.io.File;
-import java.io.FileOutputStream;
-import java.io.InputStreamReader;
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.util.ArrayList;
-import java.util.Arrays;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
 import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
 
 public class VirtualTerminal {
+    // Entries fetched each time the user asks for older output
+    static final int SCROLLBACK_PAGE = 200;
+    // Output is drawn at most this often, everything logged in between goes out as a single redraw
+    static final long FRAME_MILLIS = 50;
+    // Lines kept while the terminal is behind or paused, older ones are skipped
+    static final int BUFFERED_LINES = 1000;
+    private static final DateTimeFormatter TIMESTAMP = DateTimeFormatter.ofPattern("MMM dd HH:mm:ss").withZone(ZoneId.systemDefault());
     final String name;
     private boolean useCat;
+    private final int lines;
+    private final boolean resume;
     private final AtomicBoolean stop = new AtomicBoolean(false);
+    private final AtomicBoolean paging = new AtomicBoolean(false);
+    private final AtomicBoolean paused = new AtomicBoolean(false);
+    private final OutputRing output = new OutputRing(BUFFERED_LINES);
     File socket;
+    // Newest entry shown, saved on exit so the next session can resume from it
+    private volatile String lastCursor;
+    // Oldest entry shown, scrollback pages in what was logged before it
+    private volatile String oldestCursor;
 
-    public VirtualTerminal(String name, boolean useCat) {
-        socket = IService.SERVICE.getSocketFileFor(name).orElseThrow();
+    public VirtualTerminal(String name, boolean useCat, int lines, boolean resume) {
+        this(name, IService.service().getSocketFileFor(name).orElseThrow(), useCat, lines, resume);
+    }
+
+    VirtualTerminal(String name, File socket, boolean useCat, int lines, boolean resume) {
+        this.socket = socket;
         this.name = name;
         this.useCat = useCat;
+        this.lines = lines;
+        this.resume = resume;
     }
 
     @SneakyThrows
@@ -47,51 +76,213 @@ public class VirtualTerminal {
             builder.variable(LineReader.HISTORY_FILE, Paths.get(userHome.getAbsolutePath(), ".javactl", name + ".history"));
         LineReader reader = builder
                 .build();
+        ExecutorService pager = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "javactl-scrollback");
+            thread.setDaemon(true);
+            return thread;
+        });
+        // Page Up or Alt-P pages in older output
+        reader.getWidgets().put("javactl-scrollback", () -> {
+            scrollback(reader, pager);
+            return true;
+        });
+        KeyMap<Binding> keys = reader.getKeyMaps().get(LineReader.MAIN);
+        keys.bind(new Reference("javactl-scrollback"), KeyMap.key(terminal, InfoCmp.Capability.key_ppage));
+        keys.bind(new Reference("javactl-scrollback"), KeyMap.alt('p'));
+        // Ctrl-O holds the output so typing is not fighting a flood of logs
+        reader.getWidgets().put("javactl-pause", () -> {
+            if (!paused.getAndSet(true)) {
+                reader.printAbove("-- output paused, Ctrl-O to resume --\n");
+            } else {
+                paused.set(false);
+                synchronized (paused) {
+                    paused.notifyAll();
+                }
+            }
+            return true;
+        });
+        keys.bind(new Reference("javactl-pause"), KeyMap.ctrl('O'));
         FileOutputStream socketIo = new FileOutputStream(socket);
+        String cursor = resume ? readCursor().orElse(null) : null;
+        AtomicReference<Process> journal = new AtomicReference<>();
         Thread journalReader = new Thread(() -> {
-            Process journal = null;
             try {
-                BufferedReader bufferedReader;
-                journal = makeJournal(useCat).start();
-                bufferedReader = new BufferedReader(new InputStreamReader(journal.getInputStream()));
-                String line;
-                while ((journal.isAlive() && (line = bufferedReader.readLine()) != null)) {
-                    reader.printAbove(line + "\n");
-                }
+                followJournal(journal, cursor);
             } catch (Throwable e) {
-                reader.printAbove(e.getMessage());
-                if (journal != null && journal.isAlive())
-                    journal.destroy();
+                output.offer(String.valueOf(e.getMessage()));
                 stop.set(true);
             }
         });
         journalReader.setDaemon(true);
         journalReader.start();
-        while (true) {
-            try {
-                String line = reader.readLine(name+" > ");
-                socketIo.write(line.getBytes());
-                socketIo.write('\n');
-                socketIo.flush();
-                if (stop.get())
+        Thread renderer = new Thread(() -> render(reader), "javactl-renderer");
+        renderer.setDaemon(true);
+        renderer.start();
+        try {
+            while (true) {
+                try {
+                    writeLine(socketIo, reader.readLine(name + " > "));
+                    if (stop.get())
+                        break;
+                } catch (UserInterruptException | EndOfFileException e) {
                     break;
-            } catch (UserInterruptException | EndOfFileException e) {
-                break;
-            } catch (Exception | Error e) {
-                e.printStackTrace();
-                break;
+                } catch (Exception | Error e) {
+                    e.printStackTrace();
+                    break;
+                }
             }
+        } finally {
+            stop.set(true);
+            journalReader.interrupt();
+            Optional.ofNullable(journal.get()).ifPresent(Process::destroy);
+            renderer.interrupt();
+            pager.shutdownNow();
+            saveCursor();
         }
-        journalReader.interrupt();
     }
 
-    private ProcessBuilder makeJournal(boolean useCat) {
-        ProcessBuilder b = new ProcessBuilder();
-        List<String> command = new ArrayList<>(Arrays.asList("journalctl", "-u", "javactl-" + name + ".service", "-b", "-f", "-a"));
+    // Runs journalctl until the session ends. A saved cursor the journal no longer has, because it was rotated or
+    // vacuumed since, makes journalctl fail right away: the cursor is dropped and the session starts from the tail.
+    void followJournal(AtomicReference<Process> journal, String cursor) throws IOException, InterruptedException {
+        String error = followJournal(journal, SystemdJournal.follow(name, lines, cursor));
+        if (error != null && cursor != null && lastCursor == null && !stop.get()) {
+            Files.deleteIfExists(cursorFile());
+            output.offer("-- unable to resume (" + error + "), showing " + (lines < 0 ? "all" : "the last " + lines) + " lines --");
+            error = followJournal(journal, SystemdJournal.follow(name, lines, null));
+        }
+        if (error != null && !stop.get())
+            output.offer("-- " + error + " --");
+    }
+
+    // What journalctl complained about when it failed, null when it ended fine or the session is closing.
+    // stderr goes to a file: a pipe only read after stdout ends would fill up with warnings and stall the output.
+    private String followJournal(AtomicReference<Process> journal, ProcessBuilder builder) throws IOException, InterruptedException {
+        Path errors = Files.createTempFile("javactl-journalctl", ".err");
+        try {
+            Process process = builder.redirectError(errors.toFile()).start();
+            journal.set(process);
+            if (stop.get())
+                process.destroy();
+            try (JournalReader reader = new JournalReader(process.getInputStream())) {
+                forwardLines(reader, output::offer);
+            }
+            int exit = process.waitFor();
+            if (exit == 0 || stop.get())
+                return null;
+            String error = tail(errors, 4096).trim();
+            return error.isEmpty() ? "journalctl exited with " + exit : error;
+        } finally {
+            Files.deleteIfExists(errors);
+        }
+    }
+
+    // The last bytes of a file, starting at a line
+    static String tail(Path file, int max) throws IOException {
+        try (RandomAccessFile in = new RandomAccessFile(file.toFile(), "r")) {
+            long start = Math.max(0, in.length() - max);
+            byte[] bytes = new byte[(int) (in.length() - start)];
+            in.seek(start);
+            in.readFully(bytes);
+            String text = new String(bytes, StandardCharsets.UTF_8);
+            int line = text.indexOf('\n');
+            return start == 0 || line < 0 ? text : text.substring(line + 1);
+        }
+    }
+
+    // Journal -> terminal, one call per entry until the journal closes its output
+    void forwardLines(JournalReader in, Consumer<String> out) throws IOException {
+        while (in.next()) {
+            JournalEntry entry = JournalEntry.of(in);
+            if (oldestCursor == null)
+                oldestCursor = entry.getCursor();
+            lastCursor = entry.getCursor();
+            out.accept(format(entry));
+        }
+    }
+
+    // Drains the buffered output into one redraw per frame, holding it while paused
+    private void render(LineReader reader) {
+        try {
+            while (true) {
+                output.await();
+                synchronized (paused) {
+                    while (paused.get())
+                        paused.wait();
+                }
+                String frame = output.drain();
+                if (frame != null)
+                    reader.printAbove(frame);
+                Thread.sleep(FRAME_MILLIS);
+            }
+        } catch (InterruptedException ignored) {
+            // Session closed
+        }
+    }
+
+    // Fetched in the background so typing is never blocked on journalctl
+    private void scrollback(LineReader reader, ExecutorService pager) {
+        String before = oldestCursor;
+        if (before == null || !paging.compareAndSet(false, true))
+            return;
+        pager.submit(() -> {
+            try {
+                List<JournalEntry> entries = SystemdJournal.before(name, before, SCROLLBACK_PAGE);
+                if (entries.isEmpty()) {
+                    reader.printAbove("-- no earlier output --\n");
+                    return;
+                }
+                // Printed as a single block, one redraw for the whole page
+                StringBuilder page = new StringBuilder("-- ").append(entries.size()).append(" earlier lines --\n");
+                for (JournalEntry entry : entries)
+                    page.append(format(entry)).append('\n');
+                page.append("-- end of earlier lines --\n");
+                reader.printAbove(page.toString());
+                oldestCursor = entries.get(0).getCursor();
+            } catch (RuntimeException e) {
+                reader.printAbove("Unable to read earlier output: " + e.getMessage() + "\n");
+            } finally {
+                paging.set(false);
+            }
+        });
+    }
+
+    // Like journalctl's short output, or just the message when using cat
+    String format(JournalEntry entry) {
         if (useCat)
-            command.addAll(Arrays.asList("--output", "cat"));
-        b.command(command);
-        b.redirectErrorStream(true);
-        return b;
+            return entry.getMessage();
+        String identifier = entry.getIdentifier() != null ? entry.getIdentifier() : name;
+        String pid = entry.getPid();
+        return TIMESTAMP.format(entry.getTimestamp()) + " " + identifier + (pid != null ? "[" + pid + "]" : "") + ": " + entry.getMessage();
+    }
+
+    // Terminal -> daemon stdin, as a single write so it can't interleave with a javactl send. That holds for lines up to
+    // PIPE_BUF bytes, the kernel may split longer writes.
+    static void writeLine(OutputStream socketIo, String line) throws IOException {
+        socketIo.write((line + "\n").getBytes(StandardCharsets.UTF_8));
+    }
+
+    // Kept next to the console history
+    private Path cursorFile() {
+        return Paths.get(System.getProperty("user.home", ""), ".javactl", name + ".cursor");
+    }
+
+    private Optional<String> readCursor() {
+        try {
+            String cursor = Files.readString(cursorFile()).trim();
+            return cursor.isEmpty() ? Optional.empty() : Optional.of(cursor);
+        } catch (IOException e) {
+            return Optional.empty();
+        }
+    }
+
+    private void saveCursor() {
+        if (lastCursor == null)
+            return;
+        try {
+            Files.createDirectories(cursorFile().getParent());
+            Files.writeString(cursorFile(), lastCursor + "\n");
+        } catch (IOException ignored) {
+            // Next session just starts from the tail
+        }
     }
 }
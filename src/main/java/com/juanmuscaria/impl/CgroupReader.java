@@ -0,0 +1,261 @@
+package com.juanmuscaria.impl;
+
+import lombok.Getter;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+// Resource usage of a unit from its cgroup v2 directory. Files are opened once and re-read in place with positional
+// reads into a shared buffer, parsing works on the raw bytes, so refreshing allocates nothing.
+// Values are -1 when the controller is not enabled for the unit.
+public class CgroupReader implements Closeable {
+    public static final String[] MEMORY_STAT_KEYS = {"anon", "file", "kernel_stack", "sock", "shmem", "pgfault", "pgmajfault"};
+    public static final String[] PRESSURE_RESOURCES = {"cpu", "memory", "io"};
+    private static final byte[][] MEMORY_STAT_KEY_BYTES = encode(MEMORY_STAT_KEYS);
+    private static final byte[][] CPU_STAT_KEY_BYTES = encode(new String[]{"usage_usec", "user_usec", "system_usec",
+            "nr_periods", "nr_throttled", "throttled_usec"});
+    private static final byte[][] IO_STAT_KEY_BYTES = encode(new String[]{"rbytes", "wbytes", "rios", "wios"});
+    private static final byte[][] PRESSURE_KEY_BYTES = encode(new String[]{"total"});
+    private static final byte[] SOME = "some".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] FULL = "full".getBytes(StandardCharsets.US_ASCII);
+    private final Path dir;
+    private final ByteBuffer buffer;
+    private final FileChannel[] files = new FileChannel[7];
+    private final long[] scratch = new long[8];
+    // usage, user, system (usec), periods, throttled periods, throttled (usec)
+    @Getter
+    private final long[] cpu = new long[6];
+    @Getter
+    private long memoryCurrent = -1;
+    @Getter
+    private final long[] memoryStat = new long[MEMORY_STAT_KEYS.length];
+    // Stall totals in usec, [resource * 2] is "some", [resource * 2 + 1] is "full"
+    @Getter
+    private final long[] pressure = new long[PRESSURE_RESOURCES.length * 2];
+    @Getter
+    private final IoDevice[] devices = new IoDevice[16];
+    @Getter
+    private int deviceCount;
+
+    // The buffer can be shared between readers that are refreshed from the same thread
+    public CgroupReader(Path dir, ByteBuffer buffer) {
+        this.dir = dir;
+        this.buffer = buffer;
+        for (int i = 0; i < devices.length; i++)
+            devices[i] = new IoDevice();
+    }
+
+    public static ByteBuffer newBuffer() {
+        return ByteBuffer.allocateDirect(64 * 1024);
+    }
+
+    public boolean exists() {
+        return Files.isDirectory(dir);
+    }
+
+    public void refresh() {
+        if (read(0, "cpu.stat"))
+            parseKeyValues(CPU_STAT_KEY_BYTES, cpu);
+        else
+            Arrays.fill(cpu, -1);
+        memoryCurrent = read(1, "memory.current") ? parseNumber(0, buffer.limit()) : -1;
+        if (read(2, "memory.stat"))
+            parseKeyValues(MEMORY_STAT_KEY_BYTES, memoryStat);
+        else
+            Arrays.fill(memoryStat, -1);
+        deviceCount = read(3, "io.stat") ? parseIoStat() : 0;
+        for (int resource = 0; resource < PRESSURE_RESOURCES.length; resource++) {
+            if (read(4 + resource, PRESSURE_RESOURCES[resource] + ".pressure")) {
+                parsePressure(resource);
+            } else {
+                pressure[resource * 2] = -1;
+                pressure[resource * 2 + 1] = -1;
+            }
+        }
+    }
+
+    private boolean read(int slot, String name) {
+        if (files[slot] != null && files[slot].isOpen()) {
+            try {
+                readOpen(slot);
+                return true;
+            } catch (IOException e) {
+                // A restart recreates the unit's cgroup and the old file fails with ENODEV, open the new one below
+                closeQuietly(slot);
+            }
+        }
+        try {
+            files[slot] = FileChannel.open(dir.resolve(name), StandardOpenOption.READ);
+            readOpen(slot);
+            return true;
+        } catch (IOException e) {
+            // The unit stopped (its cgroup is gone) or the controller is disabled, try opening it again next time
+            closeQuietly(slot);
+            return false;
+        }
+    }
+
+    private void readOpen(int slot) throws IOException {
+        buffer.clear();
+        long position = 0;
+        int read;
+        while (buffer.hasRemaining() && (read = files[slot].read(buffer, position)) > 0)
+            position += read;
+        buffer.flip();
+    }
+
+    // "key value" per line, values of unknown keys are ignored
+    private void parseKeyValues(byte[][] keys, long[] values) {
+        Arrays.fill(values, -1);
+        int position = 0;
+        int limit = buffer.limit();
+        while (position < limit) {
+            int lineEnd = indexOf((byte) '\n', position, limit);
+            int space = indexOf((byte) ' ', position, lineEnd);
+            int key = match(keys, position, space);
+            if (key >= 0)
+                values[key] = parseNumber(space + 1, lineEnd);
+            position = lineEnd + 1;
+        }
+    }
+
+    // "8:0 rbytes=1 wbytes=2 rios=3 wios=4 dbytes=0 dios=0" per device
+    private int parseIoStat() {
+        int count = 0;
+        int position = 0;
+        int limit = buffer.limit();
+        while (position < limit && count < devices.length) {
+            int lineEnd = indexOf((byte) '\n', position, limit);
+            int colon = indexOf((byte) ':', position, lineEnd);
+            int space = indexOf((byte) ' ', colon, lineEnd);
+            if (colon < lineEnd && space < lineEnd) {
+                IoDevice device = devices[count++];
+                device.set((int) parseNumber(position, colon), (int) parseNumber(colon + 1, space));
+                parseFields(IO_STAT_KEY_BYTES, space + 1, lineEnd, device.values);
+            }
+            position = lineEnd + 1;
+        }
+        return count;
+    }
+
+    // "some avg10=0.00 avg60=0.00 avg300=0.00 total=0" and the same for "full"
+    private void parsePressure(int resource) {
+        pressure[resource * 2] = -1;
+        pressure[resource * 2 + 1] = -1;
+        int position = 0;
+        int limit = buffer.limit();
+        while (position < limit) {
+            int lineEnd = indexOf((byte) '\n', position, limit);
+            int space = indexOf((byte) ' ', position, lineEnd);
+            int kind = equals(SOME, position, space) ? 0 : equals(FULL, position, space) ? 1 : -1;
+            if (kind >= 0) {
+                parseFields(PRESSURE_KEY_BYTES, space + 1, lineEnd, scratch);
+                pressure[resource * 2 + kind] = scratch[0];
+            }
+            position = lineEnd + 1;
+        }
+    }
+
+    // Space separated key=value fields
+    private void parseFields(byte[][] keys, int position, int limit, long[] values) {
+        Arrays.fill(values, 0, keys.length, -1);
+        while (position < limit) {
+            int end = indexOf((byte) ' ', position, limit);
+            int equals = indexOf((byte) '=', position, end);
+            int key = match(keys, position, equals);
+            if (key >= 0)
+                values[key] = parseNumber(equals + 1, end);
+            position = end + 1;
+        }
+    }
+
+    private int indexOf(byte value, int from, int limit) {
+        for (int i = from; i < limit; i++) {
+            if (buffer.get(i) == value)
+                return i;
+        }
+        return limit;
+    }
+
+    private int match(byte[][] keys, int from, int to) {
+        for (int i = 0; i < keys.length; i++) {
+            if (equals(keys[i], from, to))
+                return i;
+        }
+        return -1;
+    }
+
+    private boolean equals(byte[] key, int from, int to) {
+        if (to - from != key.length)
+            return false;
+        for (int i = 0; i < key.length; i++) {
+            if (buffer.get(from + i) != key[i])
+                return false;
+        }
+        return true;
+    }
+
+    // Only the integer part, "max" and other non numeric values read as -1
+    private long parseNumber(int from, int to) {
+        long value = 0;
+        boolean digits = false;
+        for (int i = from; i < to; i++) {
+            byte b = buffer.get(i);
+            if (b < '0' || b > '9')
+                break;
+            value = value * 10 + (b - '0');
+            digits = true;
+        }
+        return digits ? value : -1;
+    }
+
+    private static byte[][] encode(String[] keys) {
+        byte[][] encoded = new byte[keys.length][];
+        for (int i = 0; i < keys.length; i++)
+            encoded[i] = keys[i].getBytes(StandardCharsets.US_ASCII);
+        return encoded;
+    }
+
+    private void closeQuietly(int slot) {
+        if (files[slot] == null)
+            return;
+        try {
+            files[slot].close();
+        } catch (IOException ignored) {
+            // Already gone
+        }
+        files[slot] = null;
+    }
+
+    @Override
+    public void close() {
+        for (int i = 0; i < files.length; i++)
+            closeQuietly(i);
+    }
+
+    public static class IoDevice {
+        private int major = -1;
+        private int minor = -1;
+        // Kept between refreshes, only rebuilt when the slot is reused for another device
+        @Getter
+        private String label;
+        // rbytes, wbytes, rios, wios
+        @Getter
+        private final long[] values = new long[4];
+
+        void set(int major, int minor) {
+            if (major == this.major && minor == this.minor)
+                return;
+            this.major = major;
+            this.minor = minor;
+            this.label = major + ":" + minor;
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package com.juanmuscaria.impl;
+
+import lombok.Getter;
+
+import java.time.Instant;
+
+// A journal entry kept around after its JournalReader moved on, with only the fields javactl shows
+public class JournalEntry {
+    @Getter
+    private final String cursor;
+    @Getter
+    private final Instant timestamp;
+    // syslog priority, 0 (emerg) to 7 (debug)
+    @Getter
+    private final int priority;
+    @Getter
+    private final String message;
+    // Null when journald didn't record them
+    @Getter
+    private final String identifier;
+    @Getter
+    private final String pid;
+
+    public JournalEntry(String cursor, Instant timestamp, int priority, String message, String identifier, String pid) {
+        this.cursor = cursor;
+        this.timestamp = timestamp;
+        this.priority = priority;
+        this.message = message;
+        this.identifier = identifier;
+        this.pid = pid;
+    }
+
+    // The entry the reader is currently on
+    public static JournalEntry of(JournalReader reader) {
+        long usec = reader.getTimestamp();
+        return new JournalEntry(reader.getField(JournalReader.CURSOR),
+                Instant.ofEpochSecond(usec / 1_000_000, usec % 1_000_000 * 1000), reader.getPriority(), reader.getMessage(),
+                reader.getField(JournalReader.SYSLOG_IDENTIFIER), reader.getField(JournalReader.PID));
+    }
+}
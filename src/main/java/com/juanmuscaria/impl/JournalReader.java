@@ -0,0 +1,316 @@
+package com.juanmuscaria.impl;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+// Streams journalctl -o json output one entry at a time. Lines are read into a reused byte buffer and only scanned
+// for the offsets of the fields javactl cares about, values are decoded when asked for, so entries that are filtered
+// out by priority or time never become strings and the raw line can be copied out as is.
+public class JournalReader implements Closeable {
+    public static final int CURSOR = 0;
+    public static final int REALTIME_TIMESTAMP = 1;
+    public static final int PRIORITY = 2;
+    public static final int MESSAGE = 3;
+    public static final int SYSLOG_IDENTIFIER = 4;
+    public static final int PID = 5;
+    private static final byte[][] KEYS = {bytes("__CURSOR"), bytes("__REALTIME_TIMESTAMP"), bytes("PRIORITY"),
+            bytes("MESSAGE"), bytes("SYSLOG_IDENTIFIER"), bytes("_PID")};
+    private final InputStream in;
+    private byte[] buffer = new byte[64 * 1024];
+    // Valid bytes are [lineStart, limit), the current entry is [lineStart, lineEnd)
+    private int lineStart;
+    private int lineEnd;
+    private int limit;
+    private boolean eof;
+    private final int[] valueStart = new int[KEYS.length];
+    private final int[] valueEnd = new int[KEYS.length];
+    private final String[] decoded = new String[KEYS.length];
+    private byte[] scratch = new byte[256];
+
+    public JournalReader(InputStream in) {
+        this.in = in;
+    }
+
+    // Moves to the next entry, false once the stream is over
+    public boolean next() throws IOException {
+        int start = lineEnd < limit ? lineEnd + 1 : limit;
+        while (true) {
+            int newline = indexOf((byte) '\n', start, limit);
+            if (newline < 0) {
+                if (eof) {
+                    if (start >= limit)
+                        return false;
+                    newline = limit;
+                } else {
+                    fill(start);
+                    start = 0;
+                    continue;
+                }
+            }
+            lineStart = start;
+            lineEnd = newline;
+            if (!isBlank()) {
+                scan();
+                return true;
+            }
+            start = Math.min(newline + 1, limit);
+        }
+    }
+
+    // syslog priority, 0 (emerg) to 7 (debug)
+    public int getPriority() {
+        int start = valueStart[PRIORITY];
+        if (start < 0 || buffer[start] != '"' || valueEnd[PRIORITY] - start < 3)
+            return 6;
+        return buffer[start + 1] - '0';
+    }
+
+    // Microseconds since the epoch, 0 when missing
+    public long getTimestamp() {
+        if (valueStart[REALTIME_TIMESTAMP] < 0)
+            return 0;
+        long value = 0;
+        for (int i = valueStart[REALTIME_TIMESTAMP]; i < valueEnd[REALTIME_TIMESTAMP]; i++) {
+            byte b = buffer[i];
+            if (b >= '0' && b <= '9')
+                value = value * 10 + (b - '0');
+        }
+        return value;
+    }
+
+    public String getMessage() {
+        String message = getField(MESSAGE);
+        return message == null ? "" : message;
+    }
+
+    // One of the field constants, decoded once per entry, null when the entry doesn't have it
+    public String getField(int field) {
+        if (decoded[field] == null && valueStart[field] >= 0)
+            decoded[field] = decode(valueStart[field], valueEnd[field]);
+        return decoded[field];
+    }
+
+    // The entry exactly as journalctl printed it, newline terminated
+    public void writeTo(OutputStream out) throws IOException {
+        out.write(buffer, lineStart, lineEnd - lineStart);
+        out.write('\n');
+    }
+
+    // Bytes that can be read without blocking, 0 when the next entry has to wait for more input
+    public int available() throws IOException {
+        return Math.max(limit - lineEnd - 1, 0) + in.available();
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+
+    // Keeps the partial line at the start of the buffer, growing it only for lines longer than the buffer
+    private void fill(int start) throws IOException {
+        int remaining = limit - start;
+        if (start > 0) {
+            System.arraycopy(buffer, start, buffer, 0, remaining);
+        } else if (remaining == buffer.length) {
+            buffer = Arrays.copyOf(buffer, buffer.length * 2);
+        }
+        limit = remaining;
+        int read = in.read(buffer, limit, buffer.length - limit);
+        if (read < 0)
+            eof = true;
+        else
+            limit += read;
+    }
+
+    private void scan() {
+        Arrays.fill(valueStart, -1);
+        Arrays.fill(decoded, null);
+        int position = skip(lineStart);
+        position = expect(position, '{');
+        while (true) {
+            position = skip(position);
+            if (position >= lineEnd)
+                throw malformed(position);
+            if (buffer[position] == '}')
+                return;
+            int keyStart = position + 1;
+            position = skipString(position);
+            int field = match(keyStart, position - 1);
+            position = expect(skip(position), ':');
+            position = skip(position);
+            int start = position;
+            position = skipValue(position);
+            if (field >= 0) {
+                valueStart[field] = start;
+                valueEnd[field] = position;
+            }
+            position = skip(position);
+            if (position < lineEnd && buffer[position] == ',')
+                position++;
+        }
+    }
+
+    private int skipValue(int position) {
+        if (position >= lineEnd)
+            throw malformed(position);
+        byte b = buffer[position];
+        if (b == '"')
+            return skipString(position);
+        if (b == '[') {
+            position++;
+            while (true) {
+                position = skip(position);
+                if (position >= lineEnd)
+                    throw malformed(position);
+                if (buffer[position] == ']')
+                    return position + 1;
+                if (buffer[position] == ',') {
+                    position++;
+                    continue;
+                }
+                position = skipValue(position);
+            }
+        }
+        // null or a bare number
+        while (position < lineEnd && ",}] \t".indexOf(buffer[position]) < 0)
+            position++;
+        return position;
+    }
+
+    // Returns the position right after the closing quote
+    private int skipString(int position) {
+        position = expect(position, '"');
+        while (position < lineEnd) {
+            byte b = buffer[position++];
+            if (b == '"')
+                return position;
+            if (b == '\\')
+                position++;
+        }
+        throw malformed(position);
+    }
+
+    private String decode(int start, int end) {
+        byte b = buffer[start];
+        if (b == '"')
+            return decodeString(start + 1, end - 1);
+        if (b == '[')
+            return decodeArray(start + 1, end - 1);
+        String literal = new String(buffer, start, end - start, StandardCharsets.US_ASCII);
+        return "null".equals(literal) ? null : literal;
+    }
+
+    private String decodeString(int start, int end) {
+        if (indexOf((byte) '\\', start, end) < 0)
+            return new String(buffer, start, end - start, StandardCharsets.UTF_8);
+        StringBuilder b = new StringBuilder(end - start);
+        int run = start;
+        for (int i = start; i < end; i++) {
+            if (buffer[i] != '\\')
+                continue;
+            b.append(new String(buffer, run, i - run, StandardCharsets.UTF_8));
+            byte escaped = buffer[++i];
+            switch (escaped) {
+                case 'n':
+                    b.append('\n');
+                    break;
+                case 't':
+                    b.append('\t');
+                    break;
+                case 'r':
+                    b.append('\r');
+                    break;
+                case 'b':
+                    b.append('\b');
+                    break;
+                case 'f':
+                    b.append('\f');
+                    break;
+                case 'u':
+                    b.append((char) Integer.parseInt(new String(buffer, i + 1, 4, StandardCharsets.US_ASCII), 16));
+                    i += 4;
+                    break;
+                default:
+                    b.append((char) escaped);
+                    break;
+            }
+            run = i + 1;
+        }
+        b.append(new String(buffer, run, end - run, StandardCharsets.UTF_8));
+        return b.toString();
+    }
+
+    // [72,105] is a non utf-8 field, ["a","b"] a repeated one where only the first value is kept
+    private String decodeArray(int start, int end) {
+        int length = 0;
+        int position = start;
+        while (position < end) {
+            position = skip(position);
+            if (position >= end)
+                break;
+            byte b = buffer[position];
+            if (b == ',') {
+                position++;
+            } else if (b == '"') {
+                int stringEnd = skipString(position);
+                return decodeString(position + 1, stringEnd - 1);
+            } else {
+                int value = 0;
+                while (position < end && buffer[position] >= '0' && buffer[position] <= '9')
+                    value = value * 10 + (buffer[position++] - '0');
+                if (length == scratch.length)
+                    scratch = Arrays.copyOf(scratch, length * 2);
+                scratch[length++] = (byte) value;
+                // Skips null and anything else unexpected
+                while (position < end && buffer[position] != ',')
+                    position++;
+            }
+        }
+        return new String(scratch, 0, length, StandardCharsets.UTF_8);
+    }
+
+    private int match(int start, int end) {
+        for (int i = 0; i < KEYS.length; i++) {
+            byte[] key = KEYS[i];
+            if (end - start == key.length && Arrays.equals(buffer, start, end, key, 0, key.length))
+                return i;
+        }
+        return -1;
+    }
+
+    private int expect(int position, char expected) {
+        if (position >= lineEnd || buffer[position] != expected)
+            throw new IllegalArgumentException("Malformed journal entry, expected '" + expected + "' at " + (position - lineStart));
+        return position + 1;
+    }
+
+    private IllegalArgumentException malformed(int position) {
+        return new IllegalArgumentException("Malformed journal entry at " + (position - lineStart));
+    }
+
+    private int skip(int position) {
+        while (position < lineEnd && (buffer[position] == ' ' || buffer[position] == '\t' || buffer[position] == '\r'))
+            position++;
+        return position;
+    }
+
+    private boolean isBlank() {
+        return skip(lineStart) >= lineEnd;
+    }
+
+    private int indexOf(byte value, int from, int to) {
+        for (int i = from; i < to; i++) {
+            if (buffer[i] == value)
+                return i;
+        }
+        return -1;
+    }
+
+    private static byte[] bytes(String key) {
+        return key.getBytes(StandardCharsets.US_ASCII);
+    }
+}
@@ -0,0 +1,358 @@
+package com.juanmuscaria.impl;
+
+import com.juanmuscaria.api.DaemonInfo;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+// In memory index of the javactl units found in a systemd unit directory.
+// Short lived processes validate it with a single stat of the directory (creating or deleting a unit bumps its mtime)
+// and start from a compact index file instead of listing and parsing the whole directory. Long running ones can
+// watch the directory and keep the index current without touching the disk on every call.
+public class ServiceRegistry {
+    private static final String HEADER = "# javactl unit index v1";
+    private final Path unitDir;
+    private final Path indexFile;
+    private final Map<String, Unit> units = new ConcurrentHashMap<>();
+    private volatile long indexedDirMtime = -1;
+    private volatile boolean watching;
+
+    public ServiceRegistry(Path unitDir, Path indexFile) {
+        this.unitDir = unitDir;
+        this.indexFile = indexFile;
+    }
+
+    // Root can share its index through /var/cache, users keep their own
+    public static Path defaultIndexFile() {
+        if (System.getProperty("user.name").equalsIgnoreCase("root"))
+            return Paths.get("/var/cache/javactl/units.idx");
+        return Paths.get(System.getProperty("user.home", "/tmp"), ".javactl", "units.idx");
+    }
+
+    public Path getUnitDir() {
+        return unitDir;
+    }
+
+    public List<String> names() {
+        refreshIfStale();
+        List<String> names = new ArrayList<>(units.keySet());
+        Collections.sort(names);
+        return names;
+    }
+
+    public boolean hasService(String name) {
+        refreshIfStale();
+        return units.containsKey(name);
+    }
+
+    public boolean hasSocket(String name) {
+        refreshIfStale();
+        Unit unit = units.get(name);
+        return unit != null && unit.hasSocket;
+    }
+
+    public Optional<DaemonInfo> getInfo(String name) {
+        refreshIfStale();
+        Unit unit = units.get(name);
+        if (unit == null)
+            return Optional.empty();
+        // The directory mtime doesn't change when a unit is edited in place, check the file itself
+        if (!watching) {
+            long mtime = mtimeOf(serviceFile(name));
+            if (mtime != unit.mtime) {
+                unit = parse(name, unit.hasSocket);
+                if (unit == null) {
+                    units.remove(name);
+                    return Optional.empty();
+                }
+                units.put(name, unit);
+                save();
+            }
+        }
+        return Optional.of(unit.toInfo(name));
+    }
+
+    // Keeps the index current through a WatchService (inotify on linux) instead of checking the directory on access
+    public synchronized void watch() throws IOException {
+        if (watching)
+            return;
+        refreshIfStale();
+        WatchService watcher = unitDir.getFileSystem().newWatchService();
+        unitDir.register(watcher, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_DELETE,
+                StandardWatchEventKinds.ENTRY_MODIFY);
+        Thread thread = new Thread(() -> {
+            try {
+                while (true) {
+                    WatchKey key = watcher.take();
+                    boolean changed = false;
+                    for (WatchEvent<?> event : key.pollEvents()) {
+                        if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                            rescan();
+                            changed = false;
+                            break;
+                        }
+                        changed |= update(event.context().toString());
+                    }
+                    if (changed)
+                        save();
+                    if (!key.reset())
+                        break; // Directory gone
+                }
+            } catch (InterruptedException ignored) {
+                // Shutting down
+            } finally {
+                watching = false;
+            }
+        }, "javactl-unit-watcher");
+        thread.setDaemon(true);
+        watching = true;
+        thread.start();
+    }
+
+    private boolean update(String fileName) {
+        String name = nameOf(fileName);
+        if (name == null)
+            return false;
+        Unit unit = parse(name, Files.exists(socketFile(name)));
+        if (unit == null)
+            units.remove(name);
+        else
+            units.put(name, unit);
+        return true;
+    }
+
+    private void refreshIfStale() {
+        if (watching)
+            return;
+        long dirMtime = mtimeOf(unitDir);
+        if (dirMtime == indexedDirMtime)
+            return;
+        synchronized (this) {
+            if (dirMtime == indexedDirMtime)
+                return;
+            if (indexedDirMtime == -1 && load(dirMtime))
+                return;
+            rescan();
+        }
+    }
+
+    private synchronized void rescan() {
+        long dirMtime = mtimeOf(unitDir);
+        String[] files = unitDir.toFile().list();
+        if (files == null)
+            throw new IllegalArgumentException("Unable to list services.");
+        Set<String> sockets = new HashSet<>();
+        Set<String> services = new HashSet<>();
+        for (String file : files) {
+            String name = nameOf(file);
+            if (name == null)
+                continue;
+            if (file.endsWith(".service"))
+                services.add(name);
+            else
+                sockets.add(name);
+        }
+        units.keySet().retainAll(services);
+        for (String name : services) {
+            Unit known = units.get(name);
+            // Keep what we already parsed for untouched units
+            if (known != null && known.mtime == mtimeOf(serviceFile(name))) {
+                known.hasSocket = sockets.contains(name);
+                continue;
+            }
+            Unit unit = parse(name, sockets.contains(name));
+            if (unit != null)
+                units.put(name, unit);
+        }
+        indexedDirMtime = dirMtime;
+        save();
+    }
+
+    // javactl-<name>.service or javactl-<name>.socket
+    private static String nameOf(String fileName) {
+        if (!fileName.startsWith("javactl-"))
+            return null;
+        if (fileName.endsWith(".service"))
+            return fileName.substring(8, fileName.length() - 8);
+        if (fileName.endsWith(".socket"))
+            return fileName.substring(8, fileName.length() - 7);
+        return null;
+    }
+
+    private Path serviceFile(String name) {
+        return unitDir.resolve("javactl-" + name + ".service");
+    }
+
+    private Path socketFile(String name) {
+        return unitDir.resolve("javactl-" + name + ".socket");
+    }
+
+    private static long mtimeOf(Path path) {
+        try {
+            return Files.getLastModifiedTime(path).to(TimeUnit.NANOSECONDS);
+        } catch (IOException e) {
+            return -2;
+        }
+    }
+
+    private Unit parse(String name, boolean hasSocket) {
+        Path file = serviceFile(name);
+        long mtime = mtimeOf(file);
+        try {
+            return new Unit(mtime, hasSocket, Files.readAllLines(file, StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    private boolean load(long dirMtime) {
+        if (indexFile == null || !Files.isRegularFile(indexFile))
+            return false;
+        Map<String, Unit> loaded = new HashMap<>();
+        try (BufferedReader reader = Files.newBufferedReader(indexFile, StandardCharsets.UTF_8)) {
+            String header = reader.readLine();
+            if (header == null || !header.equals(HEADER + "\t" + unitDir + "\t" + dirMtime))
+                return false;
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String[] fields = line.split("\t", -1);
+                if (fields.length < 3)
+                    return false;
+                List<String> lines = new ArrayList<>(fields.length - 3);
+                for (int i = 3; i < fields.length; i++)
+                    lines.add(unescape(fields[i]));
+                loaded.put(fields[0], new Unit(Long.parseLong(fields[1]), Boolean.parseBoolean(fields[2]), lines));
+            }
+        } catch (IOException | RuntimeException e) {
+            return false;
+        }
+        units.clear();
+        units.putAll(loaded);
+        indexedDirMtime = dirMtime;
+        return true;
+    }
+
+    private synchronized void save() {
+        if (indexFile == null)
+            return;
+        try {
+            Files.createDirectories(indexFile.getParent());
+            Path tmp = Files.createTempFile(indexFile.getParent(), "units", ".tmp");
+            try (BufferedWriter writer = Files.newBufferedWriter(tmp, StandardCharsets.UTF_8)) {
+                writer.write(HEADER + "\t" + unitDir + "\t" + indexedDirMtime);
+                writer.write('\n');
+                for (Map.Entry<String, Unit> entry : units.entrySet()) {
+                    Unit unit = entry.getValue();
+                    writer.write(entry.getKey() + "\t" + unit.mtime + "\t" + unit.hasSocket);
+                    for (String line : unit.lines) {
+                        writer.write('\t');
+                        writer.write(escape(line));
+                    }
+                    writer.write('\n');
+                }
+            }
+            Files.move(tmp, indexFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException ignored) {
+            // No writable cache location, the next run will just scan again
+        }
+    }
+
+    private static String escape(String line) {
+        return line.replace("\\", "\\\\").replace("\t", "\\t");
+    }
+
+    private static String unescape(String field) {
+        StringBuilder b = new StringBuilder(field.length());
+        for (int i = 0; i < field.length(); i++) {
+            char c = field.charAt(i);
+            if (c == '\\' && i + 1 < field.length()) {
+                c = field.charAt(++i);
+                b.append(c == 't' ? '\t' : c);
+            } else {
+                b.append(c);
+            }
+        }
+        return b.toString();
+    }
+
+    private static class Unit {
+        final long mtime;
+        final List<String> lines;
+        volatile boolean hasSocket;
+
+        Unit(long mtime, boolean hasSocket, List<String> lines) {
+            this.mtime = mtime;
+            this.hasSocket = hasSocket;
+            // Only settings matter, skip comments and blanks to keep the index small
+            List<String> settings = new ArrayList<>(lines.size());
+            for (String line : lines) {
+                String trimmed = line.trim();
+                if (!trimmed.isEmpty() && !trimmed.startsWith("#") && !trimmed.startsWith(";"))
+                    settings.add(trimmed);
+            }
+            this.lines = settings;
+        }
+
+        String get(String key) {
+            for (String line : lines) {
+                if (line.startsWith(key) && line.length() > key.length() && line.charAt(key.length()) == '=')
+                    return line.substring(key.length() + 1);
+            }
+            return null;
+        }
+
+        // ExecStart is generated by SystemdDaemonBuilder as <java> <jvm args> -jar <jar> <args>
+        DaemonInfo toInfo(String name) {
+            String javaExec = null, jvmArgs = "", jar = null, args = "";
+            String execStart = get("ExecStart");
+            if (execStart != null) {
+                int jarFlag = execStart.indexOf(" -jar ");
+                String before = jarFlag < 0 ? execStart : execStart.substring(0, jarFlag);
+                String[] launcher = before.trim().split(" ", 2);
+                javaExec = launcher[0];
+                jvmArgs = launcher.length > 1 ? launcher[1].trim() : "";
+                if (jarFlag >= 0) {
+                    String[] target = execStart.substring(jarFlag + 6).trim().split(" ", 2);
+                    jar = target[0];
+                    args = target.length > 1 ? target[1].trim() : "";
+                }
+            }
+            return new DaemonInfo(name, get("Description"), javaExec, jvmArgs, jar, args, get("User"), get("Group"),
+                    get("WorkingDirectory"), get("Restart") != null && !"no".equals(get("Restart")), get("LogNamespace"),
+                    tags(), after(), get("Environment=" + SystemdDaemonBuilder.CDS_DIR) != null);
+        }
+
+        // After=javactl-<name>.service lines, other ordering (network.target) isn't between daemons
+        List<String> after() {
+            List<String> after = new ArrayList<>();
+            for (String line : lines) {
+                if (!line.startsWith("After="))
+                    continue;
+                for (String unit : line.substring(6).trim().split("\\s+")) {
+                    if (unit.startsWith("javactl-") && unit.endsWith(".service"))
+                        after.add(unit.substring(8, unit.length() - 8));
+                }
+            }
+            return after;
+        }
+
+        // X-JavactlTags=a,b as written by SystemdDaemonBuilder
+        List<String> tags() {
+            String tags = get("X-JavactlTags");
+            if (tags == null || tags.isBlank())
+                return Collections.emptyList();
+            List<String> parsed = new ArrayList<>();
+            for (String tag : tags.split(",")) {
+                if (!tag.isBlank())
+                    parsed.add(tag.trim());
+            }
+            return parsed;
+        }
+    }
+}
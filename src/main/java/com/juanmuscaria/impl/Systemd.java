@@ -1,40 +1,67 @@
 package com.juanmuscaria.impl;
 
+import com.juanmuscaria.api.DaemonInfo;
 import com.juanmuscaria.api.IService;
+import com.juanmuscaria.api.ServiceStatus;
+import com.juanmuscaria.api.jvm.JavaInstallation;
 import lombok.SneakyThrows;
 
+import java.io.BufferedReader;
 import java.io.File;
 import java.io.IOException;
-import java.util.ArrayList;
-import java.util.List;
-import java.util.Optional;
+import java.io.InputStreamReader;
+import java.nio.file.DirectoryNotEmptyException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.*;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 public class Systemd implements IService {
+    // What SystemdDaemonBuilder puts in front of the user's jvm arguments: the agent of Type=notify units (group 1) and
+    // the archive of cds units
+    private static final Pattern MANAGED_ARGS = Pattern.compile("^(\"-javaagent:[^\"]*javactl-agent\\.jar=(?:[^\"\\\\]|\\\\.)*\"\\s*)?(?:\\$JAVACTL_CDS\\b\\s*)?");
+    private static final String STATUS_PROPERTIES = "Id,ActiveState,SubState,MainPID,MemoryCurrent,ActiveEnterTimestampMonotonic";
+    private final ServiceRegistry registry;
+
+    public Systemd() {
+        this(new ServiceRegistry(SystemdPaths.unitDir(), ServiceRegistry.defaultIndexFile()));
+    }
+
+    Systemd(ServiceRegistry registry) {
+        this.registry = registry;
+    }
 
     @Override
     public Optional<File> getServiceFileFor(String name) {
-        if (!isValidName(name)) {
-            return Optional.empty();
-        }
-        var file = new File("/etc/systemd/system/javactl-" + name + ".service");
-        if (file.exists()) {
-            return Optional.of(file);
-        } else {
+        if (!isValidName(name) || !registry.hasService(name)) {
             return Optional.empty();
         }
+        return Optional.of(registry.getUnitDir().resolve("javactl-" + name + ".service").toFile());
     }
 
     @Override
     public Optional<File> getSocketConfigurationFor(String name) {
-        if (!isValidName(name)) {
+        if (!isValidName(name) || !registry.hasSocket(name)) {
             return Optional.empty();
         }
-        var file = new File("/etc/systemd/system/javactl-" + name + ".socket");
-        if (file.exists()) {
-            return Optional.of(file);
-        } else {
+        return Optional.of(registry.getUnitDir().resolve("javactl-" + name + ".socket").toFile());
+    }
+
+    @Override
+    public Optional<DaemonInfo> getDaemonInfo(String name) {
+        if (!isValidName(name)) {
             return Optional.empty();
         }
+        return registry.getInfo(name);
+    }
+
+    @Override
+    @SneakyThrows(IOException.class)
+    public void keepWarm() {
+        registry.watch();
     }
 
     @Override
@@ -42,7 +69,7 @@ public class Systemd implements IService {
         if (!isValidName(name)) {
             return Optional.empty();
         }
-        var file = new File("/run/javactl/" + name);
+        var file = SystemdPaths.runDir().resolve(name).toFile();
         if (file.exists()) {
             return Optional.of(file);
         } else {
@@ -51,68 +78,115 @@ public class Systemd implements IService {
     }
 
     @Override
-    @SneakyThrows({InterruptedException.class}) // pass it up the chain
     public boolean isServiceRunning(String name) {
+        return systemctl("is-active", "--quiet", "javactl-" + name) == 0;
+    }
+
+    @Override
+    public Map<String, ServiceStatus> getServicesStatus(Collection<String> names) {
+        if (names.isEmpty())
+            return Collections.emptyMap();
+        List<String> command = new ArrayList<>(Arrays.asList("systemctl", "show", "--property=" + STATUS_PROPERTIES));
+        for (String name : names)
+            command.add("javactl-" + name + ".service");
         try {
-            Process check = Runtime.getRuntime().exec("systemctl is-active --quiet javactl-" + name);
-            check.waitFor();
-            return check.exitValue() == 0;
+            Process show = new ProcessBuilder(command).redirectError(ProcessBuilder.Redirect.DISCARD).start();
+            Map<String, ServiceStatus> status;
+            try (BufferedReader reader = new BufferedReader(new InputStreamReader(show.getInputStream()))) {
+                status = parseStatus(reader, System.nanoTime() / 1000);
+            }
+            if (waitFor(show) != 0)
+                throw new IllegalArgumentException("Systemd returned an error! Are you running with proper permissions?");
+            for (String name : names)
+                status.putIfAbsent(name, new ServiceStatus(name, "inactive", "dead", 0, -1, null));
+            return status;
         } catch (IOException e) {
             throw new IllegalStateException("systemctl not found, this should be an unreachable exception, please open an issue if you see this message!");
         }
     }
 
+    // Reads systemctl show output, one block of key=value lines per unit separated by an empty line.
+    // nowMonotonic is CLOCK_MONOTONIC in microseconds, what System.nanoTime uses on linux.
+    static Map<String, ServiceStatus> parseStatus(BufferedReader reader, long nowMonotonic) throws IOException {
+        Map<String, ServiceStatus> status = new LinkedHashMap<>();
+        String id = null, activeState = "inactive", subState = "dead";
+        long mainPid = 0, memory = -1, activeSince = 0;
+        String line;
+        do {
+            line = reader.readLine();
+            if (line == null || line.isEmpty()) {
+                if (id != null && id.startsWith("javactl-") && id.endsWith(".service")) {
+                    Duration uptime = activeSince > 0 && activeSince <= nowMonotonic && !"inactive".equals(activeState) ?
+                            Duration.ofNanos((nowMonotonic - activeSince) * 1000) : null;
+                    String name = removeJavactlIdent(id);
+                    status.put(name, new ServiceStatus(name, activeState, subState, mainPid, memory, uptime));
+                }
+                id = null;
+                activeState = "inactive";
+                subState = "dead";
+                mainPid = 0;
+                memory = -1;
+                activeSince = 0;
+                continue;
+            }
+            int separator = line.indexOf('=');
+            if (separator < 0)
+                continue;
+            String value = line.substring(separator + 1);
+            switch (line.substring(0, separator)) {
+                case "Id":
+                    id = value;
+                    break;
+                case "ActiveState":
+                    activeState = value;
+                    break;
+                case "SubState":
+                    subState = value;
+                    break;
+                case "MainPID":
+                    mainPid = parseUnsigned(value, 0);
+                    break;
+                case "MemoryCurrent":
+                    memory = parseUnsigned(value, -1);
+                    break;
+                case "ActiveEnterTimestampMonotonic":
+                    activeSince = parseUnsigned(value, 0);
+                    break;
+                default:
+                    break;
+            }
+        } while (line != null);
+        return status;
+    }
+
+    // Systemd reports unset values as "[not set]" or UINT64_MAX
+    private static long parseUnsigned(String value, long unset) {
+        try {
+            long parsed = Long.parseLong(value);
+            return parsed < 0 ? unset : parsed;
+        } catch (NumberFormatException e) {
+            return unset;
+        }
+    }
+
     @Override
     public List<String> getInstalledServices() {
-        List<String> list = new ArrayList<>();
-        File systemdServices = new File("/etc/systemd/system/");
-        File[] services = systemdServices.listFiles();
-        if (services == null)
-            throw new IllegalArgumentException("Unable to list services.");
-        for (File service : services) {
-            if (service.getName().startsWith("javactl-") && service.getName().endsWith(".service"))
-                list.add(removeJavactlIdent(service.getName()));
-        }
-        return list;
+        return registry.names();
     }
 
     @Override
-    @SneakyThrows({InterruptedException.class}) // pass it up the chain
     public void startService(String name) {
-        try {
-            Process check = Runtime.getRuntime().exec("systemctl start --quiet javactl-" + name);
-            check.waitFor();
-            if (check.exitValue() != 0)
-                throw new IllegalArgumentException("Systemd returned an error! Are you running with proper permissions?");
-        } catch (IOException e) {
-            throw new IllegalStateException("systemctl not found, this should be an unreachable exception, please open an issue if you see this message!");
-        }
+        runJob("start", name);
     }
 
     @Override
-    @SneakyThrows({InterruptedException.class}) // pass it up the chain
     public void stopService(String name) {
-        try {
-            Process check = Runtime.getRuntime().exec("systemctl stop --quiet javactl-" + name);
-            check.waitFor();
-            if (check.exitValue() != 0)
-                throw new IllegalArgumentException("Systemd returned an error! Are you running with proper permissions?");
-        } catch (IOException e) {
-            throw new IllegalStateException("systemctl not found, this should be an unreachable exception, please open an issue if you see this message!");
-        }
+        runJob("stop", name);
     }
 
     @Override
-    @SneakyThrows({InterruptedException.class}) // pass it up the chain
     public void restartService(String name) {
-        try {
-            Process check = Runtime.getRuntime().exec("systemctl restart --quiet javactl-" + name);
-            check.waitFor();
-            if (check.exitValue() != 0)
-                throw new IllegalArgumentException("Systemd returned an error! Are you running with proper permissions?");
-        } catch (IOException e) {
-            throw new IllegalStateException("systemctl not found, this should be an unreachable exception, please open an issue if you see this message!");
-        }
+        runJob("restart", name);
     }
 
     @Override
@@ -120,42 +194,183 @@ public class Systemd implements IService {
         if (isServiceRunning(name))
             stopService(name);
         disableService(name);
+        // Looked up first, the registry forgets the daemon once its service file is gone
+        String namespace = getDaemonInfo(name).map(DaemonInfo::getLogNamespace).orElse(null);
+        Optional<File> file = getSocketConfigurationFor(name);
         if (!getServiceFileFor(name).orElseThrow().delete())
             throw new IllegalArgumentException("Unable to delete service file! Try running as root.");
-        Optional<File> file = getServiceFileFor(name);
         if (file.isPresent()) {
             if (!file.get().delete())
                 throw new IllegalArgumentException("Unable to delete socket file " + file.get().getAbsolutePath());
         }
+        if (namespace != null)
+            deleteJournaldConfig(name, namespace);
+    }
+
+    // Only the file create --logMaxUse wrote for this daemon, not one the user made for the namespace
+    private void deleteJournaldConfig(String name, String namespace) {
+        Path config = SystemdDaemonBuilder.journaldConfigFile(registry.getUnitDir(), namespace);
+        try (BufferedReader reader = Files.newBufferedReader(config)) {
+            if (SystemdDaemonBuilder.journaldConfigHeader(name).equals(reader.readLine()))
+                Files.delete(config);
+        } catch (NoSuchFileException ignored) {
+            // No budget was set
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Unable to delete " + config + ", are you running as root? err:" + e.getMessage());
+        }
     }
 
     @Override
-    @SneakyThrows({InterruptedException.class}) // pass it up the chain
     public void enableService(String name) {
+        if (systemctl("enable", "--quiet", "javactl-" + name) != 0)
+            throw new IllegalArgumentException("Systemd returned an error! Are you running with proper permissions?");
+    }
+
+    @Override
+    public void disableService(String name) {
+        if (systemctl("disable", "--quiet", "javactl-" + name) != 0)
+            throw new IllegalArgumentException("Systemd returned an error! Are you running with proper permissions?");
+    }
+
+    // A drop-in replacing ExecStart, the unit file itself is left as javactl created it
+    @Override
+    public void overrideLaunch(String name, JavaInstallation java, String jvmArgs) {
+        DaemonInfo info = getDaemonInfo(name).orElseThrow(() -> new IllegalArgumentException("Service '" + name + "' does not exist."));
+        // Type=notify units never become active without their agent. The archive of cds units is left out: it only
+        // fits the configured java and arguments, and a run of something else must not replace it.
+        Matcher managed = MANAGED_ARGS.matcher(info.getJvmArgs());
+        managed.find();
+        String agent = managed.group(1) == null ? "" : managed.group(1).trim();
+        String launchArgs = (agent + " " + (jvmArgs != null ? jvmArgs : info.getJvmArgs().substring(managed.end()))).trim();
+        StringBuilder b = new StringBuilder();
+        b.append("# Generated by javactl 0.1, removed by javactl once it's done\n")
+                .append("[Service]\n")
+                .append("ExecStart=\n")
+                .append("ExecStart=").append(java != null ? java.getExec().getAbsolutePath() : info.getJavaExec())
+                .append(" ").append(launchArgs).append(" -jar ").append(info.getJar()).append(" ").append(info.getArgs()).append("\n");
+        if (java != null)
+            b.append("Environment='JAVA_HOME=").append(java.getHome()).append("'\n");
+        // Nor may it touch the archive's stamp
+        if (info.isCds())
+            b.append("ExecStartPre=\n").append("ExecStopPost=\n");
+        Path dropIn = launchOverrideFile(name);
         try {
-            Process check = Runtime.getRuntime().exec("systemctl enable --quiet javactl-" + name);
-            check.waitFor();
-            if (check.exitValue() != 0)
-                throw new IllegalArgumentException("Systemd returned an error! Are you running with proper permissions?");
+            Files.createDirectories(dropIn.getParent());
+            Files.writeString(dropIn, b.toString());
         } catch (IOException e) {
-            throw new IllegalStateException("systemctl not found, this should be an unreachable exception, please open an issue if you see this message!");
+            throw new IllegalArgumentException("Unable to create " + dropIn + ", are you running as root? err:" + e.getMessage());
         }
+        reloadConfiguration();
     }
 
     @Override
-    @SneakyThrows({InterruptedException.class}) // pass it up the chain
-    public void disableService(String name) {
+    public void clearLaunchOverride(String name) {
+        Path dropIn = launchOverrideFile(name);
         try {
-            Process check = Runtime.getRuntime().exec("systemctl disable --quiet javactl-" + name);
-            check.waitFor();
-            if (check.exitValue() != 0)
-                throw new IllegalArgumentException("Systemd returned an error! Are you running with proper permissions?");
+            if (!Files.deleteIfExists(dropIn))
+                return;
+            Files.deleteIfExists(dropIn.getParent());
+        } catch (DirectoryNotEmptyException ignored) {
+            // Other drop-ins the user made
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Unable to delete " + dropIn + ", are you running as root? err:" + e.getMessage());
+        }
+        reloadConfiguration();
+    }
+
+    Path launchOverrideFile(String name) {
+        return registry.getUnitDir().resolve("javactl-" + name + ".service.d").resolve("javactl-launch.conf");
+    }
+
+    // Makes systemd read changed unit files and drop-ins
+    void reloadConfiguration() {
+        if (systemctl("daemon-reload") != 0)
+            throw new IllegalArgumentException("Systemd returned an error! Are you running with proper permissions?");
+    }
+
+    // Runs systemctl and waits for it. If the calling thread gets interrupted (an async call timed out or got
+    // cancelled) systemctl and anything it spawned is killed before the interruption is passed along.
+    int systemctl(String... args) {
+        return waitFor(spawnSystemctl(args));
+    }
+
+    private static Process spawnSystemctl(String... args) {
+        List<String> command = new ArrayList<>(args.length + 1);
+        command.add("systemctl");
+        command.addAll(Arrays.asList(args));
+        try {
+            return new ProcessBuilder(command)
+                    .redirectOutput(ProcessBuilder.Redirect.DISCARD)
+                    .redirectError(ProcessBuilder.Redirect.DISCARD)
+                    .start();
         } catch (IOException e) {
             throw new IllegalStateException("systemctl not found, this should be an unreachable exception, please open an issue if you see this message!");
         }
     }
 
-    private String removeJavactlIdent(String name) {
+    // Queues a start, stop or restart job and waits for it. Killing systemctl leaves its job queued in systemd, so an
+    // interrupted wait also cancels the unit's jobs, the daemon doesn't start or stop later behind the caller's back.
+    @SneakyThrows(InterruptedException.class) // pass it up the chain
+    private void runJob(String action, String name) {
+        String unit = "javactl-" + name + ".service";
+        Process process = spawnSystemctl(action, "--quiet", unit);
+        try {
+            if (process.waitFor() != 0)
+                throw new IllegalArgumentException("Systemd returned an error! Are you running with proper permissions?");
+        } catch (InterruptedException e) {
+            destroyTree(process);
+            cancelJobs(unit);
+            throw e;
+        }
+    }
+
+    // Best effort, the job may have finished in the meantime
+    private void cancelJobs(String unit) {
+        try {
+            Process list = new ProcessBuilder("systemctl", "list-jobs", "--no-legend", "--full", unit)
+                    .redirectError(ProcessBuilder.Redirect.DISCARD)
+                    .start();
+            List<String> jobs;
+            try (BufferedReader reader = new BufferedReader(new InputStreamReader(list.getInputStream()))) {
+                jobs = parseJobs(reader, unit);
+            }
+            if (list.waitFor() == 0 && !jobs.isEmpty()) {
+                jobs.add(0, "cancel");
+                spawnSystemctl(jobs.toArray(new String[0])).waitFor();
+            }
+        } catch (IOException | InterruptedException ignored) {
+            // Nothing more to do, the caller is already being interrupted
+        }
+    }
+
+    // Ids of the unit's jobs in systemctl list-jobs output, "<id> <unit> <type> <state>" per line
+    static List<String> parseJobs(BufferedReader reader, String unit) throws IOException {
+        List<String> jobs = new ArrayList<>();
+        String line;
+        while ((line = reader.readLine()) != null) {
+            String[] fields = line.trim().split("\\s+");
+            if (fields.length >= 2 && fields[1].equals(unit) && fields[0].chars().allMatch(Character::isDigit))
+                jobs.add(fields[0]);
+        }
+        return jobs;
+    }
+
+    @SneakyThrows({InterruptedException.class}) // pass it up the chain
+    static int waitFor(Process process) {
+        try {
+            return process.waitFor();
+        } catch (InterruptedException e) {
+            destroyTree(process);
+            throw e;
+        }
+    }
+
+    static void destroyTree(Process process) {
+        process.descendants().forEach(ProcessHandle::destroyForcibly);
+        process.destroyForcibly();
+    }
+
+    private static String removeJavactlIdent(String name) {
         return name.substring(8,name.indexOf(".service"));
     }
 }
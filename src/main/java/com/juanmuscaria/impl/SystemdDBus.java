@@ -0,0 +1,212 @@
+package com.juanmuscaria.impl;
+
+import com.juanmuscaria.api.ServiceStatus;
+import com.juanmuscaria.impl.dbus.SystemdJob;
+import com.juanmuscaria.impl.dbus.SystemdManager;
+import com.juanmuscaria.impl.dbus.UnitInfo;
+import lombok.SneakyThrows;
+import org.freedesktop.dbus.DBusPath;
+import org.freedesktop.dbus.connections.impl.DBusConnection;
+import org.freedesktop.dbus.exceptions.DBusException;
+import org.freedesktop.dbus.exceptions.DBusExecutionException;
+import org.freedesktop.dbus.interfaces.Properties;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.function.BiFunction;
+
+// Talks to systemd over the system bus instead of forking systemctl for every operation.
+// A single connection is kept for the lifetime of the instance and job results are received through JobRemoved signals.
+public class SystemdDBus extends Systemd implements Closeable {
+    private static final String UNIT_INTERFACE = "org.freedesktop.systemd1.Unit";
+    private static final String SERVICE_INTERFACE = "org.freedesktop.systemd1.Service";
+    private final DBusConnection connection;
+    private final SystemdManager manager;
+    // Job object path -> job result, signals may arrive before the method call that created the job returns
+    private final Map<String, CompletableFuture<String>> jobs = new ConcurrentHashMap<>();
+    // runJob calls that queued a job and haven't claimed its result yet, guarded by jobs
+    private int claiming;
+
+    public SystemdDBus() throws DBusException {
+        this(DBusConnection.getConnection(DBusConnection.DBusBusType.SYSTEM));
+    }
+
+    // Connects to a custom bus address, mostly useful for testing
+    public SystemdDBus(String address) throws DBusException {
+        this(DBusConnection.getConnection(address));
+    }
+
+    private SystemdDBus(DBusConnection connection) throws DBusException {
+        this.connection = connection;
+        this.manager = connection.getRemoteObject(SystemdManager.BUS_NAME, SystemdManager.OBJECT_PATH, SystemdManager.class);
+        connection.addSigHandler(SystemdManager.JobRemoved.class, this::onJobRemoved);
+        try {
+            manager.Subscribe();
+        } catch (DBusExecutionException e) {
+            connection.disconnect();
+            throw new DBusException("Unable to subscribe to systemd: " + e.getMessage());
+        }
+    }
+
+    private void onJobRemoved(SystemdManager.JobRemoved signal) {
+        if (!signal.getUnit().startsWith("javactl-"))
+            return;
+        synchronized (jobs) {
+            // Results nobody claimed (jobs from other clients) would pile up in long running processes. Only dropped
+            // while no runJob is between queuing a job and claiming it, its result may be among them.
+            if (jobs.size() > 1024 && claiming == 0)
+                jobs.values().removeIf(CompletableFuture::isDone);
+            jobs.computeIfAbsent(signal.getJob().getPath(), path -> new CompletableFuture<>()).complete(signal.getResult());
+        }
+    }
+
+    @Override
+    public boolean isServiceRunning(String name) {
+        String unit = "javactl-" + name + ".service";
+        try {
+            for (UnitInfo info : manager.ListUnitsByNames(Collections.singletonList(unit))) {
+                if (unit.equals(info.name))
+                    return "active".equals(info.activeState);
+            }
+            return false;
+        } catch (DBusExecutionException e) {
+            throw new IllegalArgumentException("Systemd returned an error: " + e.getMessage());
+        }
+    }
+
+    @Override
+    public Map<String, ServiceStatus> getServicesStatus(Collection<String> names) {
+        if (names.isEmpty())
+            return Collections.emptyMap();
+        List<String> units = new ArrayList<>(names.size());
+        for (String name : names)
+            units.add("javactl-" + name + ".service");
+        Map<String, ServiceStatus> status = new LinkedHashMap<>();
+        long now = System.nanoTime() / 1000;
+        try {
+            for (UnitInfo info : manager.ListUnitsByNames(units)) {
+                if (!info.name.startsWith("javactl-") || !info.name.endsWith(".service"))
+                    continue;
+                String name = info.name.substring(8, info.name.length() - 8);
+                long mainPid = 0, memory = -1;
+                Duration uptime = null;
+                if (!"inactive".equals(info.activeState) && !"failed".equals(info.activeState)) {
+                    Properties properties = connection.getRemoteObject(SystemdManager.BUS_NAME, info.unitPath.getPath(), Properties.class);
+                    mainPid = this.<Number>getProperty(properties, SERVICE_INTERFACE, "MainPID").longValue();
+                    memory = this.<Number>getProperty(properties, SERVICE_INTERFACE, "MemoryCurrent").longValue();
+                    long activeSince = this.<Number>getProperty(properties, UNIT_INTERFACE, "ActiveEnterTimestampMonotonic").longValue();
+                    if (activeSince > 0 && activeSince <= now)
+                        uptime = Duration.ofNanos((now - activeSince) * 1000);
+                }
+                // UINT64_MAX when not tracked
+                status.put(name, new ServiceStatus(name, info.activeState, info.subState, mainPid, Math.max(memory, -1), uptime));
+            }
+        } catch (DBusException | DBusExecutionException e) {
+            throw new IllegalArgumentException("Systemd returned an error: " + e.getMessage());
+        }
+        for (String name : names)
+            status.putIfAbsent(name, new ServiceStatus(name, "inactive", "dead", 0, -1, null));
+        return status;
+    }
+
+    private <T> T getProperty(Properties properties, String iface, String property) {
+        return properties.Get(iface, property);
+    }
+
+    @Override
+    public void startService(String name) {
+        runJob(name, manager::StartUnit);
+    }
+
+    @Override
+    public void stopService(String name) {
+        runJob(name, manager::StopUnit);
+    }
+
+    @Override
+    public void restartService(String name) {
+        runJob(name, manager::RestartUnit);
+    }
+
+    @Override
+    public void enableService(String name) {
+        try {
+            manager.EnableUnitFiles(Collections.singletonList("javactl-" + name + ".service"), false, false);
+            manager.Reload();
+        } catch (DBusExecutionException e) {
+            throw new IllegalArgumentException("Systemd returned an error: " + e.getMessage());
+        }
+    }
+
+    @Override
+    public void disableService(String name) {
+        try {
+            manager.DisableUnitFiles(Collections.singletonList("javactl-" + name + ".service"), false);
+            manager.Reload();
+        } catch (DBusExecutionException e) {
+            throw new IllegalArgumentException("Systemd returned an error: " + e.getMessage());
+        }
+    }
+
+    @Override
+    void reloadConfiguration() {
+        try {
+            manager.Reload();
+        } catch (DBusExecutionException e) {
+            throw new IllegalArgumentException("Systemd returned an error: " + e.getMessage());
+        }
+    }
+
+    // Queues a job for the daemon's unit and blocks until systemd reports its result
+    @SneakyThrows(InterruptedException.class) // pass it up the chain
+    private void runJob(String name, BiFunction<String, String, DBusPath> operation) {
+        String unit = "javactl-" + name + ".service";
+        DBusPath job;
+        CompletableFuture<String> result;
+        synchronized (jobs) {
+            claiming++;
+        }
+        try {
+            job = operation.apply(unit, "replace");
+            synchronized (jobs) {
+                result = jobs.computeIfAbsent(job.getPath(), path -> new CompletableFuture<>());
+            }
+        } catch (DBusExecutionException e) {
+            throw new IllegalArgumentException("Systemd returned an error: " + e.getMessage());
+        } finally {
+            synchronized (jobs) {
+                claiming--;
+            }
+        }
+        try {
+            String outcome = result.get();
+            if (!"done".equals(outcome))
+                throw new IllegalArgumentException("Systemd job for " + unit + " finished with result '" + outcome + "', check journalctl -u " + unit);
+        } catch (InterruptedException e) {
+            cancelJob(job);
+            throw e;
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Unable to wait for systemd job " + job.getPath(), e.getCause());
+        } finally {
+            jobs.remove(job.getPath());
+        }
+    }
+
+    void cancelJob(DBusPath job) {
+        try {
+            connection.getRemoteObject(SystemdManager.BUS_NAME, job.getPath(), SystemdJob.class).Cancel();
+        } catch (DBusException | DBusExecutionException ignored) {
+            // Already finished
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        connection.close();
+    }
+}
@@ -7,8 +7,23 @@ import java.io.BufferedWriter;
 import java.io.File;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
 
 public class SystemdDaemonBuilder implements IDaemonBuilder {
+    // Set in cds units to the daemon's state directory, javactl finds cds units by it
+    static final String CDS_DIR = "JAVACTL_CDS_DIR";
+    private static final Pattern NAMESPACE = Pattern.compile("^[a-zA-Z0-9_-]+$");
+    private static final Pattern TAG = Pattern.compile("^[a-zA-Z0-9_-]+$");
+    private static final Pattern SIZE = Pattern.compile("^[0-9]+[KMGTPE]?$");
+    private static final List<String> LEVELS = Arrays.asList("emerg", "alert", "crit", "err", "warning", "notice", "info", "debug");
+    private final File unitDir;
+    private final String runDir;
 
     private String name;
     private String description;
@@ -20,6 +35,27 @@ public class SystemdDaemonBuilder implements IDaemonBuilder {
     private String args;
     private File jar;
     private String group;
+    private List<String> tags = Collections.emptyList();
+    private List<String> after = Collections.emptyList();
+    private String logNamespace;
+    private String logMaxUse;
+    private Duration logRateLimitInterval;
+    private int logRateLimitBurst;
+    private String logLevelMax;
+    private String notifyReady;
+    private Duration watchdog;
+    private File agent;
+    private boolean cds;
+
+    public SystemdDaemonBuilder() {
+        this(SystemdPaths.unitDir().toFile(), SystemdPaths.runDir().toString());
+    }
+
+    // Writes the unit files somewhere else than the system unit directory, mostly useful for testing
+    SystemdDaemonBuilder(File unitDir, String runDir) {
+        this.unitDir = unitDir;
+        this.runDir = runDir;
+    }
 
     @Override
     public IDaemonBuilder name(String name) {
@@ -81,6 +117,61 @@ public class SystemdDaemonBuilder implements IDaemonBuilder {
         return this;
     }
 
+    @Override
+    public IDaemonBuilder tags(List<String> tags) {
+        this.tags = tags == null ? Collections.emptyList() : tags;
+        return this;
+    }
+
+    @Override
+    public IDaemonBuilder after(List<String> daemons) {
+        this.after = daemons == null ? Collections.emptyList() : daemons;
+        return this;
+    }
+
+    @Override
+    public IDaemonBuilder logNamespace(String namespace) {
+        this.logNamespace = namespace;
+        return this;
+    }
+
+    @Override
+    public IDaemonBuilder logMaxUse(String size) {
+        this.logMaxUse = size;
+        return this;
+    }
+
+    @Override
+    public IDaemonBuilder logRateLimit(Duration interval, int burst) {
+        this.logRateLimitInterval = interval;
+        this.logRateLimitBurst = burst;
+        return this;
+    }
+
+    @Override
+    public IDaemonBuilder logLevelMax(String level) {
+        this.logLevelMax = level;
+        return this;
+    }
+
+    @Override
+    public IDaemonBuilder notifyReady(String condition) {
+        this.notifyReady = condition;
+        return this;
+    }
+
+    @Override
+    public IDaemonBuilder watchdog(Duration interval) {
+        this.watchdog = interval;
+        return this;
+    }
+
+    @Override
+    public IDaemonBuilder cds(boolean cds) {
+        this.cds = cds;
+        return this;
+    }
+
     @Override
     public File[] build() {
         if (name == null || name.isBlank())
@@ -95,8 +186,25 @@ public class SystemdDaemonBuilder implements IDaemonBuilder {
             args = "";
         if (jmvArgs == null)
             jmvArgs = "";
-        var file = new File("/etc/systemd/system/javactl-" + name + ".service");
-        var socket = new File("/etc/systemd/system/javactl-" + name + ".socket");
+        for (String tag : tags) {
+            if (!TAG.matcher(tag).matches())
+                throw new IllegalArgumentException("Invalid tag '" + tag + "'! It may only contain letters, digits, '-' and '_'.");
+        }
+        for (String daemon : after) {
+            if (daemon.equals(name))
+                throw new IllegalArgumentException("A daemon can't be started after itself!");
+            if (!new File(unitDir, "javactl-" + daemon + ".service").exists())
+                throw new IllegalArgumentException("Service '" + daemon + "' does not exist.");
+        }
+        validateLogging();
+        validateNotify();
+        if (cds && name.matches(".*\\s.*"))
+            throw new IllegalArgumentException("--cds needs a daemon name without spaces, it names the daemon's state directory.");
+        // Dynamic archives, dumped when the jvm exits, are only supported from java 13 on
+        if (cds && majorVersion(javaInstall.getVersion()) < 13)
+            throw new IllegalArgumentException("--cds needs java 13 or newer, " + javaInstall.getVersion() + " can't dump dynamic archives.");
+        var file = new File(unitDir, "javactl-" + name + ".service");
+        var socket = new File(unitDir, "javactl-" + name + ".socket");
         try {
             if (file.createNewFile() && socket.createNewFile()) {
                 try (BufferedWriter writter = new BufferedWriter(new FileWriter(file))) {
@@ -111,23 +219,150 @@ public class SystemdDaemonBuilder implements IDaemonBuilder {
         } catch (IOException e) {
             throw new IllegalArgumentException("Unable to create daemon files, are you running as root? err:" + e.getMessage());
         }
+        if (logMaxUse != null) {
+            File journaldConfig = journaldConfigFile();
+            try (BufferedWriter writter = new BufferedWriter(new FileWriter(journaldConfig))) {
+                writter.write(genJournaldConfig());
+            } catch (IOException e) {
+                throw new IllegalArgumentException("Unable to create " + journaldConfig + ", are you running as root? err:" + e.getMessage());
+            }
+            return new File[]{file, socket, journaldConfig};
+        }
         return new File[]{file, socket};
     }
 
-    private String genServiceFile() {
+    private void validateLogging() {
+        if (logNamespace != null && !NAMESPACE.matcher(logNamespace).matches())
+            throw new IllegalArgumentException("Invalid log namespace! It may only contain letters, digits, '-' and '_'.");
+        if (logMaxUse != null && logNamespace == null)
+            throw new IllegalArgumentException("A log disk budget needs a log namespace, the system journal's is set in journald.conf.");
+        if (logMaxUse != null && !SIZE.matcher(logMaxUse).matches())
+            throw new IllegalArgumentException("Invalid log disk budget '" + logMaxUse + "', use something like 512M or 2G.");
+        // The config file is per namespace, a second budget would overwrite the first one's
+        if (logMaxUse != null && journaldConfigFile().exists())
+            throw new IllegalArgumentException("The log namespace '" + logNamespace + "' is already configured in " + journaldConfigFile() + ", leave out --logMaxUse to share its budget.");
+        if (logMaxUse != null) {
+            ServiceRegistry registry = new ServiceRegistry(unitDir.toPath(), null);
+            for (String daemon : registry.names()) {
+                if (registry.getInfo(daemon).map(info -> logNamespace.equals(info.getLogNamespace())).orElse(false))
+                    throw new IllegalArgumentException("Daemon '" + daemon + "' already logs to the namespace '" + logNamespace + "', leave out --logMaxUse to share its budget.");
+            }
+        }
+        if (logRateLimitInterval != null && (logRateLimitInterval.isNegative() || logRateLimitBurst < 0))
+            throw new IllegalArgumentException("The log rate limit can't be negative!");
+        if (logLevelMax != null && !LEVELS.contains(logLevelMax) && !logLevelMax.matches("^[0-7]$"))
+            throw new IllegalArgumentException("Invalid log level '" + logLevelMax + "', expected one of " + String.join(", ", LEVELS) + " or 0-7.");
+    }
+
+    private void validateNotify() {
+        if (watchdog != null && notifyReady == null)
+            throw new IllegalArgumentException("A watchdog needs --notify, the javactl agent is what keeps it fed.");
+        if (watchdog != null && watchdog.toSeconds() < 1)
+            throw new IllegalArgumentException("The watchdog interval must be at least 1s.");
+        if (notifyReady == null)
+            return;
+        if (notifyReady.startsWith("port:")) {
+            String port = notifyReady.substring(5);
+            if (!port.matches("^[0-9]{1,5}$") || Integer.parseInt(port) < 1 || Integer.parseInt(port) > 65535)
+                throw new IllegalArgumentException("Invalid port '" + port + "'!");
+        } else if (notifyReady.startsWith("log:")) {
+            try {
+                Pattern.compile(notifyReady.substring(4));
+            } catch (PatternSyntaxException e) {
+                throw new IllegalArgumentException("Invalid log pattern: " + e.getDescription());
+            }
+        } else if (!notifyReady.equals("main")) {
+            throw new IllegalArgumentException("Invalid readiness condition '" + notifyReady + "', expected main, port:<port> or log:<regex>.");
+        }
+        agent = SystemdPaths.agentJar().toFile();
+        if (!agent.isFile())
+            throw new IllegalArgumentException("Unable to find the javactl agent at " + agent + ", set JAVACTL_AGENT to its location.");
+    }
+
+    // 1.8.0_292 is 8, 17.0.1 is 17
+    static int majorVersion(String version) {
+        String[] parts = version.split("[._+-]");
+        try {
+            int major = Integer.parseInt(parts[0]);
+            return major == 1 && parts.length > 1 ? Integer.parseInt(parts[1]) : major;
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    // Before every start: keeps the archive when the jar, the jvm arguments and the java are the ones it was dumped
+    // from, otherwise drops it and has this run dump a new one at exit. The choice reaches ExecStart through cds.env.
+    // The java is the one in $JAVA_HOME at start time, not the one the unit was created with.
+    String genCdsPrepareScript() {
+        return "cd \"$" + CDS_DIR + "\" || exit 0; "
+                + "stamp=\"$(sha256sum " + shellQuote(jar.getAbsolutePath()) + "; printf '%s\\n' " + shellQuote(jmvArgs) + "; "
+                + "cat \"$JAVA_HOME/release\"; stat -L -c '%s %Y' \"$JAVA_HOME/lib/server/libjvm.so\")\"; "
+                + "if [ -s app.jsa ] && [ \"$stamp\" = \"$(cat stamp 2>/dev/null)\" ]; then "
+                + "echo \"JAVACTL_CDS='-XX:SharedArchiveFile=$" + CDS_DIR + "/app.jsa -Xshare:auto'\" > cds.env; "
+                + "else rm -f app.jsa stamp; echo \"$stamp\" > stamp.pending; "
+                + "echo \"JAVACTL_CDS='-XX:ArchiveClassesAtExit=$" + CDS_DIR + "/app.jsa'\" > cds.env; fi";
+    }
+
+    // After every stop: a run that was dumping only counts once the archive is actually there
+    String genCdsCommitScript() {
+        return "cd \"$" + CDS_DIR + "\" || exit 0; "
+                + "if [ -f stamp.pending ]; then if [ -s app.jsa ]; then mv stamp.pending stamp; else rm -f stamp.pending; fi; fi";
+    }
+
+    // One ExecStart word, systemd would split it on spaces and expand % specifiers and $ variables otherwise
+    static String quote(String word) {
+        return '"' + word.replace("\\", "\\\\").replace("\"", "\\\"").replace("%", "%%").replace("$", "$$") + '"';
+    }
+
+    // A single sh word
+    static String shellQuote(String word) {
+        return "'" + word.replace("'", "'\\''") + "'";
+    }
+
+    File journaldConfigFile() {
+        return journaldConfigFile(unitDir.toPath(), logNamespace).toFile();
+    }
+
+    // journald reads the settings of a namespace's instance from journald@<namespace>.conf next to the system units
+    static Path journaldConfigFile(Path unitDir, String namespace) {
+        return unitDir.toAbsolutePath().getParent().resolve("journald@" + namespace + ".conf");
+    }
+
+    // First line of the namespace config written for a daemon, how deleting it tells the file is its own
+    static String journaldConfigHeader(String name) {
+        return "# Generated by javactl 0.1 for javactl-" + name + ".service";
+    }
+
+    String genServiceFile() {
         StringBuilder b = new StringBuilder();
         b.append("# Generated by javactl 0.1 Do not touch\n")
                 .append("[Unit]\n")
                 .append("Description=").append(description).append("\n")
                 .append("After=network.target\n")
-                .append("Wants=network-online.target\n")
-                .append("\n")
+                .append("Wants=network-online.target\n");
+        for (String daemon : after)
+            b.append("After=javactl-").append(daemon).append(".service\n");
+        // systemd ignores X- settings, javactl reads them back from the unit
+        if (!tags.isEmpty())
+            b.append("X-JavactlTags=").append(String.join(",", tags)).append("\n");
+        b.append("\n")
                 .append("[Service]\n")
-                .append("Type=simple\n")
+                .append(notifyReady != null ? "Type=notify\n" : "Type=simple\n")
                 .append("WorkingDirectory=").append(workingDir.getAbsolutePath()).append("\n");
+        if (notifyReady != null) {
+            // The agent sends its messages through systemd-notify, a child process of the jvm
+            b.append("NotifyAccess=all\n");
+            if (watchdog != null)
+                b.append("WatchdogSec=").append(watchdog.toMillis()).append("ms\n");
+        }
 
-        b.append("ExecStart=").append(javaInstall.getExec().getAbsolutePath())
-                .append(" ").append(jmvArgs).append(" -jar ")
+        b.append("ExecStart=").append(javaInstall.getExec().getAbsolutePath());
+        if (notifyReady != null)
+            b.append(" ").append(quote("-javaagent:" + agent.getAbsolutePath() + "=" + notifyReady));
+        // Split into words by systemd, nothing when cds.env is missing
+        if (cds)
+            b.append(" $JAVACTL_CDS");
+        b.append(" ").append(jmvArgs).append(" -jar ")
                 .append(jar.getAbsolutePath()).append(" ").append(args).append("\n");
 
         if (user != null && !user.isBlank())
@@ -135,26 +370,49 @@ public class SystemdDaemonBuilder implements IDaemonBuilder {
         if (group != null && !group.isBlank())
             b.append("Group=").append(group).append("\n");
         b.append("Environment='JAVA_HOME=").append(javaInstall.getHome()).append("'\n");
+        if (cds) {
+            // %S is /var/lib for system units, systemd creates the directory owned by the daemon's user
+            b.append("StateDirectory=javactl/").append(name).append("\n")
+                    .append("Environment=").append(CDS_DIR).append("=%S/javactl/").append(name).append("\n")
+                    .append("EnvironmentFile=-%S/javactl/").append(name).append("/cds.env\n")
+                    .append("ExecStartPre=/bin/sh -c ").append(quote(genCdsPrepareScript())).append("\n")
+                    .append("ExecStopPost=/bin/sh -c ").append(quote(genCdsCommitScript())).append("\n");
+        }
         if (autoRestart)
             b.append("Restart=on-failure\n");
         b.append("Sockets=javactl-").append(name).append(".socket\n")
                 .append("StandardInput=socket\n")
                 .append("StandardOutput=journal\n")
                 .append("StandardError=journal\n");
+        if (logNamespace != null)
+            b.append("LogNamespace=").append(logNamespace).append("\n");
+        if (logRateLimitInterval != null) {
+            // 0 disables rate limiting
+            b.append("LogRateLimitIntervalSec=").append(logRateLimitInterval.toMillis()).append("ms\n")
+                    .append("LogRateLimitBurst=").append(logRateLimitBurst).append("\n");
+        }
+        if (logLevelMax != null)
+            b.append("LogLevelMax=").append(logLevelMax).append("\n");
         b.append("\n")
                 .append("[Install]\n")
                 .append("WantedBy=multi-user.target");
         return b.toString();
     }
 
-    private String genSocketFile() {
+    String genJournaldConfig() {
+        return journaldConfigHeader(name) + "\n" +
+                "[Journal]\n" +
+                "SystemMaxUse=" + logMaxUse + "\n";
+    }
+
+    String genSocketFile() {
         StringBuilder b = new StringBuilder();
         b.append("# Generated by javactl 0.1 Do not touch\n")
                 .append("[Unit]\n")
                 .append("PartOf=javactl-").append(name).append(".service\n")
                 .append("\n")
                 .append("[Socket]\n")
-                .append("ListenFIFO=/run/javactl/").append(name);
+                .append("ListenFIFO=").append(runDir).append("/").append(name);
         return b.toString();
     }
 }
@@ -0,0 +1,104 @@
+package com.juanmuscaria.impl;
+
+import com.juanmuscaria.api.DaemonInfo;
+import com.juanmuscaria.api.IService;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+
+// Reads a daemon's output back from the journal through journalctl's json output, so every line comes with its cursor
+public class SystemdJournal {
+    // __CURSOR and __REALTIME_TIMESTAMP are always included
+    private static final String OUTPUT_FIELDS = "--output-fields=MESSAGE,PRIORITY,SYSLOG_IDENTIFIER,_PID";
+
+    private SystemdJournal() {
+        throw new IllegalStateException("Sealed class");
+    }
+
+    // Follows new output, starting right after a cursor or, without one, with the last lines entries (all when negative)
+    public static ProcessBuilder follow(String name, int lines, String afterCursor) {
+        List<String> command = journalctl(name);
+        command.addAll(Arrays.asList("-f", "-a", "-o", "json", OUTPUT_FIELDS));
+        if (afterCursor != null)
+            command.add("--after-cursor=" + afterCursor);
+        else
+            command.add(lines < 0 ? "--lines=all" : "--lines=" + lines);
+        return new ProcessBuilder(command).redirectError(ProcessBuilder.Redirect.DISCARD);
+    }
+
+    // Cursor of the newest entry, empty when the daemon never logged anything
+    public static Optional<String> latestCursor(String name) {
+        List<String> command = journalctl(name);
+        command.addAll(Arrays.asList("-o", "json", "--output-fields=PRIORITY", "--lines=1"));
+        try {
+            Process process = new ProcessBuilder(command).redirectError(ProcessBuilder.Redirect.DISCARD).start();
+            String cursor = null;
+            try (JournalReader reader = new JournalReader(process.getInputStream())) {
+                while (reader.next())
+                    cursor = reader.getField(JournalReader.CURSOR);
+            }
+            Systemd.waitFor(process);
+            return Optional.ofNullable(cursor);
+        } catch (IOException e) {
+            throw new IllegalStateException("journalctl not found, this should be an unreachable exception, please open an issue if you see this message!");
+        }
+    }
+
+    // Everything journald has for a daemon, filtered by journald itself. since and until take anything journalctl
+    // understands ("2021-06-01 12:00", "1h ago", "today"), priority a syslog level or range ("warning", "0..4").
+    public static ProcessBuilder query(String name, String since, String until, String priority, int lines, boolean follow) {
+        List<String> command = journalctl(name);
+        command.addAll(Arrays.asList("-a", "-o", "json", "--no-pager"));
+        if (since != null)
+            command.add("--since=" + since);
+        if (until != null)
+            command.add("--until=" + until);
+        if (priority != null)
+            command.add("--priority=" + priority);
+        if (lines > 0)
+            command.add("--lines=" + lines);
+        if (follow)
+            command.add("-f");
+        return new ProcessBuilder(command).redirectError(ProcessBuilder.Redirect.INHERIT);
+    }
+
+    // Up to count entries logged before a cursor, oldest first
+    public static List<JournalEntry> before(String name, String cursor, int count) {
+        // Walking backwards from the cursor includes the cursor's own entry, ask for one more and drop it
+        List<String> command = journalctl(name);
+        command.addAll(Arrays.asList("-a", "-o", "json", OUTPUT_FIELDS, "--cursor=" + cursor, "--reverse", "--lines=" + (count + 1)));
+        ProcessBuilder builder = new ProcessBuilder(command).redirectError(ProcessBuilder.Redirect.DISCARD);
+        List<JournalEntry> entries = new ArrayList<>(count + 1);
+        try {
+            Process process = builder.start();
+            try (JournalReader reader = new JournalReader(process.getInputStream())) {
+                while (reader.next()) {
+                    if (!cursor.equals(reader.getField(JournalReader.CURSOR)))
+                        entries.add(JournalEntry.of(reader));
+                }
+            }
+            Systemd.waitFor(process);
+        } catch (IOException e) {
+            throw new IllegalStateException("journalctl not found, this should be an unreachable exception, please open an issue if you see this message!");
+        }
+        if (entries.size() > count)
+            entries = entries.subList(0, count);
+        Collections.reverse(entries);
+        return entries;
+    }
+
+    // Daemons created with a log namespace log to their own journald instance, only visible with --namespace
+    private static List<String> journalctl(String name) {
+        List<String> command = new ArrayList<>();
+        command.add("journalctl");
+        IService.service().getDaemonInfo(name).map(DaemonInfo::getLogNamespace)
+                .ifPresent(namespace -> command.add("--namespace=" + namespace));
+        command.add("-u");
+        command.add("javactl-" + name + ".service");
+        return command;
+    }
+}
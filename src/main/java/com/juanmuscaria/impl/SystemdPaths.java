@@ -0,0 +1,54 @@
+package com.juanmuscaria.impl;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+// Where javactl keeps its units and daemon fifos. Both can be moved with a system property or an environment
+// variable so the CLI can run against a stand-in systemd, e.g. JAVACTL_UNIT_DIR=/tmp/units JAVACTL_RUN_DIR=/tmp/run
+public class SystemdPaths {
+
+    private SystemdPaths() {
+        throw new IllegalStateException("Sealed class");
+    }
+
+    public static Path unitDir() {
+        return get("javactl.unitDir", "JAVACTL_UNIT_DIR", "/etc/systemd/system");
+    }
+
+    public static Path runDir() {
+        return get("javactl.runDir", "JAVACTL_RUN_DIR", "/run/javactl");
+    }
+
+    // Per daemon state kept by javactl, like class data sharing archives. Units refer to it as %S/javactl.
+    public static Path stateDir() {
+        return get("javactl.stateDir", "JAVACTL_STATE_DIR", "/var/lib/javactl");
+    }
+
+    // Parent of the javactl units' cgroups, the cgroup v2 hierarchy is mounted at /sys/fs/cgroup
+    public static Path cgroupDir() {
+        return get("javactl.cgroupDir", "JAVACTL_CGROUP_DIR", "/sys/fs/cgroup/system.slice");
+    }
+
+    // The agent injected into daemons created with --notify, shipped in the lib dir next to javactl's own jar
+    public static Path agentJar() {
+        return get("javactl.agent", "JAVACTL_AGENT", defaultAgentJar());
+    }
+
+    private static String defaultAgentJar() {
+        try {
+            Path self = Paths.get(SystemdPaths.class.getProtectionDomain().getCodeSource().getLocation().toURI());
+            if (self.toString().endsWith(".jar"))
+                return self.resolveSibling("javactl-agent.jar").toString();
+        } catch (Exception ignored) {
+            // No code source in a native image
+        }
+        return "/usr/lib/javactl/javactl-agent.jar";
+    }
+
+    private static Path get(String property, String env, String fallback) {
+        String value = System.getProperty(property);
+        if (value == null || value.isBlank())
+            value = System.getenv(env);
+        return Paths.get(value == null || value.isBlank() ? fallback : value);
+    }
+}
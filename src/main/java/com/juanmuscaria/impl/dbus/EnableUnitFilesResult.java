@@ -0,0 +1,19 @@
+package com.juanmuscaria.impl.dbus;
+
+import org.freedesktop.dbus.Tuple;
+import org.freedesktop.dbus.annotations.Position;
+
+import java.util.List;
+
+// (ba(sss)) out parameters of EnableUnitFiles
+public class EnableUnitFilesResult extends Tuple {
+    @Position(0)
+    public final boolean carriesInstallInfo;
+    @Position(1)
+    public final List<UnitFileChange> changes;
+
+    public EnableUnitFilesResult(boolean carriesInstallInfo, List<UnitFileChange> changes) {
+        this.carriesInstallInfo = carriesInstallInfo;
+        this.changes = changes;
+    }
+}
@@ -0,0 +1,9 @@
+package com.juanmuscaria.impl.dbus;
+
+import org.freedesktop.dbus.annotations.DBusInterfaceName;
+import org.freedesktop.dbus.interfaces.DBusInterface;
+
+@DBusInterfaceName("org.freedesktop.systemd1.Job")
+public interface SystemdJob extends DBusInterface {
+    void Cancel();
+}
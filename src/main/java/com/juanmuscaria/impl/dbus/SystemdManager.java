@@ -0,0 +1,67 @@
+package com.juanmuscaria.impl.dbus;
+
+import org.freedesktop.dbus.DBusPath;
+import org.freedesktop.dbus.annotations.DBusInterfaceName;
+import org.freedesktop.dbus.exceptions.DBusException;
+import org.freedesktop.dbus.interfaces.DBusInterface;
+import org.freedesktop.dbus.messages.DBusSignal;
+import org.freedesktop.dbus.types.UInt32;
+
+import java.util.List;
+
+// The subset of org.freedesktop.systemd1.Manager used by javactl
+// https://www.freedesktop.org/software/systemd/man/org.freedesktop.systemd1.html
+@DBusInterfaceName("org.freedesktop.systemd1.Manager")
+public interface SystemdManager extends DBusInterface {
+    String BUS_NAME = "org.freedesktop.systemd1";
+    String OBJECT_PATH = "/org/freedesktop/systemd1";
+
+    DBusPath StartUnit(String name, String mode);
+
+    DBusPath StopUnit(String name, String mode);
+
+    DBusPath RestartUnit(String name, String mode);
+
+    List<UnitInfo> ListUnitsByNames(List<String> names);
+
+    EnableUnitFilesResult EnableUnitFiles(List<String> files, boolean runtime, boolean force);
+
+    List<UnitFileChange> DisableUnitFiles(List<String> files, boolean runtime);
+
+    void Reload();
+
+    // Job signals are only sent to subscribed clients
+    void Subscribe();
+
+    class JobRemoved extends DBusSignal {
+        private final UInt32 id;
+        private final DBusPath job;
+        private final String unit;
+        private final String result;
+
+        public JobRemoved(String path, UInt32 id, DBusPath job, String unit, String result) throws DBusException {
+            super(path, id, job, unit, result);
+            this.id = id;
+            this.job = job;
+            this.unit = unit;
+            this.result = result;
+        }
+
+        public UInt32 getId() {
+            return id;
+        }
+
+        public DBusPath getJob() {
+            return job;
+        }
+
+        public String getUnit() {
+            return unit;
+        }
+
+        // done, canceled, timeout, failed, dependency or skipped
+        public String getResult() {
+            return result;
+        }
+    }
+}
@@ -0,0 +1,20 @@
+package com.juanmuscaria.impl.dbus;
+
+import org.freedesktop.dbus.Struct;
+import org.freedesktop.dbus.annotations.Position;
+
+// (sss) change entries returned by EnableUnitFiles and DisableUnitFiles
+public class UnitFileChange extends Struct {
+    @Position(0)
+    public final String type;
+    @Position(1)
+    public final String fileName;
+    @Position(2)
+    public final String destination;
+
+    public UnitFileChange(String type, String fileName, String destination) {
+        this.type = type;
+        this.fileName = fileName;
+        this.destination = destination;
+    }
+}
@@ -0,0 +1,100 @@
+package com.juanmuscaria.perf;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+// Runs every javactl command against FakeSystemd with a growing number of daemons and reports the latency
+// percentiles and how many systemctl/journalctl processes each call spawned.
+// Usage: CliLatency <launcher> <daemon counts, e.g. 10,100,1000> <runs> [stand-in latency in seconds]
+public class CliLatency {
+    private static final String[] COMMANDS = {"list", "start", "connect", "stop", "create", "delete"};
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 3) {
+            System.err.println("Usage: CliLatency <launcher> <daemon counts> <runs> [latency seconds]");
+            System.exit(2);
+        }
+        File launcher = new File(args[0]);
+        int runs = Integer.parseInt(args[2]);
+        String latency = args.length > 3 ? args[3] : "0";
+        if (!launcher.canExecute()) {
+            System.err.println("Launcher " + launcher + " does not exist, build it first.");
+            System.exit(2);
+        }
+
+        System.out.printf("%8s %-8s %8s %8s %8s %8s%n", "DAEMONS", "COMMAND", "P50", "P99", "SPAWNS", "FAILED");
+        for (String count : args[1].split(",")) {
+            int daemons = Integer.parseInt(count.trim());
+            try (FakeSystemd fake = new FakeSystemd(daemons, latency)) {
+                fake.drain("daemon0");
+                Map<String, Sample> samples = new LinkedHashMap<>();
+                for (String command : COMMANDS)
+                    samples.put(command, new Sample(runs));
+                String java = new File(System.getProperty("java.home"), "bin/java").getPath();
+                for (int i = 0; i < runs; i++) {
+                    String created = "bench" + i;
+                    run(launcher, fake, samples.get("list"), null, "list");
+                    run(launcher, fake, samples.get("start"), null, "start", "daemon0");
+                    run(launcher, fake, samples.get("connect"), "say hello\n", "connect", "daemon0");
+                    run(launcher, fake, samples.get("stop"), null, "stop", "daemon0");
+                    run(launcher, fake, samples.get("create"), null, "create", "-n", created, "-j", fake.jar.toString(), "-E", java);
+                    run(launcher, fake, samples.get("delete"), null, "delete", created);
+                }
+                samples.forEach((command, sample) -> System.out.printf("%8d %-8s %6dms %6dms %8.1f %8d%n", daemons,
+                        command, sample.percentile(50), sample.percentile(99), sample.spawns / (double) runs, sample.failed));
+            }
+        }
+    }
+
+    private static void run(File launcher, FakeSystemd fake, Sample sample, String input, String... args) throws Exception {
+        List<String> command = new ArrayList<>();
+        command.add(launcher.getAbsolutePath());
+        command.addAll(Arrays.asList(args));
+        ProcessBuilder builder = new ProcessBuilder(command)
+                .redirectOutput(ProcessBuilder.Redirect.DISCARD)
+                .redirectError(ProcessBuilder.Redirect.DISCARD);
+        if (input == null)
+            builder.redirectInput(new File("/dev/null"));
+        fake.configure(builder.environment());
+        long spawns = fake.spawns();
+        long start = System.nanoTime();
+        Process process = builder.start();
+        if (input != null) {
+            try (OutputStream stdin = process.getOutputStream()) {
+                stdin.write(input.getBytes(StandardCharsets.UTF_8));
+            } catch (IOException ignored) {
+                // Exited before reading it, counted as a failure below
+            }
+        }
+        int code = process.waitFor();
+        sample.add((System.nanoTime() - start) / 1_000_000, fake.spawns() - spawns, code != 0);
+    }
+
+    private static class Sample {
+        final long[] times;
+        int count;
+        long spawns;
+        int failed;
+
+        Sample(int runs) {
+            times = new long[runs];
+        }
+
+        void add(long millis, long spawned, boolean failure) {
+            times[count++] = millis;
+            spawns += spawned;
+            if (failure)
+                failed++;
+        }
+
+        long percentile(int percentile) {
+            long[] sorted = Arrays.copyOf(times, count);
+            Arrays.sort(sorted);
+            int index = (int) Math.ceil(percentile / 100.0 * sorted.length) - 1;
+            return sorted[Math.max(index, 0)];
+        }
+    }
+}
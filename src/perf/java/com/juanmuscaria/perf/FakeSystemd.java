@@ -0,0 +1,98 @@
+package com.juanmuscaria.perf;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.stream.Stream;
+
+// A temp root with javactl units and stand-in systemctl/journalctl executables (see /fake), enough for the CLI to
+// run every command without a real systemd
+public class FakeSystemd implements Closeable {
+    final Path root;
+    final Path unitDir;
+    final Path runDir;
+    final Path binDir;
+    final Path jar;
+    private final String latency;
+
+    public FakeSystemd(int daemons, String latency) throws IOException {
+        this.latency = latency;
+        root = Files.createTempDirectory("javactl-fake-systemd");
+        unitDir = Files.createDirectories(root.resolve("units"));
+        runDir = Files.createDirectories(root.resolve("run"));
+        binDir = Files.createDirectories(root.resolve("bin"));
+        Files.createDirectories(root.resolve("state"));
+        Files.createDirectories(root.resolve("home"));
+        Files.createFile(root.resolve("spawns"));
+        jar = Files.createFile(root.resolve("server.jar"));
+        for (String tool : new String[]{"systemctl", "journalctl"}) {
+            Path exec = binDir.resolve(tool);
+            try (InputStream in = FakeSystemd.class.getResourceAsStream("/fake/" + tool)) {
+                if (in == null)
+                    throw new IllegalStateException("Missing stand-in " + tool);
+                Files.copy(in, exec);
+            }
+            Files.setPosixFilePermissions(exec, PosixFilePermissions.fromString("rwxr-xr-x"));
+        }
+        String java = Path.of(System.getProperty("java.home"), "bin", "java").toString();
+        for (int i = 0; i < daemons; i++) {
+            String name = "daemon" + i;
+            Files.writeString(unitDir.resolve("javactl-" + name + ".service"), "# Generated by javactl 0.1 Do not touch\n" +
+                    "[Unit]\n" +
+                    "Description=" + name + "\n" +
+                    "[Service]\n" +
+                    "Type=simple\n" +
+                    "WorkingDirectory=" + root + "\n" +
+                    "ExecStart=" + java + "  -jar " + jar + " \n" +
+                    "Sockets=javactl-" + name + ".socket\n");
+            Files.writeString(unitDir.resolve("javactl-" + name + ".socket"), "[Socket]\nListenFIFO=" + runDir.resolve(name));
+        }
+    }
+
+    // Environment pointing javactl at the stand-ins, the agent is disabled so every call runs the full command
+    public void configure(Map<String, String> env) {
+        env.put("PATH", binDir + File.pathSeparator + System.getenv("PATH"));
+        env.put("JAVACTL_UNIT_DIR", unitDir.toString());
+        env.put("JAVACTL_RUN_DIR", runDir.toString());
+        env.put("JAVACTL_SERVICE_MANAGER", "systemd");
+        env.put("JAVACTL_NO_AGENT", "1");
+        env.put("JAVA_OPTS", "-Duser.home=" + root.resolve("home"));
+        env.put("FAKE_SYSTEMD_ROOT", root.toString());
+        env.put("FAKE_SYSTEMD_LATENCY", latency);
+    }
+
+    // Number of systemctl/journalctl calls made so far
+    public long spawns() throws IOException {
+        try (Stream<String> lines = Files.lines(root.resolve("spawns"))) {
+            return lines.count();
+        }
+    }
+
+    // Keeps a reader on a daemon fifo like the daemon itself would, otherwise connect blocks opening it
+    public void drain(String name) throws IOException, InterruptedException {
+        Path fifo = runDir.resolve(name);
+        if (!Files.exists(fifo) && new ProcessBuilder("mkfifo", fifo.toString()).start().waitFor() != 0)
+            throw new IOException("Unable to create fifo " + fifo);
+        Thread drain = new Thread(() -> {
+            while (true) {
+                try (InputStream in = new FileInputStream(fifo.toFile())) {
+                    in.transferTo(OutputStream.nullOutputStream());
+                } catch (IOException e) {
+                    return;
+                }
+            }
+        }, "fifo-" + name);
+        drain.setDaemon(true);
+        drain.start();
+    }
+
+    @Override
+    public void close() throws IOException {
+        try (Stream<Path> files = Files.walk(root)) {
+            files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package com.juanmuscaria.perf;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+// Launches javactl commands as fresh processes and fails when their median wall time goes over a budget.
+// Usage: StartupBudget <launcher> <budget ms> <runs> <command>...  where each command is a single argument, e.g. "list"
+public class StartupBudget {
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 4) {
+            System.err.println("Usage: StartupBudget <launcher> <budget ms> <runs> <command>...");
+            System.exit(2);
+        }
+        File launcher = new File(args[0]);
+        long budget = Long.parseLong(args[1]);
+        int runs = Integer.parseInt(args[2]);
+        if (!launcher.canExecute()) {
+            System.err.println("Launcher " + launcher + " does not exist, build it first.");
+            System.exit(2);
+        }
+
+        boolean failed = false;
+        System.out.printf("%-24s %8s %8s %8s %8s%n", "COMMAND", "MIN", "P50", "MAX", "BUDGET");
+        for (String command : Arrays.copyOfRange(args, 3, args.length)) {
+            List<String> line = new ArrayList<>();
+            line.add(launcher.getAbsolutePath());
+            line.addAll(Arrays.asList(command.trim().split("\\s+")));
+            run(line); // Not measured, brings the launcher into the page cache
+            long[] times = new long[runs];
+            for (int i = 0; i < runs; i++)
+                times[i] = run(line);
+            Arrays.sort(times);
+            long p50 = times[runs / 2];
+            boolean over = p50 > budget;
+            failed |= over;
+            System.out.printf("%-24s %6dms %6dms %6dms %6dms%s%n", command, times[0], p50, times[runs - 1], budget,
+                    over ? "  OVER BUDGET" : "");
+        }
+        if (failed) {
+            System.err.println("Startup time regressed past the budget.");
+            System.exit(1);
+        }
+    }
+
+    // Wall time in milliseconds from spawn to exit. The exit code is not checked, a command failing because there is
+    // no such daemon or no permission still goes through jvm, context and registry startup, only not systemctl.
+    private static long run(List<String> command) throws Exception {
+        ProcessBuilder builder = new ProcessBuilder(command)
+                .redirectOutput(ProcessBuilder.Redirect.DISCARD)
+                .redirectError(ProcessBuilder.Redirect.DISCARD);
+        builder.environment().put("JAVACTL_NO_AGENT", "1"); // Measure javactl itself, not the resident agent
+        long start = System.nanoTime();
+        builder.start().waitFor();
+        return (System.nanoTime() - start) / 1_000_000;
+    }
+}
@@ -0,0 +1,56 @@
+package com.juanmuscaria;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BulkRunnerTest {
+
+    @Test
+    public void testBoundedParallelismAndDeadlines() {
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger peak = new AtomicInteger();
+        List<BulkRunner.Result> results = new BulkRunner(2, Duration.ofMillis(300)).run(Arrays.asList("a", "b", "slow", "c", "broken"), name -> {
+            peak.accumulateAndGet(running.incrementAndGet(), Math::max);
+            try {
+                if (name.equals("broken"))
+                    throw new IllegalArgumentException("not running");
+                Thread.sleep(name.equals("slow") ? 5000 : 20);
+                return "done";
+            } finally {
+                running.decrementAndGet();
+            }
+        });
+        assertEquals(2, peak.get());
+        assertEquals(Arrays.asList("a", "b", "slow", "c", "broken"), Arrays.asList(results.stream().map(BulkRunner.Result::getName).toArray()));
+        assertTrue(results.get(0).isOk());
+        assertEquals("done", results.get(3).getDetail());
+        // Latency counts from when a worker started, not from the start of the batch
+        assertTrue(results.get(3).getLatency() < 200_000_000L);
+        assertFalse(results.get(2).isOk());
+        assertTrue(results.get(2).getDetail().startsWith("timed out"));
+        assertFalse(results.get(4).isOk());
+        assertEquals("not running", results.get(4).getDetail());
+    }
+
+    @Test
+    public void testDeadlineCancelsServiceWait() {
+        CompletableFuture<Void> operation = new CompletableFuture<>();
+        long start = System.nanoTime();
+        List<BulkRunner.Result> results = new BulkRunner(1, Duration.ofMillis(200)).run(List.of("stuck"), name -> {
+            Javactl.await(operation, null);
+            return "done";
+        });
+        assertTrue(System.nanoTime() - start < 5_000_000_000L);
+        assertFalse(results.get(0).isOk());
+        assertEquals("timed out after 200ms", results.get(0).getDetail());
+        // Cancelling the operation is what takes down the systemd job
+        assertTrue(operation.isCancelled());
+    }
+}
@@ -0,0 +1,76 @@
+package com.juanmuscaria;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.PipedInputStream;
+import java.io.PipedOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ConsoleExecTest {
+    private final PipedOutputStream journal = new PipedOutputStream();
+    private final PipedInputStream in;
+
+    public ConsoleExecTest() throws IOException {
+        in = new PipedInputStream(journal, 64 * 1024);
+    }
+
+    // A journalctl -o json entry, timestamp in microseconds
+    private void log(long timestamp, String message) throws IOException {
+        journal.write(("{\"__CURSOR\":\"s=test\",\"__REALTIME_TIMESTAMP\":\"" + timestamp + "\",\"PRIORITY\":\"6\",\"MESSAGE\":\""
+                + message + "\"}\n").getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static long now() {
+        return System.currentTimeMillis() * 1000;
+    }
+
+    @Test
+    public void testWaitsForTheMatchingLine() throws IOException {
+        ConsoleExec exec = new ConsoleExec("mc", Pattern.compile("players online"), Duration.ofSeconds(5));
+        assertTrue(exec.watch(in, () -> {
+            // Logged before the command was sent, not part of the answer
+            log(1700000000000000L, "There are 9 players online");
+            log(now() + 1000, "Unknown command");
+            log(now() + 2000, "There are 3 players online");
+            log(now() + 3000, "After the answer");
+        }));
+        assertEquals(List.of("Unknown command", "There are 3 players online"), exec.getOutput());
+        assertTrue(exec.getLatency() >= 0);
+    }
+
+    @Test
+    public void testFirstLineWithoutPattern() throws IOException {
+        ConsoleExec exec = new ConsoleExec("mc", null, Duration.ofSeconds(5));
+        assertTrue(exec.watch(in, () -> {
+            log(now() - 5_000_000, "Before");
+            log(now() + 1000, "Saved the game");
+            log(now() + 2000, "Later");
+        }));
+        assertEquals(List.of("Saved the game"), exec.getOutput());
+    }
+
+    @Test
+    public void testTimeout() throws IOException {
+        ConsoleExec exec = new ConsoleExec("mc", Pattern.compile("players online"), Duration.ofMillis(200));
+        // What destroying journalctl at the deadline looks like from the reading side
+        CompletableFuture.delayedExecutor(200, TimeUnit.MILLISECONDS).execute(() -> {
+            try {
+                journal.close();
+            } catch (IOException ignored) {
+            }
+        });
+        long start = System.nanoTime();
+        assertFalse(exec.watch(in, () -> log(now() + 1000, "Unknown command")));
+        assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(150));
+        assertEquals(List.of("Unknown command"), exec.getOutput());
+        assertEquals(-1, exec.getLatency());
+    }
+}
@@ -0,0 +1,26 @@
+package com.juanmuscaria;
+
+import com.sun.security.auth.module.UnixSystem;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class JavactldTest {
+
+    @Test
+    public void testProbeJavaRunsAsTheCaller() throws IOException {
+        AtomicBoolean accepted = new AtomicBoolean();
+        try (Javactld agent = new Javactld()) {
+            // Another user's installations and cache live in their own home
+            long other = new UnixSystem().getUid() + 1;
+            assertNull(agent.dispatch(new String[]{"probeJava", "--refresh"}, other, new PrintWriter(new StringWriter()),
+                    new PrintWriter(new StringWriter()), () -> accepted.set(true)));
+            assertFalse(accepted.get());
+        }
+    }
+}
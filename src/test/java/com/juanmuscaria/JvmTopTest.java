@@ -0,0 +1,55 @@
+package com.juanmuscaria;
+
+import com.juanmuscaria.api.ServiceStatus;
+import com.juanmuscaria.api.jvm.PerfData;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class JvmTopTest {
+
+    private static String row(JvmTop top) {
+        return top.render(10).get(2).toString();
+    }
+
+    @Test
+    public void testStoppedDaemon() {
+        try (JvmTop top = new JvmTop(Duration.ofSeconds(1))) {
+            top.updatePids(Map.of("web", new ServiceStatus("web", "inactive", "dead", 0, -1, null)));
+            assertTrue(row(top).contains("not running"), row(top));
+        }
+    }
+
+    @Test
+    public void testRetriesMissingHsperfdata() throws IOException {
+        // Above pid_max, never a real process
+        long pid = 4_194_999;
+        Path own = PerfData.locate(ProcessHandle.current().pid()).orElseThrow();
+        Path late = own.resolveSibling(String.valueOf(pid));
+        Files.deleteIfExists(late);
+        Map<String, ServiceStatus> status = Map.of("web", new ServiceStatus("web", "active", "running", pid, -1, null));
+        try (JvmTop top = new JvmTop(Duration.ofSeconds(1))) {
+            // Polled between the fork and the jvm creating its file
+            top.updatePids(status);
+            assertTrue(row(top).contains("no hsperfdata"), row(top));
+            Files.copy(own, late);
+            top.updatePids(status);
+            assertTrue(row(top).contains("starting"), row(top));
+        } finally {
+            Files.deleteIfExists(late);
+        }
+    }
+
+    @Test
+    public void testRejectsNonPositiveInterval() {
+        assertThrows(IllegalArgumentException.class, () -> new JvmTop(Duration.ZERO));
+        assertThrows(IllegalArgumentException.class, () -> new JvmTop(Duration.ofMillis(-5)));
+        assertThrows(IllegalArgumentException.class, () -> new JvmTop(Duration.ofNanos(500)));
+    }
+}
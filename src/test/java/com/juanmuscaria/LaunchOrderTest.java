@@ -0,0 +1,40 @@
+package com.juanmuscaria;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LaunchOrderTest {
+
+    @Test
+    public void testLevels() {
+        Map<String, List<String>> after = new HashMap<>();
+        after.put("db", Collections.emptyList());
+        after.put("proxy", Collections.singletonList("db"));
+        after.put("app1", Arrays.asList("proxy", "db"));
+        after.put("app2", Collections.singletonList("proxy"));
+        // Not part of the selection, assumed to be running
+        after.put("worker", Collections.singletonList("queue"));
+        assertEquals(Arrays.asList(Arrays.asList("db", "worker"), Collections.singletonList("proxy"), Arrays.asList("app1", "app2")),
+                LaunchOrder.levels(after));
+        assertEquals(Arrays.asList("app1", "app2"), sorted(LaunchOrder.related(after, "proxy", true)));
+    }
+
+    @Test
+    public void testCycle() {
+        Map<String, List<String>> after = new HashMap<>();
+        after.put("a", Collections.singletonList("b"));
+        after.put("b", Collections.singletonList("a"));
+        after.put("c", Collections.emptyList());
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> LaunchOrder.levels(after));
+        assertTrue(e.getMessage().contains("a, b"));
+    }
+
+    private static List<String> sorted(List<String> names) {
+        List<String> copy = new ArrayList<>(names);
+        Collections.sort(copy);
+        return copy;
+    }
+}
@@ -0,0 +1,83 @@
+package com.juanmuscaria;
+
+import com.juanmuscaria.api.ServiceStatus;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.net.HttpURLConnection;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MetricsExporterTest {
+
+    @TempDir
+    Path tmp;
+
+    @Test
+    public void testScrape() throws Exception {
+        Path cgroup = Files.createDirectories(tmp.resolve("javactl-web.service"));
+        Files.writeString(cgroup.resolve("cpu.stat"), "usage_usec 3500000\nuser_usec 3000000\nsystem_usec 500042\n" +
+                "nr_periods 0\nnr_throttled 0\nthrottled_usec 0\n");
+        Files.writeString(cgroup.resolve("memory.current"), "104857600\n");
+        Files.writeString(cgroup.resolve("memory.stat"), "anon 52428800\nfile 41943040\nkernel_stack 163840\n" +
+                "pagetables 0\nsock 0\nshmem 4096\npgfault 1200\npgmajfault 3\n");
+        Files.writeString(cgroup.resolve("io.stat"), "8:0 rbytes=4096 wbytes=8192 rios=1 wios=2 dbytes=0 dios=0\n");
+        Files.writeString(cgroup.resolve("cpu.pressure"), "some avg10=0.00 avg60=0.00 avg300=0.00 total=1500\n" +
+                "full avg10=0.00 avg60=0.00 avg300=0.00 total=0\n");
+
+        Map<String, ServiceStatus> status = new LinkedHashMap<>();
+        status.put("web", new ServiceStatus("web", "active", "running", 42, 104857600, null));
+        status.put("proxy", new ServiceStatus("proxy", "inactive", "dead", 0, -1, null));
+        MetricsExporter exporter = new MetricsExporter(tmp);
+        String metrics = exporter.scrape(status);
+
+        assertTrue(metrics.contains("javactl_unit_info{daemon=\"web\",active_state=\"active\",sub_state=\"running\"} 1\n"));
+        assertTrue(metrics.contains("javactl_unit_up{daemon=\"proxy\"} 0\n"));
+        assertTrue(metrics.contains("javactl_cpu_seconds_total{daemon=\"web\",mode=\"system\"} 0.500042\n"));
+        assertTrue(metrics.contains("javactl_memory_bytes{daemon=\"web\"} 104857600\n"));
+        assertTrue(metrics.contains("javactl_memory_stat_bytes{daemon=\"web\",type=\"shmem\"} 4096\n"));
+        assertTrue(metrics.contains("javactl_memory_page_faults_total{daemon=\"web\",type=\"major\"} 3\n"));
+        assertTrue(metrics.contains("javactl_io_bytes_total{daemon=\"web\",device=\"8:0\",direction=\"write\"} 8192\n"));
+        assertTrue(metrics.contains("javactl_pressure_stall_seconds_total{daemon=\"web\",resource=\"cpu\",kind=\"some\"} 0.001500\n"));
+        // No cgroup for stopped daemons and no memory pressure file, nothing made up
+        assertFalse(metrics.contains("javactl_memory_bytes{daemon=\"proxy\"}"));
+        assertFalse(metrics.contains("resource=\"memory\""));
+        assertTrue(metrics.endsWith("# EOF\n"));
+
+        // Files are kept open and read again in place
+        Files.writeString(cgroup.resolve("memory.current"), "2048\n");
+        assertTrue(exporter.scrape(status).contains("javactl_memory_bytes{daemon=\"web\"} 2048\n"));
+        exporter.close();
+    }
+
+    @Test
+    public void testServesOnlyMetrics() throws Exception {
+        MetricsExporter exporter = new MetricsExporter(tmp);
+        HttpServer server = exporter.serve(new InetSocketAddress("127.0.0.1", 0));
+        try {
+            assertEquals(404, request(server, "GET", "/metrics/extra"));
+            assertEquals(404, request(server, "GET", "/"));
+            assertEquals(405, request(server, "POST", "/metrics"));
+        } finally {
+            server.stop(0);
+            exporter.close();
+        }
+    }
+
+    private static int request(HttpServer server, String method, String path) throws Exception {
+        HttpURLConnection connection = (HttpURLConnection) new URL("http://127.0.0.1:" + server.getAddress().getPort() + path).openConnection();
+        connection.setRequestMethod(method);
+        try {
+            return connection.getResponseCode();
+        } finally {
+            connection.disconnect();
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package com.juanmuscaria;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class RollingRestartTest {
+
+    @Test
+    public void testChecks() {
+        Duration deadline = Duration.ofSeconds(1);
+        assertNotNull(RollingRestart.ofPort(null, "25565", null, null, deadline));
+        assertNotNull(RollingRestart.ofPort(null, "[::1]:25565", null, null, deadline));
+        assertNotNull(RollingRestart.ofPort(null, null, "list", Pattern.compile("online"), deadline));
+        assertThrows(IllegalArgumentException.class, () -> RollingRestart.ofPort(null, null, null, null, deadline));
+        assertThrows(IllegalArgumentException.class, () -> RollingRestart.ofPort(null, "localhost:http", null, null, deadline));
+        assertThrows(IllegalArgumentException.class, () -> RollingRestart.ofPort(null, "70000", null, null, deadline));
+        // The first startup line would pass for the answer
+        assertThrows(IllegalArgumentException.class, () -> RollingRestart.ofPort(null, null, "list", null, deadline));
+    }
+}
@@ -0,0 +1,43 @@
+package com.juanmuscaria;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class StartBenchmarkTest {
+    private static final List<StartBenchmark.Sample> SAMPLES = Arrays.asList(
+            new StartBenchmark.Sample("baseline", 1, 3000, 120_000, -1),
+            new StartBenchmark.Sample("baseline", 2, 1000, 100_000, 900_000),
+            new StartBenchmark.Sample("baseline", 3, 2000, 110_000, 800_000),
+            new StartBenchmark.Sample("variant", 1, 5000, 90_000, 700_000));
+
+    @Test
+    public void testPercentiles() {
+        long[] active = StartBenchmark.values(SAMPLES, "baseline", 0);
+        assertArrayEquals(new long[]{1000, 2000, 3000}, active);
+        assertEquals(2000, StartBenchmark.percentile(active, 50));
+        assertEquals(3000, StartBenchmark.percentile(active, 95));
+        // Runs that never logged the ready line are left out
+        assertArrayEquals(new long[]{800_000, 900_000}, StartBenchmark.values(SAMPLES, "baseline", 2));
+        assertEquals(700_000, StartBenchmark.percentile(StartBenchmark.values(SAMPLES, "variant", 2), 50));
+    }
+
+    @Test
+    public void testOutput() {
+        StringWriter csv = new StringWriter();
+        StartBenchmark.writeCsv(new PrintWriter(csv), SAMPLES.subList(0, 1));
+        assertEquals("variant,run,active_ms,first_line_ms,ready_ms\nbaseline,1,3.000,120.000,\n",
+                csv.toString().replace(System.lineSeparator(), "\n"));
+        StringWriter json = new StringWriter();
+        StartBenchmark.writeJson(new PrintWriter(json), "mc", SAMPLES.subList(0, 1), Collections.singletonList("baseline"));
+        assertTrue(json.toString().startsWith("{\"daemon\":\"mc\",\"runs\":[{\"variant\":\"baseline\",\"run\":1,"
+                + "\"active_ms\":3.000,\"first_line_ms\":120.000,\"ready_ms\":null}]"), json.toString());
+        assertFalse(json.toString().contains("\"ready\":"));
+    }
+}
@@ -0,0 +1,75 @@
+package com.juanmuscaria.agent;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LineWatcherTest {
+    private final ByteArrayOutputStream out = new ByteArrayOutputStream();
+    private final AtomicInteger matches = new AtomicInteger();
+    private final LineWatcher watcher = new LineWatcher(out, Pattern.compile("Done \\(\\d+s\\)"), StandardCharsets.UTF_8,
+            matches::incrementAndGet);
+
+    private void write(String text) throws IOException {
+        watcher.write(text.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void testMatchesLineSplitAcrossWrites() throws IOException {
+        write("Loading\nDo");
+        watcher.write('n');
+        write("e (12");
+        assertEquals(0, matches.get());
+        write("s)!\nmore");
+        assertEquals(1, matches.get());
+        assertEquals("Loading\nDone (12s)!\nmore", out.toString(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void testMatchesWholeLinesOnly() throws IOException {
+        // Nothing is known about a line before its end
+        write("Done (3s)");
+        assertEquals(0, matches.get());
+        write("\n");
+        assertEquals(1, matches.get());
+    }
+
+    @Test
+    public void testPassesThroughAfterMatch() throws IOException {
+        write("Done (1s)\nDone (2s)\n");
+        write("Done (3s)\n");
+        watcher.write('x');
+        assertEquals(1, matches.get());
+        assertEquals("Done (1s)\nDone (2s)\nDone (3s)\nx", out.toString(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void testOverlongLines() throws IOException {
+        char[] filler = new char[20000];
+        Arrays.fill(filler, 'a');
+        // Only the start of a long line is kept, a match past it is missed
+        write(new String(filler) + " Done (1s)\n");
+        assertEquals(0, matches.get());
+        // but the next line is read from its own start
+        write("Done (2s)\n");
+        assertEquals(1, matches.get());
+        assertEquals(20000 + 11 + 10, out.size());
+    }
+
+    @Test
+    public void testOverlongLineMatchedOnItsStart() throws IOException {
+        char[] filler = new char[20000];
+        Arrays.fill(filler, 'a');
+        write("Done (1s) ");
+        write(new String(filler));
+        write(new String(filler) + "\n");
+        assertEquals(1, matches.get());
+    }
+}
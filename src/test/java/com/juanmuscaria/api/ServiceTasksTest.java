@@ -0,0 +1,87 @@
+package com.juanmuscaria.api;
+
+import com.juanmuscaria.Javactl;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ServiceTasksTest {
+
+    @Test
+    public void testTimeoutWaitsForCleanup() throws InterruptedException {
+        CountDownLatch started = new CountDownLatch(1);
+        AtomicBoolean cleanedUp = new AtomicBoolean();
+        CompletableFuture<Void> task = ServiceTasks.submit(() -> {
+            started.countDown();
+            try {
+                Thread.sleep(60_000);
+            } catch (InterruptedException e) {
+                // Like cancelling the systemd job, takes a moment
+                long until = System.nanoTime() + 300_000_000L;
+                while (System.nanoTime() < until)
+                    Thread.onSpinWait();
+                cleanedUp.set(true);
+            }
+        }, Duration.ofMillis(250));
+        started.await();
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> Javactl.await(task, Duration.ofMillis(250)));
+        assertTrue(e.getMessage().contains("within 250ms"), e.getMessage());
+        assertTrue(cleanedUp.get());
+    }
+
+    @Test
+    public void testQueuedTaskNeverRuns() throws InterruptedException {
+        CountDownLatch release = new CountDownLatch(1);
+        CompletableFuture<?>[] busy = new CompletableFuture[ServiceTasks.MAX_WORKERS];
+        for (int i = 0; i < busy.length; i++)
+            busy[i] = ServiceTasks.submit(() -> {
+                try {
+                    release.await();
+                } catch (InterruptedException ignored) {
+                }
+            }, null);
+        AtomicBoolean ran = new AtomicBoolean();
+        CompletableFuture<Void> queued = ServiceTasks.submit(() -> ran.set(true), Duration.ofMillis(100));
+        long start = System.nanoTime();
+        assertThrows(IllegalArgumentException.class, () -> Javactl.await(queued, Duration.ofMillis(100)));
+        // Nothing to clean up, no waiting on a worker that never picked the task
+        assertTrue(System.nanoTime() - start < 2_000_000_000L);
+        release.countDown();
+        CompletableFuture.allOf(busy).join();
+        Thread.sleep(100);
+        assertFalse(ran.get());
+    }
+
+    @Test
+    public void testOnlyWaitsForItsOwnCleanup() throws InterruptedException {
+        CountDownLatch started = new CountDownLatch(2);
+        // Another command's operation, cancelled and slow to clean up
+        CompletableFuture<Void> other = ServiceTasks.submit(() -> {
+            started.countDown();
+            try {
+                Thread.sleep(60_000);
+            } catch (InterruptedException e) {
+                long until = System.nanoTime() + 3_000_000_000L;
+                while (System.nanoTime() < until)
+                    Thread.onSpinWait();
+            }
+        }, null);
+        CompletableFuture<Void> task = ServiceTasks.submit(() -> {
+            started.countDown();
+            try {
+                Thread.sleep(60_000);
+            } catch (InterruptedException ignored) {
+            }
+        }, Duration.ofMillis(250));
+        started.await();
+        other.cancel(true);
+        long start = System.nanoTime();
+        assertThrows(IllegalArgumentException.class, () -> Javactl.await(task, Duration.ofMillis(250)));
+        assertTrue(System.nanoTime() - start < 2_000_000_000L);
+    }
+}
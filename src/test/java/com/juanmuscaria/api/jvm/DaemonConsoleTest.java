@@ -0,0 +1,87 @@
+package com.juanmuscaria.api.jvm;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class DaemonConsoleTest {
+    @TempDir
+    Path dir;
+
+    @Test
+    public void testSendStream() throws IOException {
+        StringBuilder input = new StringBuilder();
+        for (int i = 0; i < 20000; i++)
+            input.append("say ").append(i).append('\n');
+        // Longer than a batch, has to be split
+        input.append("x".repeat(DaemonConsole.BATCH * 2)).append('\n');
+        input.append("stop");
+        Path out = Files.createFile(dir.resolve("fifo"));
+        try (DaemonConsole console = new DaemonConsole(out.toFile())) {
+            console.send(Channels.newChannel(new ByteArrayInputStream(input.toString().getBytes(StandardCharsets.UTF_8))));
+            assertEquals(20002, console.getLines());
+            assertEquals(input.length() + 1, console.getBytes());
+        }
+        assertEquals(input + "\n", Files.readString(out));
+    }
+
+    @Test
+    public void testWritesAreAtomicLines() throws IOException {
+        StringBuilder input = new StringBuilder();
+        for (int i = 0; i < 5000; i++)
+            input.append("say ").append(i).append('\n');
+        String longLine = "x".repeat(DaemonConsole.PIPE_BUF * 3);
+        input.append(longLine).append('\n').append("stop\n");
+        List<String> writes = new ArrayList<>();
+        WritableByteChannel fifo = new WritableByteChannel() {
+            @Override
+            public int write(ByteBuffer src) {
+                byte[] bytes = new byte[src.remaining()];
+                src.get(bytes);
+                writes.add(new String(bytes, StandardCharsets.UTF_8));
+                return bytes.length;
+            }
+
+            @Override
+            public boolean isOpen() {
+                return true;
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+        try (DaemonConsole console = new DaemonConsole(fifo)) {
+            console.send(Channels.newChannel(new ByteArrayInputStream(input.toString().getBytes(StandardCharsets.UTF_8))));
+        }
+        assertEquals(input.toString(), String.join("", writes));
+        for (String write : writes) {
+            assertTrue(write.endsWith("\n"), write);
+            assertTrue(write.length() <= DaemonConsole.PIPE_BUF || write.equals(longLine + "\n"), "write of " + write.length());
+        }
+    }
+
+    @Test
+    public void testSendFileAndLines() throws IOException {
+        Path in = Files.writeString(dir.resolve("commands.txt"), "whitelist add Steve\nwhitelist reload");
+        Path out = Files.createFile(dir.resolve("fifo"));
+        try (DaemonConsole console = new DaemonConsole(out.toFile())) {
+            console.send(in);
+            console.sendLine("save-all");
+            assertEquals(3, console.getLines());
+        }
+        assertEquals("whitelist add Steve\nwhitelist reload\nsave-all\n", Files.readString(out));
+    }
+}
@@ -0,0 +1,28 @@
+package com.juanmuscaria.api.jvm;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class JavaLogLevelTest {
+
+    @Test
+    public void testDetect() {
+        assertEquals(Optional.of(JavaLogLevel.WARN), JavaLogLevel.detect("[12:00:00] [Server thread/WARN]: Can't keep up!"));
+        assertEquals(Optional.of(JavaLogLevel.ERROR), JavaLogLevel.detect("2021-06-01 12:00:00.123 ERROR 1234 --- [main] o.s.b.SpringApplication"));
+        assertEquals(Optional.of(JavaLogLevel.ERROR), JavaLogLevel.detect("SEVERE: Servlet.service() threw exception"));
+        assertEquals(Optional.of(JavaLogLevel.DEBUG), JavaLogLevel.detect("Jun 01, 2021 FINE com.example.Foo bar"));
+        // Only whole upper case words count
+        assertEquals(Optional.empty(), JavaLogLevel.detect("INFORMATION about the info command, sent to WARNINGS"));
+        assertEquals(Optional.empty(), JavaLogLevel.detect("\tat com.example.Foo.bar(Foo.java:42)"));
+    }
+
+    @Test
+    public void testOf() {
+        assertEquals(JavaLogLevel.WARN, JavaLogLevel.of("warning"));
+        assertEquals(JavaLogLevel.ERROR, JavaLogLevel.of("SEVERE"));
+        assertThrows(IllegalArgumentException.class, () -> JavaLogLevel.of("LOUD"));
+    }
+}
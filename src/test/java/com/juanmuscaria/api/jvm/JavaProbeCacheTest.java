@@ -0,0 +1,92 @@
+package com.juanmuscaria.api.jvm;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class JavaProbeCacheTest {
+    @TempDir
+    Path home;
+    private String userHome;
+    private Path exec;
+    private final AtomicInteger probes = new AtomicInteger();
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        userHome = System.getProperty("user.home");
+        System.setProperty("user.home", home.toString());
+        JavaProbeCache.reload();
+        exec = Files.writeString(home.resolve("java"), "launcher");
+    }
+
+    @AfterEach
+    public void tearDown() {
+        System.setProperty("user.home", userHome);
+        JavaProbeCache.reload();
+    }
+
+    private List<IJavaProber> prober(String home, String version, String vendor) {
+        return List.of(file -> {
+            probes.incrementAndGet();
+            return Optional.of(new JavaInstallation(file, home, version, vendor, "amd64",
+                    "OpenJDK 64-Bit Server VM", "17.0.9+9", null, "17.0.9+9"));
+        });
+    }
+
+    @Test
+    public void testKeepsNullsThroughTheFile() {
+        JavaInstallation probed = JavaProbeCache.get(exec, false, prober("/opt/jdk\\N", "17.0.9", null));
+        assertNull(probed.getVendor());
+        JavaProbeCache.reload();
+
+        JavaInstallation cached = JavaProbeCache.get(exec, false, prober("/opt/jdk", "11", "Other"));
+        assertEquals(1, probes.get());
+        assertEquals("/opt/jdk\\N", cached.getHome());
+        assertEquals("17.0.9", cached.getVersion());
+        assertNull(cached.getVendor());
+        assertNull(cached.getRuntime());
+        assertEquals("17.0.9+9", cached.getRuntimeVersion());
+    }
+
+    @Test
+    public void testFailedProbesAreNotCached() throws IOException {
+        // What the process prober returns when the jvm didn't print anything
+        List<IJavaProber> failing = List.of(file -> {
+            probes.incrementAndGet();
+            return Optional.of(new JavaInstallation(file, null, null, null, null, null, null, null, null));
+        });
+        JavaProbeCache.get(exec, false, failing);
+        JavaProbeCache.get(exec, false, failing);
+        assertEquals(2, probes.get());
+
+        assertEquals("17.0.9", JavaProbeCache.get(exec, false, prober("/opt/jdk", "17.0.9", "Eclipse Adoptium")).getVersion());
+        assertEquals(3, probes.get());
+        // A refresh that fails drops the old entry instead of replacing it
+        JavaProbeCache.get(exec, true, failing);
+        JavaProbeCache.reload();
+        JavaProbeCache.get(exec, false, failing);
+        assertEquals(5, probes.get());
+        assertFalse(Files.readString(home.resolve(".javactl/probe.cache")).contains(exec.toRealPath().toString()));
+    }
+
+    @Test
+    public void testFailedSaveLeavesNoTempFile() throws IOException {
+        // The cache file can't be replaced by a rename
+        Files.createDirectories(home.resolve(".javactl/probe.cache/taken"));
+        JavaProbeCache.get(exec, false, prober("/opt/jdk", "17.0.9", "Eclipse Adoptium"));
+        try (var files = Files.list(home.resolve(".javactl"))) {
+            assertEquals(List.of(home.resolve(".javactl/probe.cache")), files.collect(Collectors.toList()));
+        }
+    }
+}
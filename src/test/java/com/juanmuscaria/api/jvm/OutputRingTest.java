@@ -0,0 +1,31 @@
+package com.juanmuscaria.api.jvm;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class OutputRingTest {
+
+    @Test
+    public void testDrainCoalescesLines() {
+        OutputRing ring = new OutputRing(4);
+        assertNull(ring.drain());
+        ring.offer("a");
+        ring.offer("b");
+        assertEquals("a\nb\n", ring.drain());
+        assertEquals(0, ring.size());
+        assertNull(ring.drain());
+    }
+
+    @Test
+    public void testOverflowKeepsNewestLines() {
+        OutputRing ring = new OutputRing(3);
+        for (int i = 0; i < 10; i++)
+            ring.offer("line " + i);
+        assertEquals(3, ring.size());
+        assertEquals("-- 7 lines skipped --\nline 7\nline 8\nline 9\n", ring.drain());
+        // The count is reset once reported
+        ring.offer("line 10");
+        assertEquals("line 10\n", ring.drain());
+    }
+}
@@ -0,0 +1,32 @@
+package com.juanmuscaria.api.jvm;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Path;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+// Reads the counters of the jvm running the tests
+public class PerfDataTest {
+
+    @Test
+    public void testReadsOwnCounters() throws Exception {
+        Optional<Path> file = PerfData.locate(ProcessHandle.current().pid());
+        assumeTrue(file.isPresent(), "hsperfdata is disabled for this jvm");
+        try (PerfData data = new PerfData(file.get())) {
+            assertTrue(data.isAccessible());
+            assertEquals(ProcessHandle.current().pid(), Long.parseLong(file.get().getFileName().toString()));
+            assertTrue(data.getString("java.property.java.version").isPresent());
+            assertEquals(-1, data.getLong("javactl.missing", -1));
+
+            JvmStats stats = new JvmStats(data);
+            assertTrue(stats.getHeapUsed() > 0);
+            assertTrue(stats.getHeapMax() >= stats.getHeapCommitted());
+            assertTrue(stats.getLoadedClasses() > 0);
+            assertTrue(stats.getLiveThreads() > 0);
+            assertTrue(stats.getUptime() > 0);
+        }
+    }
+}
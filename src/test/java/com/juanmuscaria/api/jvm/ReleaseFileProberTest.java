@@ -0,0 +1,65 @@
+package com.juanmuscaria.api.jvm;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ReleaseFileProberTest {
+
+    @TempDir
+    Path jdk;
+
+    @Test
+    public void testProbeFromReleaseFile() throws IOException {
+        writeJdk("IMPLEMENTOR=\"Eclipse Adoptium\"\n" +
+                "JAVA_RUNTIME_VERSION=\"17.0.9+9\"\n" +
+                "JAVA_VERSION=\"17.0.9\"\n" +
+                "JVM_VARIANT=\"Hotspot\"\n", (byte) 2, (byte) 62);
+
+        Optional<JavaInstallation> found = new ReleaseFileProber().probe(jdk.resolve("bin/java").toFile());
+
+        assertTrue(found.isPresent());
+        JavaInstallation java = found.get();
+        assertEquals(jdk.toRealPath().toString(), java.getHome());
+        assertEquals("17.0.9", java.getVersion());
+        assertEquals("Eclipse Adoptium", java.getVendor());
+        assertEquals("amd64", java.getArch());
+        assertEquals("OpenJDK 64-Bit Server VM", java.getVm());
+        assertEquals("17.0.9+9", java.getVmVersion());
+        assertEquals("17.0.9+9", java.getRuntimeVersion());
+    }
+
+    @Test
+    public void testFallbackWhenMetadataIsMissing() throws IOException {
+        // jdk 8 release files don't carry the runtime version
+        writeJdk("JAVA_VERSION=\"1.8.0_392\"\nIMPLEMENTOR=\"Eclipse Adoptium\"\n", (byte) 2, (byte) 62);
+        assertTrue(new ReleaseFileProber().probe(jdk.resolve("bin/java").toFile()).isEmpty());
+    }
+
+    @Test
+    public void testFallbackOnThirtyTwoBitExecutable() throws IOException {
+        writeJdk("IMPLEMENTOR=\"Eclipse Adoptium\"\nJAVA_RUNTIME_VERSION=\"11.0.21+9\"\nJAVA_VERSION=\"11.0.21\"\n",
+                (byte) 1, (byte) 3);
+        assertTrue(new ReleaseFileProber().probe(jdk.resolve("bin/java").toFile()).isEmpty());
+    }
+
+    private void writeJdk(String release, byte elfClass, byte machine) throws IOException {
+        Files.writeString(jdk.resolve("release"), release);
+        byte[] header = new byte[64];
+        header[0] = 0x7f;
+        header[1] = 'E';
+        header[2] = 'L';
+        header[3] = 'F';
+        header[4] = elfClass;
+        header[5] = 1; // little endian
+        header[18] = machine;
+        Files.createDirectories(jdk.resolve("bin"));
+        Files.write(jdk.resolve("bin/java"), header);
+    }
+}
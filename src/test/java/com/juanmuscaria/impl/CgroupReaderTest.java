@@ -0,0 +1,49 @@
+package com.juanmuscaria.impl;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CgroupReaderTest {
+    @TempDir
+    Path tmp;
+
+    @Test
+    public void testReopensAfterRestart() throws Exception {
+        // Reads of an open /proc/<pid>/stat fail once the process is gone, like kernfs files of a removed cgroup.
+        // The file starts with the pid, which memory.current parsing picks up.
+        Process first = new ProcessBuilder("sleep", "30").start();
+        Process second = new ProcessBuilder("sleep", "30").start();
+        try (CgroupReader reader = new CgroupReader(tmp, CgroupReader.newBuffer())) {
+            Path current = tmp.resolve("memory.current");
+            Files.createSymbolicLink(current, Path.of("/proc/" + first.pid() + "/stat"));
+            reader.refresh();
+            assertEquals(first.pid(), reader.getMemoryCurrent());
+
+            first.destroy();
+            first.waitFor();
+            Files.delete(current);
+            Files.createSymbolicLink(current, Path.of("/proc/" + second.pid() + "/stat"));
+            reader.refresh();
+            assertEquals(second.pid(), reader.getMemoryCurrent());
+        } finally {
+            first.destroy();
+            second.destroy();
+        }
+    }
+
+    @Test
+    public void testMissingFiles() throws IOException {
+        try (CgroupReader reader = new CgroupReader(tmp.resolve("gone"), CgroupReader.newBuffer())) {
+            reader.refresh();
+            assertEquals(-1, reader.getMemoryCurrent());
+            assertEquals(-1, reader.getCpu()[0]);
+            assertEquals(0, reader.getDeviceCount());
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package com.juanmuscaria.impl;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class JournalEntryTest {
+
+    @Test
+    public void testOf() throws IOException {
+        JournalReader reader = reader("{ \"__CURSOR\" : \"s=abc;i=1f\", \"__REALTIME_TIMESTAMP\" : \"1700000000123456\", " +
+                "\"PRIORITY\" : \"3\", \"_PID\" : \"42\", \"SYSLOG_IDENTIFIER\" : \"java\", \"MESSAGE\" : \"Player \\\"Steve\\\" left\" }\n" +
+                "{\"MESSAGE\":[72,105,27]}");
+        assertTrue(reader.next());
+        JournalEntry entry = JournalEntry.of(reader);
+        // Kept once the reader moves on
+        assertTrue(reader.next());
+        assertEquals("s=abc;i=1f", entry.getCursor());
+        assertEquals(3, entry.getPriority());
+        assertEquals(Instant.ofEpochSecond(1700000000L, 123456000), entry.getTimestamp());
+        assertEquals("Player \"Steve\" left", entry.getMessage());
+        assertEquals("java", entry.getIdentifier());
+        assertEquals("42", entry.getPid());
+
+        entry = JournalEntry.of(reader);
+        assertEquals("Hi\u001b", entry.getMessage());
+        assertNull(entry.getCursor());
+        assertNull(entry.getPid());
+        assertEquals(6, entry.getPriority());
+        assertEquals(Instant.EPOCH, entry.getTimestamp());
+    }
+
+    private static JournalReader reader(String text) {
+        return new JournalReader(new ByteArrayInputStream(text.getBytes(StandardCharsets.UTF_8)));
+    }
+}
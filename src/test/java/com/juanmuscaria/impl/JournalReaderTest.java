@@ -0,0 +1,63 @@
+package com.juanmuscaria.impl;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class JournalReaderTest {
+
+    @Test
+    public void testFields() throws IOException {
+        String line = "{ \"__CURSOR\" : \"s=abc;i=1f\", \"__REALTIME_TIMESTAMP\" : \"1700000000123456\", \"PRIORITY\" : \"3\", " +
+                "\"_PID\" : \"42\", \"OTHER\" : [1,2,3], \"MESSAGE\" : \"Player \\\"Steve\\\" left\\tthe game \u00e9\" }";
+        JournalReader reader = reader(line + "\n\n{\"MESSAGE\":[72,105,27],\"SYSLOG_IDENTIFIER\":[\"first\",\"second\"]}");
+        assertTrue(reader.next());
+        assertEquals("s=abc;i=1f", reader.getField(JournalReader.CURSOR));
+        assertEquals(3, reader.getPriority());
+        assertEquals(1700000000123456L, reader.getTimestamp());
+        assertEquals("Player \"Steve\" left\tthe game \u00e9", reader.getMessage());
+        assertEquals("42", reader.getField(JournalReader.PID));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        reader.writeTo(out);
+        assertEquals(line + "\n", out.toString(StandardCharsets.UTF_8));
+        // Blank lines are skipped, the last line doesn't need a newline
+        assertTrue(reader.next());
+        assertEquals("Hi\u001b", reader.getMessage());
+        assertEquals("first", reader.getField(JournalReader.SYSLOG_IDENTIFIER));
+        assertEquals(6, reader.getPriority());
+        assertNull(reader.getField(JournalReader.CURSOR));
+        assertFalse(reader.next());
+    }
+
+    @Test
+    public void testLinesAcrossReads() throws IOException {
+        StringBuilder b = new StringBuilder();
+        String padding = "x".repeat(100 * 1024);
+        for (int i = 0; i < 1000; i++)
+            b.append("{\"MESSAGE\":\"line ").append(i).append(i % 100 == 0 ? padding : "").append("\"}\n");
+        byte[] bytes = b.toString().getBytes(StandardCharsets.UTF_8);
+        // A stream handing out a few bytes at a time, like a pipe
+        InputStream trickle = new ByteArrayInputStream(bytes) {
+            @Override
+            public synchronized int read(byte[] b, int off, int len) {
+                return super.read(b, off, Math.min(len, 777));
+            }
+        };
+        JournalReader reader = new JournalReader(trickle);
+        for (int i = 0; i < 1000; i++) {
+            assertTrue(reader.next());
+            assertEquals("line " + i + (i % 100 == 0 ? padding : ""), reader.getMessage());
+        }
+        assertFalse(reader.next());
+    }
+
+    private static JournalReader reader(String text) {
+        return new JournalReader(new ByteArrayInputStream(text.getBytes(StandardCharsets.UTF_8)));
+    }
+}
@@ -0,0 +1,99 @@
+package com.juanmuscaria.impl;
+
+import com.juanmuscaria.api.DaemonInfo;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ServiceRegistryTest {
+    private static final String UNIT = "# Generated by javactl 0.1 Do not touch\n" +
+            "[Unit]\n" +
+            "Description=%s\n" +
+            "After=network.target\n" +
+            "After=javactl-db.service\n" +
+            "X-JavactlTags=lobby, eu\n" +
+            "\n" +
+            "[Service]\n" +
+            "WorkingDirectory=/srv/app\n" +
+            "ExecStart=/opt/jdk/bin/java -Xmx1G -jar /srv/app/server.jar nogui\n" +
+            "User=mc\n" +
+            "Environment='JAVA_HOME=/opt/jdk'\n" +
+            "Environment=JAVACTL_CDS_DIR=%%S/javactl/app\n" +
+            "Restart=on-failure\n";
+
+    @TempDir
+    Path tmp;
+
+    private Path unitDir() throws Exception {
+        Path dir = Files.createDirectories(tmp.resolve("system"));
+        Files.writeString(dir.resolve("javactl-web.service"), String.format(UNIT, "Web server"));
+        Files.writeString(dir.resolve("javactl-web.socket"), "[Socket]\n");
+        Files.writeString(dir.resolve("javactl-proxy.service"), String.format(UNIT, "Proxy") + "LogNamespace=games\n");
+        Files.writeString(dir.resolve("sshd.service"), "[Service]\n");
+        return dir;
+    }
+
+    @Test
+    public void testIndexesJavactlUnits() throws Exception {
+        ServiceRegistry registry = new ServiceRegistry(unitDir(), null);
+        assertEquals(Arrays.asList("proxy", "web"), registry.names());
+        assertTrue(registry.hasSocket("web"));
+        assertFalse(registry.hasSocket("proxy"));
+        assertFalse(registry.hasService("sshd"));
+
+        DaemonInfo info = registry.getInfo("web").orElseThrow();
+        assertEquals("Web server", info.getDescription());
+        assertEquals("/opt/jdk/bin/java", info.getJavaExec());
+        assertEquals("-Xmx1G", info.getJvmArgs());
+        assertEquals("/srv/app/server.jar", info.getJar());
+        assertEquals("nogui", info.getArgs());
+        assertEquals("mc", info.getUser());
+        assertNull(info.getGroup());
+        assertTrue(info.isAutoRestart());
+        assertNull(info.getLogNamespace());
+        assertEquals(Arrays.asList("lobby", "eu"), info.getTags());
+        assertEquals(Collections.singletonList("db"), info.getAfter());
+        assertTrue(info.isCds());
+        assertEquals("games", registry.getInfo("proxy").orElseThrow().getLogNamespace());
+    }
+
+    @Test
+    public void testColdStartReadsIndex() throws Exception {
+        Path dir = unitDir();
+        Path index = tmp.resolve("units.idx");
+        new ServiceRegistry(dir, index).names();
+        assertTrue(Files.isRegularFile(index));
+
+        // Change a unit behind the index back without touching any timestamp, only the index knows the old content
+        Path web = dir.resolve("javactl-web.service");
+        FileTime fileTime = Files.getLastModifiedTime(web);
+        FileTime dirTime = Files.getLastModifiedTime(dir);
+        Files.writeString(web, String.format(UNIT, "Changed"));
+        Files.setLastModifiedTime(web, fileTime);
+        Files.setLastModifiedTime(dir, dirTime);
+        assertEquals("Web server", new ServiceRegistry(dir, index).getInfo("web").orElseThrow().getDescription());
+    }
+
+    @Test
+    public void testPicksUpChanges() throws Exception {
+        Path dir = unitDir();
+        ServiceRegistry registry = new ServiceRegistry(dir, tmp.resolve("units.idx"));
+        assertEquals(2, registry.names().size());
+
+        Files.delete(dir.resolve("javactl-proxy.service"));
+        Files.setLastModifiedTime(dir, FileTime.fromMillis(System.currentTimeMillis() + 10_000));
+        assertEquals(Collections.singletonList("web"), registry.names());
+
+        Path web = dir.resolve("javactl-web.service");
+        Files.writeString(web, String.format(UNIT, "Edited"));
+        Files.setLastModifiedTime(web, FileTime.fromMillis(System.currentTimeMillis() + 10_000));
+        assertEquals("Edited", registry.getInfo("web").orElseThrow().getDescription());
+    }
+}
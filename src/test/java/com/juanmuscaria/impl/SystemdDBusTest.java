@@ -0,0 +1,192 @@
+package com.juanmuscaria.impl;
+
+import com.juanmuscaria.impl.dbus.EnableUnitFilesResult;
+import com.juanmuscaria.impl.dbus.SystemdManager;
+import com.juanmuscaria.impl.dbus.UnitFileChange;
+import com.juanmuscaria.impl.dbus.UnitInfo;
+import org.freedesktop.dbus.DBusPath;
+import org.freedesktop.dbus.connections.impl.DBusConnection;
+import org.freedesktop.dbus.exceptions.DBusException;
+import org.freedesktop.dbus.types.UInt32;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.InputStreamReader;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+// Runs SystemdDBus against a private dbus-daemon with a stand-in systemd1 manager
+public class SystemdDBusTest {
+
+    @TempDir
+    Path tmp;
+    Process daemon;
+    DBusConnection provider;
+    FakeManager fake;
+    SystemdDBus systemd;
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        assumeTrue(Arrays.stream(System.getenv("PATH").split(File.pathSeparator))
+                .anyMatch(dir -> new File(dir, "dbus-daemon").canExecute()), "dbus-daemon is not available");
+        daemon = new ProcessBuilder("dbus-daemon", "--session", "--nofork", "--nopidfile", "--print-address=1",
+                "--address=unix:path=" + tmp.resolve("bus")).start();
+        String address = new BufferedReader(new InputStreamReader(daemon.getInputStream())).readLine();
+        provider = DBusConnection.getConnection(address);
+        fake = new FakeManager();
+        provider.requestBusName(SystemdManager.BUS_NAME);
+        provider.exportObject(SystemdManager.OBJECT_PATH, fake);
+        systemd = new SystemdDBus(address);
+    }
+
+    @AfterEach
+    public void tearDown() throws Exception {
+        if (systemd != null)
+            systemd.close();
+        if (provider != null)
+            provider.close();
+        if (daemon != null)
+            daemon.destroy();
+    }
+
+    @Test
+    public void testStartAndStop() {
+        systemd.startService("web");
+        assertTrue(systemd.isServiceRunning("web"));
+        assertFalse(systemd.isServiceRunning("proxy"));
+        systemd.stopService("web");
+        assertFalse(systemd.isServiceRunning("web"));
+        assertEquals(1, fake.subscriptions.get());
+    }
+
+    @Test
+    public void testFailedJobIsReported() {
+        fake.failing.add("javactl-broken.service");
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> systemd.startService("broken"));
+        assertTrue(e.getMessage().contains("failed"));
+    }
+
+    @Test
+    public void testEnableReloadsManager() {
+        systemd.enableService("web");
+        systemd.disableService("web");
+        assertEquals(2, fake.reloads.get());
+    }
+
+    @Test
+    public void testEarlyResultSurvivesEviction() throws Exception {
+        // Results of jobs other clients started, enough to make the next signals drop done entries
+        for (int i = 0; i < 1100; i++)
+            provider.sendMessage(new SystemdManager.JobRemoved(SystemdManager.OBJECT_PATH, new UInt32(100_000 + i),
+                    new DBusPath("/org/freedesktop/systemd1/job/other" + i), "javactl-other.service", "done"));
+        Thread.sleep(500);
+        fake.early.add("javactl-early.service");
+        // Its result and another client's both arrive before StartUnit returns
+        CompletableFuture.runAsync(() -> systemd.startService("early")).get(10, TimeUnit.SECONDS);
+    }
+
+    class FakeManager implements SystemdManager {
+        final Map<String, String> states = new ConcurrentHashMap<>();
+        final Set<String> failing = ConcurrentHashMap.newKeySet();
+        // Units whose job finishes before the method reply is sent
+        final Set<String> early = ConcurrentHashMap.newKeySet();
+        final AtomicInteger jobIds = new AtomicInteger();
+        final AtomicInteger subscriptions = new AtomicInteger();
+        final AtomicInteger reloads = new AtomicInteger();
+
+        private DBusPath queue(String unit, String state) {
+            int id = jobIds.incrementAndGet();
+            DBusPath job = new DBusPath("/org/freedesktop/systemd1/job/" + id);
+            String result = failing.contains(unit) ? "failed" : "done";
+            if ("done".equals(result))
+                states.put(unit, state);
+            if (early.contains(unit)) {
+                try {
+                    provider.sendMessage(new JobRemoved(OBJECT_PATH, new UInt32(id), job, unit, result));
+                    provider.sendMessage(new JobRemoved(OBJECT_PATH, new UInt32(200_000 + id),
+                            new DBusPath("/org/freedesktop/systemd1/job/late" + id), "javactl-other.service", "done"));
+                    Thread.sleep(200);
+                } catch (InterruptedException | DBusException ignored) {
+                }
+                return job;
+            }
+            // Like systemd, the job finishes after the method reply is sent
+            new Thread(() -> {
+                try {
+                    Thread.sleep(20);
+                    provider.sendMessage(new JobRemoved(OBJECT_PATH, new UInt32(id), job, unit, result));
+                } catch (InterruptedException | DBusException ignored) {
+                }
+            }).start();
+            return job;
+        }
+
+        @Override
+        public DBusPath StartUnit(String name, String mode) {
+            return queue(name, "active");
+        }
+
+        @Override
+        public DBusPath StopUnit(String name, String mode) {
+            return queue(name, "inactive");
+        }
+
+        @Override
+        public DBusPath RestartUnit(String name, String mode) {
+            return queue(name, "active");
+        }
+
+        @Override
+        public List<UnitInfo> ListUnitsByNames(List<String> names) {
+            List<UnitInfo> units = new ArrayList<>();
+            for (String name : names) {
+                String state = states.getOrDefault(name, "inactive");
+                units.add(new UnitInfo(name, name, "loaded", state, "active".equals(state) ? "running" : "dead", "",
+                        new DBusPath("/org/freedesktop/systemd1/unit/" + name.replace('-', '_').replace('.', '_')),
+                        new UInt32(0), "", new DBusPath("/")));
+            }
+            return units;
+        }
+
+        @Override
+        public EnableUnitFilesResult EnableUnitFiles(List<String> files, boolean runtime, boolean force) {
+            return new EnableUnitFilesResult(true, Collections.singletonList(new UnitFileChange("symlink", files.get(0), files.get(0))));
+        }
+
+        @Override
+        public List<UnitFileChange> DisableUnitFiles(List<String> files, boolean runtime) {
+            return Collections.singletonList(new UnitFileChange("unlink", files.get(0), ""));
+        }
+
+        @Override
+        public void Reload() {
+            reloads.incrementAndGet();
+        }
+
+        @Override
+        public void Subscribe() {
+            subscriptions.incrementAndGet();
+        }
+
+        @Override
+        public boolean isRemote() {
+            return false;
+        }
+
+        @Override
+        public String getObjectPath() {
+            return OBJECT_PATH;
+        }
+    }
+}
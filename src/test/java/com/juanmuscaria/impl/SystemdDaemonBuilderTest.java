@@ -0,0 +1,204 @@
+package com.juanmuscaria.impl;
+
+import com.juanmuscaria.api.IDaemonBuilder;
+import com.juanmuscaria.api.jvm.JavaInstallation;
+import com.juanmuscaria.api.jvm.ReleaseFileProber;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Optional;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SystemdDaemonBuilderTest {
+    @TempDir
+    Path tmp;
+
+    private SystemdDaemonBuilder builder(String version) throws IOException {
+        Path jdk = Files.createDirectories(tmp.resolve("jdk-" + version));
+        Files.writeString(jdk.resolve("release"), "IMPLEMENTOR=\"Eclipse Adoptium\"\n" +
+                "JAVA_RUNTIME_VERSION=\"" + version + "+9\"\nJAVA_VERSION=\"" + version + "\"\n");
+        byte[] header = new byte[64];
+        header[0] = 0x7f;
+        header[1] = 'E';
+        header[2] = 'L';
+        header[3] = 'F';
+        header[4] = 2; // 64 bit
+        header[5] = 1; // little endian
+        header[18] = 62; // x86-64
+        Files.createDirectories(jdk.resolve("bin"));
+        Files.write(jdk.resolve("bin/java"), header);
+        JavaInstallation java = new ReleaseFileProber().probe(jdk.resolve("bin/java").toFile()).orElseThrow();
+        Path jar = Files.writeString(tmp.resolve("app.jar"), "");
+        SystemdDaemonBuilder builder = new SystemdDaemonBuilder(Files.createDirectories(tmp.resolve("system")).toFile(), "/run/javactl");
+        builder.name("app").java(java).jarFile(jar.toFile());
+        return builder;
+    }
+
+    private static Optional<String> line(File unit, String key) throws IOException {
+        return Files.readAllLines(unit.toPath()).stream().filter(line -> line.startsWith(key + "=")).map(line -> line.substring(key.length() + 1)).findFirst();
+    }
+
+    // What systemd hands to the program for a word written by SystemdDaemonBuilder.quote
+    private static String unquote(String word) {
+        assertTrue(word.startsWith("\"") && word.endsWith("\""), word);
+        StringBuilder b = new StringBuilder();
+        for (int i = 1; i < word.length() - 1; i++) {
+            char c = word.charAt(i);
+            if (c == '\\' || c == '%' || c == '$') {
+                i++;
+                assertTrue(c != '\\' || "\\\"".indexOf(word.charAt(i)) >= 0, "unexpected escape in " + word);
+                assertTrue(c == '\\' || word.charAt(i) == c, "unescaped " + c + " in " + word);
+                b.append(word.charAt(i));
+            } else {
+                assertNotEquals('"', c, "unescaped quote in " + word);
+                b.append(c);
+            }
+        }
+        return b.toString();
+    }
+
+    @Test
+    public void testCdsScriptsAreEscaped() throws IOException {
+        SystemdDaemonBuilder builder = builder("17.0.9");
+        builder.jvmArgs("-Xmx1G -Dmotd='50% off'").cds(true);
+        File unit = builder.build()[0];
+
+        String prepare = line(unit, "ExecStartPre").orElseThrow();
+        assertTrue(prepare.startsWith("/bin/sh -c \""), prepare);
+        String script = unquote(prepare.substring("/bin/sh -c ".length()));
+        assertEquals(builder.genCdsPrepareScript(), script);
+        // Expanded by sh at start time, not by systemd when the unit is loaded
+        assertTrue(prepare.contains("$$JAVA_HOME/release"), prepare);
+        assertTrue(prepare.contains("stat -L -c '%%s %%Y' \\\"$$JAVA_HOME/lib/server/libjvm.so\\\""), prepare);
+        assertTrue(prepare.contains("cd \\\"$$JAVACTL_CDS_DIR\\\""), prepare);
+        // The stamp covers the jvm arguments, an archive is only good for the settings it was dumped with
+        assertTrue(script.contains("printf '%s\\n' '-Xmx1G -Dmotd='\\''50% off'\\'''"), script);
+        assertTrue(prepare.contains("printf '%%s\\\\n' '-Xmx1G -Dmotd='\\\\''50%% off'\\\\'''"), prepare);
+        assertFalse(script.contains(tmp.resolve("jdk-17.0.9").toString()), script);
+
+        String commit = line(unit, "ExecStopPost").orElseThrow();
+        assertEquals("/bin/sh -c \"cd \\\"$$JAVACTL_CDS_DIR\\\" || exit 0; if [ -f stamp.pending ]; then if [ -s app.jsa ]; " +
+                "then mv stamp.pending stamp; else rm -f stamp.pending; fi; fi\"", commit);
+        assertEquals(builder.genCdsCommitScript(), unquote(commit.substring("/bin/sh -c ".length())));
+
+        assertEquals(Optional.of("javactl/app"), line(unit, "StateDirectory"));
+        assertEquals(Optional.of("-%S/javactl/app/cds.env"), line(unit, "EnvironmentFile"));
+        assertTrue(line(unit, "ExecStart").orElseThrow().contains(" $JAVACTL_CDS -Xmx1G"));
+    }
+
+    @Test
+    public void testQuoteRoundTrip() {
+        String regex = "Done \\(\\d+%\\) \"ok\" in $TIME\\$";
+        assertEquals("\"Done \\\\(\\\\d+%%\\\\) \\\"ok\\\" in $$TIME\\\\$$\"", SystemdDaemonBuilder.quote(regex));
+        assertEquals(regex, unquote(SystemdDaemonBuilder.quote(regex)));
+        assertEquals("\"\"", SystemdDaemonBuilder.quote(""));
+    }
+
+    @Test
+    public void testNotifyUnit() throws IOException {
+        Path agent = Files.writeString(tmp.resolve("javactl-agent.jar"), "");
+        System.setProperty("javactl.agent", agent.toString());
+        try {
+            SystemdDaemonBuilder builder = builder("17.0.9");
+            String condition = "log:Done \\(\\d+%\\) \"ok\" $HOME";
+            builder.notifyReady(condition).watchdog(Duration.ofSeconds(30)).jvmArgs("-Xmx1G");
+            File unit = builder.build()[0];
+            assertEquals(Optional.of("notify"), line(unit, "Type"));
+            assertEquals(Optional.of("all"), line(unit, "NotifyAccess"));
+            assertEquals(Optional.of("30000ms"), line(unit, "WatchdogSec"));
+            Matcher word = Pattern.compile(" (\"(?:[^\"\\\\]|\\\\.)*\") -Xmx1G -jar ").matcher(line(unit, "ExecStart").orElseThrow());
+            assertTrue(word.find());
+            assertEquals("-javaagent:" + agent + "=" + condition, unquote(word.group(1)));
+        } finally {
+            System.clearProperty("javactl.agent");
+        }
+    }
+
+    @Test
+    public void testNotifyValidation() throws IOException {
+        Path agent = Files.writeString(tmp.resolve("javactl-agent.jar"), "");
+        System.setProperty("javactl.agent", agent.toString());
+        try {
+            assertInvalid(builder("17.0.9").watchdog(Duration.ofSeconds(30)), "needs --notify");
+            assertInvalid(builder("17.0.9").notifyReady("main").watchdog(Duration.ofMillis(500)), "at least 1s");
+            assertInvalid(builder("17.0.9").notifyReady("port:0"), "Invalid port '0'");
+            assertInvalid(builder("17.0.9").notifyReady("port:65536"), "Invalid port '65536'");
+            assertInvalid(builder("17.0.9").notifyReady("port:http"), "Invalid port 'http'");
+            assertInvalid(builder("17.0.9").notifyReady("log:Done ("), "Invalid log pattern");
+            assertInvalid(builder("17.0.9").notifyReady("ready"), "Invalid readiness condition 'ready'");
+            System.setProperty("javactl.agent", tmp.resolve("missing.jar").toString());
+            assertInvalid(builder("17.0.9").notifyReady("main"), "Unable to find the javactl agent");
+        } finally {
+            System.clearProperty("javactl.agent");
+        }
+    }
+
+    private void assertInvalid(IDaemonBuilder builder, String message) {
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class, builder::build);
+        assertTrue(e.getMessage().contains(message), e.getMessage());
+        assertEquals(0, tmp.resolve("system").toFile().list().length);
+    }
+
+    @Test
+    public void testLogNamespaceBudget() throws IOException {
+        SystemdDaemonBuilder builder = builder("17.0.9");
+        builder.logNamespace("games").logMaxUse("2G").logRateLimit(Duration.ofSeconds(30), 500);
+        File[] files = builder.build();
+        assertEquals(Optional.of("games"), line(files[0], "LogNamespace"));
+        assertEquals(Optional.of("30000ms"), line(files[0], "LogRateLimitIntervalSec"));
+        assertEquals(Optional.of("500"), line(files[0], "LogRateLimitBurst"));
+        assertEquals(tmp.resolve("journald@games.conf").toFile(), files[2]);
+        assertEquals("# Generated by javactl 0.1 for javactl-app.service\n[Journal]\nSystemMaxUse=2G\n", Files.readString(files[2].toPath()));
+        assertEquals("games", new ServiceRegistry(tmp.resolve("system"), null).getInfo("app").orElseThrow().getLogNamespace());
+    }
+
+    @Test
+    public void testSharedNamespaceKeepsOneBudget() throws IOException {
+        builder("17.0.9").logNamespace("games").build();
+        SystemdDaemonBuilder second = builder("17.0.9");
+        second.name("lobby").logNamespace("games").logMaxUse("1G");
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class, second::build);
+        assertTrue(e.getMessage().contains("Daemon 'app' already logs to the namespace 'games'"), e.getMessage());
+        assertFalse(Files.exists(tmp.resolve("system/javactl-lobby.service")));
+
+        // Settings the user wrote for the namespace are left alone too
+        Files.writeString(tmp.resolve("journald@shared.conf"), "[Journal]\nSystemMaxUse=5G\n");
+        SystemdDaemonBuilder third = builder("17.0.9");
+        third.name("proxy").logNamespace("shared").logMaxUse("1G");
+        e = assertThrows(IllegalArgumentException.class, third::build);
+        assertTrue(e.getMessage().contains("already configured in"), e.getMessage());
+        assertEquals("[Journal]\nSystemMaxUse=5G\n", Files.readString(tmp.resolve("journald@shared.conf")));
+
+        // Sharing without a budget of its own is fine
+        second.logMaxUse(null);
+        assertEquals(2, second.build().length);
+    }
+
+    @Test
+    public void testCdsNeedsJava13() throws IOException {
+        SystemdDaemonBuilder builder = builder("11.0.21");
+        builder.cds(true);
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class, builder::build);
+        assertTrue(e.getMessage().contains("java 13"), e.getMessage());
+        assertEquals(0, tmp.resolve("system").toFile().list().length);
+    }
+
+    @Test
+    public void testMajorVersion() {
+        assertEquals(8, SystemdDaemonBuilder.majorVersion("1.8.0_292"));
+        assertEquals(17, SystemdDaemonBuilder.majorVersion("17.0.1"));
+        assertEquals(21, SystemdDaemonBuilder.majorVersion("21"));
+        assertEquals(13, SystemdDaemonBuilder.majorVersion("13-ea"));
+        assertEquals(11, SystemdDaemonBuilder.majorVersion("11+28"));
+        assertEquals(0, SystemdDaemonBuilder.majorVersion("unknown"));
+        assertEquals(9, SystemdDaemonBuilder.majorVersion("9"));
+    }
+}
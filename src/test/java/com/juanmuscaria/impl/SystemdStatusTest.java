@@ -0,0 +1,57 @@
+package com.juanmuscaria.impl;
+
+import com.juanmuscaria.api.ServiceStatus;
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SystemdStatusTest {
+
+    @Test
+    public void testParseShowOutput() throws IOException {
+        String output = "MainPID=1234\n" +
+                "Id=javactl-web.service\n" +
+                "ActiveState=active\n" +
+                "SubState=running\n" +
+                "ActiveEnterTimestampMonotonic=1000000\n" +
+                "MemoryCurrent=104857600\n" +
+                "\n" +
+                "Id=javactl-proxy.service\n" +
+                "ActiveState=inactive\n" +
+                "SubState=dead\n" +
+                "MainPID=0\n" +
+                "MemoryCurrent=[not set]\n" +
+                "ActiveEnterTimestampMonotonic=0\n";
+
+        Map<String, ServiceStatus> status = Systemd.parseStatus(new BufferedReader(new StringReader(output)), 61_000_000);
+
+        assertEquals(2, status.size());
+        ServiceStatus web = status.get("web");
+        assertTrue(web.isRunning());
+        assertEquals("running", web.getSubState());
+        assertEquals(1234, web.getMainPid());
+        assertEquals(104857600, web.getMemory());
+        assertEquals(Duration.ofMinutes(1), web.getUptime().orElseThrow());
+        ServiceStatus proxy = status.get("proxy");
+        assertFalse(proxy.isRunning());
+        assertEquals(0, proxy.getMainPid());
+        assertEquals(-1, proxy.getMemory());
+        assertTrue(proxy.getUptime().isEmpty());
+    }
+
+    @Test
+    public void testParseJobs() throws IOException {
+        String output = "  812 javactl-web.service     start running\n" +
+                "  813 javactl-web2.service    start waiting\n" +
+                "  815 javactl-web.service     stop  waiting\n";
+        assertEquals(List.of("812", "815"), Systemd.parseJobs(new BufferedReader(new StringReader(output)), "javactl-web.service"));
+        assertEquals(List.of(), Systemd.parseJobs(new BufferedReader(new StringReader("")), "javactl-web.service"));
+    }
+}